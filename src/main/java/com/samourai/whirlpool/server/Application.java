@@ -1,6 +1,8 @@
 package com.samourai.whirlpool.server;
 
 import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
+import com.samourai.whirlpool.server.services.JournalService;
+import com.samourai.whirlpool.server.services.RegisterInputService;
 import com.samourai.whirlpool.server.services.rpc.RpcClientService;
 import com.samourai.whirlpool.server.utils.DbUtils;
 import com.samourai.whirlpool.server.utils.LogbackUtils;
@@ -35,6 +37,10 @@ public class Application implements ApplicationRunner {
 
   @Autowired private WhirlpoolServerConfig whirlpoolServerConfig;
 
+  @Autowired private JournalService journalService;
+
+  @Autowired private RegisterInputService registerInputService;
+
   public static void main(String[] args) {
     SpringApplication.run(Application.class, args);
   }
@@ -70,6 +76,12 @@ public class Application implements ApplicationRunner {
     for (Map.Entry<String, String> entry : whirlpoolServerConfig.getConfigInfo().entrySet()) {
       log.info(entry.getKey() + ": " + entry.getValue());
     }
+
+    // rebuild pools from journal
+    if (journalService.isEnabled()) {
+      int nbRecovered = registerInputService.recoverInputs(journalService.takeRecoveredInputs());
+      log.info("journal: " + nbRecovered + " inputs requeued");
+    }
   }
 
   private void exit() {
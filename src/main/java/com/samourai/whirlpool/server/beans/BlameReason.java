@@ -2,5 +2,7 @@ package com.samourai.whirlpool.server.beans;
 
 public enum BlameReason {
   NO_REGISTER_OUTPUT,
-  NO_SIGNING
+  NO_SIGNING,
+  INVALID_SIGNING,
+  DOUBLE_SPEND
 }
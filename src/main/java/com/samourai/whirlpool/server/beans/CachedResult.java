@@ -1,16 +1,26 @@
 package com.samourai.whirlpool.server.beans;
 
+import java.lang.reflect.Constructor;
+
 public class CachedResult<T, E extends Exception> {
-  private E exception;
   private T result;
 
+  // exception is rebuilt from its message when thrown again, so no stack trace is kept
+  private Class<E> exceptionClass;
+  private String exceptionMessage;
+  private E exception; // when it can't be rebuilt
+
   public CachedResult(E exception) {
-    this.exception = exception;
     this.result = null;
+    if (findMessageConstructor(exception.getClass()) != null) {
+      this.exceptionClass = (Class<E>) exception.getClass();
+      this.exceptionMessage = exception.getMessage();
+    } else {
+      this.exception = exception;
+    }
   }
 
   public CachedResult(T result) {
-    this.exception = null;
     this.result = result;
   }
 
@@ -18,6 +28,29 @@ public class CachedResult<T, E extends Exception> {
     if (exception != null) {
       throw exception;
     }
+    if (exceptionClass != null) {
+      throw rebuildException();
+    }
     return result;
   }
+
+  public boolean isException() {
+    return exception != null || exceptionClass != null;
+  }
+
+  private E rebuildException() {
+    try {
+      return (E) findMessageConstructor(exceptionClass).newInstance(exceptionMessage);
+    } catch (Exception e) {
+      throw new IllegalStateException("unable to rebuild " + exceptionClass.getName(), e);
+    }
+  }
+
+  private static Constructor<?> findMessageConstructor(Class<?> exceptionClass) {
+    try {
+      return exceptionClass.getConstructor(String.class);
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
 }
@@ -3,5 +3,7 @@ package com.samourai.whirlpool.server.beans;
 public enum FailReason {
   FAIL_REGISTER_OUTPUTS,
   FAIL_SIGNING,
-  FAIL_BROADCAST
+  FAIL_BROADCAST,
+  FAIL_INTERRUPTED,
+  FAIL_DOUBLE_SPEND
 }
@@ -2,26 +2,38 @@ package com.samourai.whirlpool.server.beans;
 
 import com.samourai.whirlpool.server.utils.Utils;
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Queued inputs, indexed by inputId and username. Inputs are stored in an array so that a random
+ * input can be removed in O(1) (swap with last element).
+ */
 public class InputPool {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
-  private Map<String, RegisteredInput> inputsById;
+  private List<RegisteredInput> inputs;
+  private Map<String, Integer> indexById; // inputId -> index in inputs
+  private Map<String, String> inputIdByUsername;
 
   public InputPool() {
-    this.inputsById = new HashMap<>();
+    this.inputs = new ArrayList<>();
+    this.indexById = new HashMap<>();
+    this.inputIdByUsername = new HashMap<>();
   }
 
   public synchronized void register(RegisteredInput registeredInput) {
     if (!hasInput(registeredInput.getInput())) {
       String username = registeredInput.getUsername();
-      if (!findByUsername(username).isPresent()) {
+      if (!inputIdByUsername.containsKey(username)) {
         String inputId = Utils.computeInputId(registeredInput.getInput());
-        inputsById.put(inputId, registeredInput);
+        indexById.put(inputId, inputs.size());
+        inputIdByUsername.put(username, inputId);
+        inputs.add(registeredInput);
       } else {
         log.error(
             "WEIRD: not queueing input, another one was already queued for this username:"
@@ -29,52 +41,74 @@ public class InputPool {
       }
     } else {
       log.warn("not queueing input, it was already queued: " + registeredInput.getInput());
-      if (log.isDebugEnabled()) { // TODO
-        inputsById
-            .values()
-            .forEach(i -> log.debug("input: " + i.getInput() + ", username=" + i.getUsername()));
-      }
     }
   }
 
-  public Optional<RegisteredInput> findByUsername(String username) {
-    return inputsById
-        .values()
-        .parallelStream()
-        .filter(registeredInput -> registeredInput.getUsername().equals(username))
-        .findFirst();
+  public synchronized Optional<RegisteredInput> findByUsername(String username) {
+    String inputId = inputIdByUsername.get(username);
+    if (inputId == null) {
+      return Optional.empty();
+    }
+    return Optional.of(inputs.get(indexById.get(inputId)));
   }
 
   public synchronized Optional<RegisteredInput> peekRandom() {
-    if (!inputsById.isEmpty()) {
-      Map.Entry<String, RegisteredInput> entry = Utils.getRandomEntry(inputsById);
-      RegisteredInput registeredInput = entry.getValue();
-      inputsById.remove(entry.getKey());
+    if (!inputs.isEmpty()) {
+      int index = Utils.getRandomIndex(inputs.size());
+      RegisteredInput registeredInput = removeAt(index);
       return Optional.of(registeredInput);
     }
     return Optional.empty();
   }
 
   public synchronized Optional<RegisteredInput> removeByUsername(String username) {
-    Optional<RegisteredInput> inputByUsername = findByUsername(username);
-    if (inputByUsername.isPresent()) {
-      String inputId = Utils.computeInputId(inputByUsername.get().getInput());
-      inputsById.remove(inputId);
+    String inputId = inputIdByUsername.get(username);
+    if (inputId == null) {
+      return Optional.empty();
+    }
+    RegisteredInput registeredInput = removeAt(indexById.get(inputId));
+    return Optional.of(registeredInput);
+  }
+
+  public synchronized Optional<RegisteredInput> removeByInput(TxOutPoint outPoint) {
+    Integer index = indexById.get(Utils.computeInputId(outPoint));
+    if (index == null) {
+      return Optional.empty();
     }
-    return inputByUsername;
+    RegisteredInput registeredInput = removeAt(index);
+    return Optional.of(registeredInput);
+  }
+
+  private RegisteredInput removeAt(int index) {
+    // move last input to removed slot
+    RegisteredInput registeredInput = inputs.get(index);
+    int lastIndex = inputs.size() - 1;
+    RegisteredInput lastInput = inputs.remove(lastIndex);
+    if (index != lastIndex) {
+      inputs.set(index, lastInput);
+      indexById.put(Utils.computeInputId(lastInput.getInput()), index);
+    }
+
+    indexById.remove(Utils.computeInputId(registeredInput.getInput()));
+    inputIdByUsername.remove(registeredInput.getUsername());
+    return registeredInput;
   }
 
   // ------------
 
-  public boolean hasInput(TxOutPoint outPoint) {
-    return inputsById.containsKey(Utils.computeInputId(outPoint));
+  public synchronized List<RegisteredInput> getInputs() {
+    return new ArrayList<>(inputs);
+  }
+
+  public synchronized boolean hasInput(TxOutPoint outPoint) {
+    return indexById.containsKey(Utils.computeInputId(outPoint));
   }
 
-  public boolean hasInputs() {
-    return !inputsById.isEmpty();
+  public synchronized boolean hasInputs() {
+    return !inputs.isEmpty();
   }
 
-  public int getSize() {
-    return inputsById.size();
+  public synchronized int getSize() {
+    return inputs.size();
   }
 }
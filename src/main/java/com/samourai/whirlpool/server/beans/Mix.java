@@ -7,6 +7,8 @@ import com.samourai.whirlpool.server.exceptions.IllegalInputException;
 import com.samourai.whirlpool.server.persistence.to.MixTO;
 import com.samourai.whirlpool.server.services.CryptoService;
 import com.samourai.whirlpool.server.utils.Utils;
+import com.samourai.whirlpool.server.utils.timeout.HashedWheelTimer;
+import java.lang.invoke.MethodHandles;
 import java.sql.Timestamp;
 import java.util.Collection;
 import java.util.HashMap;
@@ -14,12 +16,15 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ScheduledFuture;
 import java.util.stream.Collectors;
 import org.bitcoinj.core.Transaction;
 import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class Mix {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
   private MixTO mixTO;
   private Long created;
 
@@ -28,28 +33,35 @@ public class Mix {
   private byte[] publicKey;
   private Timestamp timeStarted;
   private Map<MixStatus, Timestamp> timeStatus;
-  private ScheduledFuture scheduleRegisterOutput;
+  private HashedWheelTimer.Timeout scheduleRegisterOutput;
 
   private Pool pool;
   private int targetAnonymitySet;
   private boolean acceptLiquidities;
 
   private MixStatus mixStatus;
+  private String inputsHash; // frozen when entering REGISTER_OUTPUT
   private InputPool confirmingInputs;
   private Map<String, ConfirmedInput> inputsById;
+  private int nbInputsMustMix; // maintained by registerInput() & unregisterInput()
+  private int nbInputsLiquidities;
+  private long amountIn;
+  private Map<String, Integer> nbInputsByHash;
 
   private Set<String> receiveAddresses;
   private Map<String, String> revealedReceiveAddressesByUsername;
   private Map<String, Signature> signatures;
 
   private Transaction tx;
+  private boolean broadcasting; // SIGNING completed, waiting for broadcast result
   private FailReason failReason;
 
-  public Mix(String mixId, Pool pool, CryptoService cryptoService) {
+  public Mix(
+      String mixId, Pool pool, AsymmetricCipherKeyPair keyPair, CryptoService cryptoService) {
     this.mixTO = null;
     this.created = null;
     this.mixId = mixId;
-    this.keyPair = cryptoService.generateKeyPair();
+    this.keyPair = keyPair;
     try {
       this.publicKey = cryptoService.computePublicKey(keyPair).getEncoded();
     } catch (Exception e) {
@@ -64,14 +76,20 @@ public class Mix {
     this.acceptLiquidities = false;
 
     this.mixStatus = MixStatus.CONFIRM_INPUT;
+    this.inputsHash = null;
     this.confirmingInputs = new InputPool();
     this.inputsById = new HashMap<>();
+    this.nbInputsMustMix = 0;
+    this.nbInputsLiquidities = 0;
+    this.amountIn = 0;
+    this.nbInputsByHash = new HashMap<>();
 
     this.receiveAddresses = new HashSet<>();
     this.revealedReceiveAddressesByUsername = new HashMap<>();
     this.signatures = new HashMap<>();
 
     this.tx = null;
+    this.broadcasting = false;
     this.failReason = null;
   }
 
@@ -121,17 +139,17 @@ public class Mix {
     return timeStatus;
   }
 
-  public ScheduledFuture getScheduleRegisterOutput() {
+  public HashedWheelTimer.Timeout getScheduleRegisterOutput() {
     return scheduleRegisterOutput;
   }
 
-  public void setScheduleRegisterOutput(ScheduledFuture scheduleRegisterOutput) {
+  public void setScheduleRegisterOutput(HashedWheelTimer.Timeout scheduleRegisterOutput) {
     this.scheduleRegisterOutput = scheduleRegisterOutput;
   }
 
   public void clearScheduleRegisterOutput() {
     if (scheduleRegisterOutput != null) {
-      scheduleRegisterOutput.cancel(false);
+      scheduleRegisterOutput.cancel();
       scheduleRegisterOutput = null;
     }
   }
@@ -161,6 +179,10 @@ public class Mix {
   }
 
   public void setMixStatusAndTime(MixStatus mixStatus) {
+    if (MixStatus.REGISTER_OUTPUT.equals(mixStatus) && inputsHash == null) {
+      // inputs can't change anymore
+      this.inputsHash = computeInputsHash();
+    }
     this.mixStatus = mixStatus;
     timeStatus.put(mixStatus, new Timestamp(System.currentTimeMillis()));
   }
@@ -181,6 +203,10 @@ public class Mix {
     return confirmingInputs.removeByUsername(username);
   }
 
+  public synchronized Optional<RegisteredInput> removeConfirmingInput(TxOutPoint txOutPoint) {
+    return confirmingInputs.removeByInput(txOutPoint);
+  }
+
   public boolean hasPendingConfirmingInputs() {
     return confirmingInputs.hasInputs();
   }
@@ -193,24 +219,27 @@ public class Mix {
     return inputsById.values();
   }
 
+  public Optional<ConfirmedInput> findInputByUsername(String username) {
+    return getInputs()
+        .stream()
+        .filter(input -> input.getRegisteredInput().getUsername().equals(username))
+        .findFirst();
+  }
+
   public int getNbInputs() {
     return inputsById.size();
   }
 
   public int getNbInputsMustMix() {
-    return (int)
-        getInputs()
-            .parallelStream()
-            .filter(input -> !input.getRegisteredInput().isLiquidity())
-            .count();
+    return nbInputsMustMix;
   }
 
   public int getNbInputsLiquidities() {
-    return (int)
-        getInputs()
-            .parallelStream()
-            .filter(input -> input.getRegisteredInput().isLiquidity())
-            .count();
+    return nbInputsLiquidities;
+  }
+
+  public int getNbInputsSameHash(String hash) {
+    return nbInputsByHash.getOrDefault(hash, 0);
   }
 
   public synchronized void registerInput(ConfirmedInput confirmedInput)
@@ -220,17 +249,72 @@ public class Mix {
       throw new IllegalInputException("input already registered");
     }
     inputsById.put(inputId, confirmedInput);
+    updateCounters(confirmedInput, 1);
   }
 
   public synchronized void unregisterInput(ConfirmedInput confirmedInput) {
     String inputId = Utils.computeInputId(confirmedInput.getRegisteredInput().getInput());
-    inputsById.remove(inputId);
+    if (inputsById.remove(inputId) != null) {
+      updateCounters(confirmedInput, -1);
+    }
   }
 
-  public boolean hasInput(TxOutPoint outPoint) {
+  private void updateCounters(ConfirmedInput confirmedInput, int delta) {
+    RegisteredInput registeredInput = confirmedInput.getRegisteredInput();
+    if (registeredInput.isLiquidity()) {
+      nbInputsLiquidities += delta;
+    } else {
+      nbInputsMustMix += delta;
+    }
+    amountIn += delta * registeredInput.getInput().getValue();
+    nbInputsByHash.merge(
+        registeredInput.getInput().getHash(),
+        delta,
+        (a, b) -> (a + b) > 0 ? (a + b) : null); // remove entry when reaching 0
+
+    if (log.isDebugEnabled()) {
+      checkCounters();
+    }
+  }
+
+  private void checkCounters() {
+    long nbLiquidities =
+        getInputs().stream().filter(input -> input.getRegisteredInput().isLiquidity()).count();
+    long amount =
+        getInputs()
+            .stream()
+            .mapToLong(input -> input.getRegisteredInput().getInput().getValue())
+            .sum();
+    if (nbLiquidities != nbInputsLiquidities
+        || (getNbInputs() - nbLiquidities) != nbInputsMustMix
+        || amount != amountIn
+        || nbInputsByHash.values().stream().mapToInt(i -> i).sum() != getNbInputs()) {
+      log.error(
+          "["
+              + mixId
+              + "] inconsistent input counters: nbInputsMustMix="
+              + nbInputsMustMix
+              + ", nbInputsLiquidities="
+              + nbInputsLiquidities
+              + ", amountIn="
+              + amountIn
+              + " vs inputs="
+              + getNbInputs()
+              + ", liquidities="
+              + nbLiquidities
+              + ", amount="
+              + amount);
+    }
+  }
+
+  public synchronized boolean hasInput(TxOutPoint outPoint) {
     return inputsById.containsKey(Utils.computeInputId(outPoint));
   }
 
+  public synchronized Optional<ConfirmedInput> findInput(TxOutPoint outPoint) {
+    return Optional.ofNullable(inputsById.get(Utils.computeInputId(outPoint)));
+  }
+
   public String computeInputsHash() {
     Collection<Utxo> inputs =
         getInputs()
@@ -241,6 +325,11 @@ public class Mix {
     return WhirlpoolProtocol.computeInputsHash(inputs);
   }
 
+  /** @return inputsHash, or null when mix didn't reach REGISTER_OUTPUT yet */
+  public String getInputsHash() {
+    return inputsHash;
+  }
+
   public synchronized void registerOutput(String receiveAddress) {
     receiveAddresses.add(receiveAddress);
   }
@@ -293,6 +382,14 @@ public class Mix {
     return tx;
   }
 
+  public boolean isBroadcasting() {
+    return broadcasting;
+  }
+
+  public void setBroadcasting(boolean broadcasting) {
+    this.broadcasting = broadcasting;
+  }
+
   public void setFailReason(FailReason failReason) {
     this.failReason = failReason;
   }
@@ -306,11 +403,7 @@ public class Mix {
   }
 
   public long computeAmountIn() {
-    return inputsById
-        .values()
-        .stream()
-        .mapToLong(input -> input.getRegisteredInput().getInput().getValue())
-        .sum();
+    return amountIn;
   }
 
   public long computeAmountOut() {
@@ -1,6 +1,11 @@
 package com.samourai.whirlpool.server.beans;
 
 import com.samourai.whirlpool.protocol.WhirlpoolProtocol;
+import com.samourai.whirlpool.server.utils.SerialExecutor;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Pool {
   private String poolId;
@@ -15,9 +20,11 @@ public class Pool {
   private long liquidityTimeout; // wait X seconds for accepting liquidities
 
   private Mix currentMix;
+  private Set<Mix> mixsInFlight; // running mixs past CONFIRM_INPUT
   private InputPool mustMixQueue;
   private InputPool liquidityQueue;
   private InputPool unconfirmedQueue;
+  private SerialExecutor serialExecutor; // applies all mutations of mixs & queues for this pool
 
   public Pool(
       String poolId,
@@ -43,6 +50,8 @@ public class Pool {
     this.mustMixQueue = new InputPool();
     this.liquidityQueue = new InputPool();
     this.unconfirmedQueue = new InputPool();
+    this.mixsInFlight = ConcurrentHashMap.newKeySet();
+    this.serialExecutor = new SerialExecutor("pool-" + poolId);
   }
 
   public boolean checkInputBalance(long inputBalance, boolean liquidity) {
@@ -107,6 +116,26 @@ public class Pool {
     this.currentMix = currentMix;
   }
 
+  public void addMixInFlight(Mix mix) {
+    mixsInFlight.add(mix);
+  }
+
+  public void removeMixInFlight(Mix mix) {
+    mixsInFlight.remove(mix);
+  }
+
+  public Collection<Mix> getMixsInFlight() {
+    return Collections.unmodifiableSet(mixsInFlight);
+  }
+
+  public int getNbMixsInFlight() {
+    return mixsInFlight.size();
+  }
+
+  public void clearMixsInFlight() {
+    mixsInFlight.clear();
+  }
+
   public InputPool getMustMixQueue() {
     return mustMixQueue;
   }
@@ -118,4 +147,8 @@ public class Pool {
   public InputPool getUnconfirmedQueue() {
     return unconfirmedQueue;
   }
+
+  public SerialExecutor getSerialExecutor() {
+    return serialExecutor;
+  }
 }
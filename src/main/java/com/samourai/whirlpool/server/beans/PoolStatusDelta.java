@@ -0,0 +1,88 @@
+package com.samourai.whirlpool.server.beans;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.samourai.whirlpool.protocol.websocket.notifications.MixStatus;
+import java.util.Objects;
+
+/**
+ * Pool status update published on pool topic. Only fields changed since previous update are set,
+ * unchanged ones are null and not serialized.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PoolStatusDelta {
+  private String poolId;
+  private Integer nbRegistered;
+  private Integer mixAnonymitySet;
+  private MixStatus mixStatus;
+  private Integer mixNbConfirmed;
+
+  public PoolStatusDelta() {}
+
+  public PoolStatusDelta(
+      String poolId,
+      Integer nbRegistered,
+      Integer mixAnonymitySet,
+      MixStatus mixStatus,
+      Integer mixNbConfirmed) {
+    this.poolId = poolId;
+    this.nbRegistered = nbRegistered;
+    this.mixAnonymitySet = mixAnonymitySet;
+    this.mixStatus = mixStatus;
+    this.mixNbConfirmed = mixNbConfirmed;
+  }
+
+  /** @return fields of status which differ from previous status */
+  public static PoolStatusDelta compute(PoolStatusDelta previous, PoolStatusDelta status) {
+    return new PoolStatusDelta(
+        status.poolId,
+        changed(previous.nbRegistered, status.nbRegistered),
+        changed(previous.mixAnonymitySet, status.mixAnonymitySet),
+        changed(previous.mixStatus, status.mixStatus),
+        changed(previous.mixNbConfirmed, status.mixNbConfirmed));
+  }
+
+  private static <T> T changed(T previous, T value) {
+    return Objects.equals(previous, value) ? null : value;
+  }
+
+  public boolean hasChanges() {
+    return nbRegistered != null
+        || mixAnonymitySet != null
+        || mixStatus != null
+        || mixNbConfirmed != null;
+  }
+
+  public String getPoolId() {
+    return poolId;
+  }
+
+  public Integer getNbRegistered() {
+    return nbRegistered;
+  }
+
+  public Integer getMixAnonymitySet() {
+    return mixAnonymitySet;
+  }
+
+  public MixStatus getMixStatus() {
+    return mixStatus;
+  }
+
+  public Integer getMixNbConfirmed() {
+    return mixNbConfirmed;
+  }
+
+  @Override
+  public String toString() {
+    return "poolId="
+        + poolId
+        + ", nbRegistered="
+        + nbRegistered
+        + ", mixAnonymitySet="
+        + mixAnonymitySet
+        + ", mixStatus="
+        + mixStatus
+        + ", mixNbConfirmed="
+        + mixNbConfirmed;
+  }
+}
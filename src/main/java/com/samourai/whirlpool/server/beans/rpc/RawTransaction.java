@@ -0,0 +1,160 @@
+package com.samourai.whirlpool.server.beans.rpc;
+
+import java.security.MessageDigest;
+import org.bitcoinj.core.Utils;
+
+/**
+ * Read-only view over a serialized transaction (legacy or segwit). Parsing only indexes positions
+ * of inputs and outputs, fields are decoded from the raw bytes when accessed.
+ */
+public class RawTransaction {
+  private static final int OUTPOINT_SIZE = 36; // hash, index
+  private static final int VALUE_SIZE = 8;
+
+  private final byte[] bytes;
+  private final int insStart; // first byte after version (and segwit marker/flag)
+  private final int outsEnd; // first byte after outputs
+  private final int[] inPositions; // outpoint of each input
+  private final int[] outPositions; // value of each output
+  private volatile String txid;
+
+  public RawTransaction(byte[] bytes) {
+    this.bytes = bytes;
+    try {
+      int pos = 4; // version
+      // segwit marker 0x00 (no valid legacy tx has 0 inputs), then flag 0x01
+      boolean segwit = (bytes[pos] == 0);
+      if (segwit) {
+        if (bytes[pos + 1] != 1) {
+          throw new IllegalArgumentException("invalid raw tx: unknown segwit flag");
+        }
+        pos += 2;
+      }
+      insStart = pos;
+
+      long nbIns = readVarInt(pos);
+      pos += varIntSize(pos);
+      inPositions = new int[checkCount(nbIns, pos, OUTPOINT_SIZE + 5)];
+      for (int i = 0; i < inPositions.length; i++) {
+        inPositions[i] = pos;
+        pos += OUTPOINT_SIZE;
+        pos = skipBytes(pos);
+        pos += 4; // sequence
+      }
+
+      long nbOuts = readVarInt(pos);
+      pos += varIntSize(pos);
+      outPositions = new int[checkCount(nbOuts, pos, VALUE_SIZE + 1)];
+      for (int i = 0; i < outPositions.length; i++) {
+        outPositions[i] = pos;
+        pos += VALUE_SIZE;
+        pos = skipBytes(pos);
+      }
+      outsEnd = pos;
+
+      if (segwit) {
+        for (int i = 0; i < inPositions.length; i++) {
+          long nbItems = readVarInt(pos);
+          pos += varIntSize(pos);
+          int nbWitnessItems = checkCount(nbItems, pos, 1);
+          for (int j = 0; j < nbWitnessItems; j++) {
+            pos = skipBytes(pos);
+          }
+        }
+      }
+      pos += 4; // locktime
+      if (pos != bytes.length) {
+        throw new IllegalArgumentException("invalid raw tx: unexpected length");
+      }
+    } catch (ArrayIndexOutOfBoundsException e) {
+      throw new IllegalArgumentException("invalid raw tx: truncated");
+    }
+  }
+
+  public static RawTransaction fromHex(String hex) {
+    return new RawTransaction(Utils.HEX.decode(hex));
+  }
+
+  /** Hash of the serialization without witness data. */
+  public String getTxid() {
+    if (txid == null) {
+      try {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update(bytes, 0, 4);
+        digest.update(bytes, insStart, outsEnd - insStart);
+        digest.update(bytes, bytes.length - 4, 4);
+        byte[] hash = digest.digest(digest.digest());
+        txid = Utils.HEX.encode(Utils.reverseBytes(hash));
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    return txid;
+  }
+
+  public int getNbIns() {
+    return inPositions.length;
+  }
+
+  public String getInOriginHash(int i) {
+    byte[] hash = new byte[32];
+    for (int j = 0; j < 32; j++) {
+      hash[j] = bytes[inPositions[i] + 31 - j];
+    }
+    return Utils.HEX.encode(hash);
+  }
+
+  public long getInOriginIndex(int i) {
+    return Utils.readUint32(bytes, inPositions[i] + 32);
+  }
+
+  public int getNbOuts() {
+    return outPositions.length;
+  }
+
+  public long getOutValue(int i) {
+    return Utils.readInt64(bytes, outPositions[i]);
+  }
+
+  public byte[] getOutScriptPubKey(int i) {
+    int pos = outPositions[i] + VALUE_SIZE;
+    int length = (int) readVarInt(pos);
+    pos += varIntSize(pos);
+    byte[] script = new byte[length];
+    System.arraycopy(bytes, pos, script, 0, length);
+    return script;
+  }
+
+  private int skipBytes(int pos) {
+    long length = readVarInt(pos);
+    pos += varIntSize(pos);
+    return pos + checkCount(length, pos, 1);
+  }
+
+  private long readVarInt(int pos) {
+    int first = bytes[pos] & 0xff;
+    if (first < 0xfd) {
+      return first;
+    }
+    if (first == 0xfd) {
+      return (bytes[pos + 1] & 0xff) | ((bytes[pos + 2] & 0xff) << 8);
+    }
+    if (first == 0xfe) {
+      return Utils.readUint32(bytes, pos + 1);
+    }
+    return Utils.readInt64(bytes, pos + 1);
+  }
+
+  private int varIntSize(int pos) {
+    int first = bytes[pos] & 0xff;
+    return first < 0xfd ? 1 : first == 0xfd ? 3 : first == 0xfe ? 5 : 9;
+  }
+
+  // reject counts which can't fit in remaining bytes
+  private int checkCount(long count, int pos, int minItemSize) {
+    if (count < 0 || count > (bytes.length - pos) / minItemSize) {
+      throw new IllegalArgumentException("invalid raw tx: count overflow");
+    }
+    return (int) count;
+  }
+}
@@ -1,11 +1,14 @@
 package com.samourai.whirlpool.server.beans.rpc;
 
+import java.util.function.Supplier;
+
 public class RpcOut {
   private String hash;
   private long index;
   private long value;
   private byte[] scriptPubKey;
   private String toAddress;
+  private volatile Supplier<String> toAddressSupplier; // computes toAddress on first access
 
   public RpcOut() {}
 
@@ -17,6 +20,15 @@ public class RpcOut {
     this.toAddress = toAddress;
   }
 
+  public RpcOut(
+      String hash, long index, long value, byte[] scriptPubKey, Supplier<String> toAddress) {
+    this.hash = hash;
+    this.index = index;
+    this.value = value;
+    this.scriptPubKey = scriptPubKey;
+    this.toAddressSupplier = toAddress;
+  }
+
   public String getHash() {
     return hash;
   }
@@ -34,6 +46,11 @@ public class RpcOut {
   }
 
   public String getToAddress() {
+    Supplier<String> supplier = toAddressSupplier;
+    if (supplier != null) {
+      toAddress = supplier.get();
+      toAddressSupplier = null;
+    }
     return toAddress;
   }
 }
@@ -2,11 +2,22 @@ package com.samourai.whirlpool.server.beans.rpc;
 
 import com.samourai.wallet.segwit.bech32.Bech32UtilGeneric;
 import com.samourai.whirlpool.server.services.rpc.RpcRawTransactionResponse;
-import java.util.ArrayList;
+import com.samourai.whirlpool.server.utils.Utils;
+import java.lang.invoke.MethodHandles;
+import java.util.AbstractList;
 import java.util.List;
-import org.bitcoinj.core.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.script.Script;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/**
+ * Transaction parsed from raw hex. Inputs and outputs are views over the raw bytes, decoded on
+ * first access. Output addresses are only computed when requested.
+ */
 public class RpcTransaction {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   private String txid;
   private int confirmations;
   private List<RpcIn> ins;
@@ -17,39 +28,20 @@ public class RpcTransaction {
       NetworkParameters params,
       Bech32UtilGeneric bech32Util)
       throws Exception {
-    // parse tx with bitcoinj
-    Transaction tx = new Transaction(params, Utils.HEX.decode(rpcRawTransaction.getHex()));
+    RawTransaction rawTx = RawTransaction.fromHex(rpcRawTransaction.getHex());
 
-    this.txid = tx.getHashAsString();
+    this.txid = rawTx.getTxid();
     this.confirmations = rpcRawTransaction.getConfirmations();
-    this.ins = new ArrayList<>();
-    this.outs = new ArrayList<>();
-
-    for (TransactionInput in : tx.getInputs()) {
-      RpcIn rpcIn = newRpcIn(in);
-      ins.add(rpcIn);
-    }
-    for (TransactionOutput out : tx.getOutputs()) {
-      RpcOut rpcOut = newRpcOut(out, txid, params, bech32Util);
-      outs.add(rpcOut);
-    }
-  }
-
-  private RpcOut newRpcOut(
-      TransactionOutput out, String hash, NetworkParameters params, Bech32UtilGeneric bech32Util)
-      throws Exception {
-    long amount = out.getValue().getValue();
-    String toAddress =
-        com.samourai.whirlpool.server.utils.Utils.getToAddressBech32(out, bech32Util, params);
-    RpcOut rpcOut =
-        new RpcOut(hash, out.getIndex(), amount, out.getScriptPubKey().getProgram(), toAddress);
-    return rpcOut;
+    this.ins = new RpcInList(rawTx);
+    this.outs = new RpcOutList(rawTx, txid, params, bech32Util);
   }
 
-  private RpcIn newRpcIn(TransactionInput in) {
-    TransactionOutPoint outOrigin = in.getOutpoint();
-    RpcIn rpcIn = new RpcIn(outOrigin.getHash().toString(), outOrigin.getIndex());
-    return rpcIn;
+  /** Same tx with up-to-date confirmations (tx contents never change). */
+  public RpcTransaction(RpcTransaction rpcTransaction, int confirmations) {
+    this.txid = rpcTransaction.txid;
+    this.confirmations = confirmations;
+    this.ins = rpcTransaction.ins;
+    this.outs = rpcTransaction.outs;
   }
 
   public String getTxid() {
@@ -67,4 +59,77 @@ public class RpcTransaction {
   public List<RpcOut> getOuts() {
     return outs;
   }
+
+  private static class RpcInList extends AbstractList<RpcIn> {
+    private RawTransaction rawTx;
+    private AtomicReferenceArray<RpcIn> ins;
+
+    RpcInList(RawTransaction rawTx) {
+      this.rawTx = rawTx;
+      this.ins = new AtomicReferenceArray<>(rawTx.getNbIns());
+    }
+
+    @Override
+    public RpcIn get(int i) {
+      RpcIn rpcIn = ins.get(i);
+      if (rpcIn == null) {
+        rpcIn = new RpcIn(rawTx.getInOriginHash(i), rawTx.getInOriginIndex(i));
+        if (!ins.compareAndSet(i, null, rpcIn)) {
+          rpcIn = ins.get(i);
+        }
+      }
+      return rpcIn;
+    }
+
+    @Override
+    public int size() {
+      return ins.length();
+    }
+  }
+
+  private static class RpcOutList extends AbstractList<RpcOut> {
+    private RawTransaction rawTx;
+    private String txid;
+    private NetworkParameters params;
+    private Bech32UtilGeneric bech32Util;
+    private AtomicReferenceArray<RpcOut> outs;
+
+    RpcOutList(
+        RawTransaction rawTx, String txid, NetworkParameters params, Bech32UtilGeneric bech32Util) {
+      this.rawTx = rawTx;
+      this.txid = txid;
+      this.params = params;
+      this.bech32Util = bech32Util;
+      this.outs = new AtomicReferenceArray<>(rawTx.getNbOuts());
+    }
+
+    @Override
+    public RpcOut get(int i) {
+      RpcOut rpcOut = outs.get(i);
+      if (rpcOut == null) {
+        byte[] scriptPubKey = rawTx.getOutScriptPubKey(i);
+        rpcOut =
+            new RpcOut(
+                txid, i, rawTx.getOutValue(i), scriptPubKey, () -> computeToAddress(scriptPubKey));
+        if (!outs.compareAndSet(i, null, rpcOut)) {
+          rpcOut = outs.get(i);
+        }
+      }
+      return rpcOut;
+    }
+
+    private String computeToAddress(byte[] scriptPubKey) {
+      try {
+        return Utils.getToAddressBech32(new Script(scriptPubKey), bech32Util, params);
+      } catch (Exception e) {
+        log.error("unable to parse scriptPubKey: " + txid, e);
+        return null;
+      }
+    }
+
+    @Override
+    public int size() {
+      return outs.length();
+    }
+  }
 }
@@ -4,18 +4,15 @@ import com.samourai.wallet.segwit.bech32.Bech32UtilGeneric;
 import com.samourai.wallet.util.FormatsUtilGeneric;
 import com.samourai.whirlpool.protocol.WhirlpoolProtocol;
 import com.samourai.whirlpool.server.services.CryptoService;
+import com.samourai.whirlpool.server.utils.BoundedExecutor;
 import java.lang.invoke.MethodHandles;
 import nz.net.ultraq.thymeleaf.LayoutDialect;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.core.task.SimpleAsyncTaskExecutor;
-import org.springframework.core.task.TaskExecutor;
 
 @Configuration
-@EnableCaching
 public class ServicesConfig {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
@@ -37,8 +34,40 @@ public class ServicesConfig {
   }
 
   @Bean
-  TaskExecutor taskExecutor() {
-    return new SimpleAsyncTaskExecutor();
+  BoundedExecutor websocketExecutor() {
+    WhirlpoolServerConfig.WebSocketExecutorConfig config =
+        whirlpoolServerConfig.getWebsocketExecutor();
+    // never run sends on caller thread (timer, pool executors). Full user queue disconnects the
+    // client (see WebSocketService), only topic messages are dropped
+    return new BoundedExecutor(
+        "websocket",
+        config.getThreads(),
+        config.getQueueSize(),
+        config.getUserQueueSize(),
+        BoundedExecutor.RejectionPolicy.DISCARD);
+  }
+
+  @Bean
+  BoundedExecutor signingVerifierExecutor() {
+    WhirlpoolServerConfig.SigningConfig config = whirlpoolServerConfig.getSigning();
+    return new BoundedExecutor(
+        "signingVerifier",
+        config.getVerifierThreads(),
+        config.getVerifierQueueSize(),
+        config.getVerifierQueueSize(),
+        BoundedExecutor.RejectionPolicy.DISCARD);
+  }
+
+  @Bean
+  BoundedExecutor tx0CheckExecutor() {
+    WhirlpoolServerConfig.RegisterInputConfig config = whirlpoolServerConfig.getRegisterInput();
+    // backpressure on registering clients when RPC node is saturated
+    return new BoundedExecutor(
+        "tx0Check",
+        config.getTx0CheckThreads(),
+        config.getTx0CheckQueueSize(),
+        config.getTx0CheckQueueSize(),
+        BoundedExecutor.RejectionPolicy.CALLER_RUNS);
   }
 
   @Bean
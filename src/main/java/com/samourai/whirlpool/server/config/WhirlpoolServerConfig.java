@@ -23,8 +23,16 @@ public class WhirlpoolServerConfig {
   private RegisterOutputConfig registerOutput;
   private SigningConfig signing;
   private RevealOutputConfig revealOutput;
+  private MixConfig mix;
+  private BroadcastConfig broadcast;
   private BanConfig ban;
   private ExportConfig export;
+  private JournalConfig journal;
+  private KeyPairPoolConfig keyPairPool;
+  private WebSocketExecutorConfig websocketExecutor;
+  private ZmqConfig zmq;
+  private TxStoreConfig txStore;
+  private CacheConfig cache;
   private PoolConfig[] pools;
 
   public SamouraiFeeConfig getSamouraiFees() {
@@ -103,6 +111,22 @@ public class WhirlpoolServerConfig {
     this.revealOutput = revealOutput;
   }
 
+  public MixConfig getMix() {
+    return mix;
+  }
+
+  public void setMix(MixConfig mix) {
+    this.mix = mix;
+  }
+
+  public BroadcastConfig getBroadcast() {
+    return broadcast;
+  }
+
+  public void setBroadcast(BroadcastConfig broadcast) {
+    this.broadcast = broadcast;
+  }
+
   public BanConfig getBan() {
     return ban;
   }
@@ -119,6 +143,54 @@ public class WhirlpoolServerConfig {
     this.export = export;
   }
 
+  public JournalConfig getJournal() {
+    return journal;
+  }
+
+  public void setJournal(JournalConfig journal) {
+    this.journal = journal;
+  }
+
+  public KeyPairPoolConfig getKeyPairPool() {
+    return keyPairPool;
+  }
+
+  public void setKeyPairPool(KeyPairPoolConfig keyPairPool) {
+    this.keyPairPool = keyPairPool;
+  }
+
+  public WebSocketExecutorConfig getWebsocketExecutor() {
+    return websocketExecutor;
+  }
+
+  public void setWebsocketExecutor(WebSocketExecutorConfig websocketExecutor) {
+    this.websocketExecutor = websocketExecutor;
+  }
+
+  public ZmqConfig getZmq() {
+    return zmq;
+  }
+
+  public void setZmq(ZmqConfig zmq) {
+    this.zmq = zmq;
+  }
+
+  public TxStoreConfig getTxStore() {
+    return txStore;
+  }
+
+  public void setTxStore(TxStoreConfig txStore) {
+    this.txStore = txStore;
+  }
+
+  public CacheConfig getCache() {
+    return cache;
+  }
+
+  public void setCache(CacheConfig cache) {
+    this.cache = cache;
+  }
+
   public PoolConfig[] getPools() {
     return pools;
   }
@@ -131,6 +203,8 @@ public class WhirlpoolServerConfig {
     private int minConfirmationsMustMix;
     private int minConfirmationsLiquidity;
     private int maxInputsSameHash;
+    private int tx0CheckThreads;
+    private int tx0CheckQueueSize;
 
     public int getMinConfirmationsMustMix() {
       return minConfirmationsMustMix;
@@ -155,6 +229,22 @@ public class WhirlpoolServerConfig {
     public void setMaxInputsSameHash(int maxInputsSameHash) {
       this.maxInputsSameHash = maxInputsSameHash;
     }
+
+    public int getTx0CheckThreads() {
+      return tx0CheckThreads;
+    }
+
+    public void setTx0CheckThreads(int tx0CheckThreads) {
+      this.tx0CheckThreads = tx0CheckThreads;
+    }
+
+    public int getTx0CheckQueueSize() {
+      return tx0CheckQueueSize;
+    }
+
+    public void setTx0CheckQueueSize(int tx0CheckQueueSize) {
+      this.tx0CheckQueueSize = tx0CheckQueueSize;
+    }
   }
 
   public static class RegisterOutputConfig {
@@ -171,6 +261,8 @@ public class WhirlpoolServerConfig {
 
   public static class SigningConfig {
     private int timeout;
+    private int verifierThreads;
+    private int verifierQueueSize;
 
     public int getTimeout() {
       return timeout;
@@ -179,6 +271,22 @@ public class WhirlpoolServerConfig {
     public void setTimeout(int timeout) {
       this.timeout = timeout;
     }
+
+    public int getVerifierThreads() {
+      return verifierThreads;
+    }
+
+    public void setVerifierThreads(int verifierThreads) {
+      this.verifierThreads = verifierThreads;
+    }
+
+    public int getVerifierQueueSize() {
+      return verifierQueueSize;
+    }
+
+    public void setVerifierQueueSize(int verifierQueueSize) {
+      this.verifierQueueSize = verifierQueueSize;
+    }
   }
 
   public static class RevealOutputConfig {
@@ -193,6 +301,39 @@ public class WhirlpoolServerConfig {
     }
   }
 
+  public static class MixConfig {
+    private int maxInFlight;
+
+    public int getMaxInFlight() {
+      return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+      this.maxInFlight = maxInFlight;
+    }
+  }
+
+  public static class BroadcastConfig {
+    private int timeout;
+    private int retries;
+
+    public int getTimeout() {
+      return timeout;
+    }
+
+    public void setTimeout(int timeout) {
+      this.timeout = timeout;
+    }
+
+    public int getRetries() {
+      return retries;
+    }
+
+    public void setRetries(int retries) {
+      this.retries = retries;
+    }
+  }
+
   public static class BanConfig {
     private int blames;
 
@@ -238,6 +379,150 @@ public class WhirlpoolServerConfig {
     }
   }
 
+  public static class JournalConfig {
+    private boolean enabled;
+    private String directory;
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public String getDirectory() {
+      return directory;
+    }
+
+    public void setDirectory(String directory) {
+      this.directory = directory;
+    }
+  }
+
+  public static class KeyPairPoolConfig {
+    private int size;
+
+    public int getSize() {
+      return size;
+    }
+
+    public void setSize(int size) {
+      this.size = size;
+    }
+  }
+
+  public static class WebSocketExecutorConfig {
+    private int threads;
+    private int queueSize;
+    private int userQueueSize;
+
+    public int getThreads() {
+      return threads;
+    }
+
+    public void setThreads(int threads) {
+      this.threads = threads;
+    }
+
+    public int getQueueSize() {
+      return queueSize;
+    }
+
+    public void setQueueSize(int queueSize) {
+      this.queueSize = queueSize;
+    }
+
+    public int getUserQueueSize() {
+      return userQueueSize;
+    }
+
+    public void setUserQueueSize(int userQueueSize) {
+      this.userQueueSize = userQueueSize;
+    }
+  }
+
+  public static class CacheConfig {
+    private long maxSize;
+    private long positiveTtl;
+    private long negativeTtl;
+
+    public long getMaxSize() {
+      return maxSize;
+    }
+
+    public void setMaxSize(long maxSize) {
+      this.maxSize = maxSize;
+    }
+
+    public long getPositiveTtl() {
+      return positiveTtl;
+    }
+
+    public void setPositiveTtl(long positiveTtl) {
+      this.positiveTtl = positiveTtl;
+    }
+
+    public long getNegativeTtl() {
+      return negativeTtl;
+    }
+
+    public void setNegativeTtl(long negativeTtl) {
+      this.negativeTtl = negativeTtl;
+    }
+  }
+
+  public static class TxStoreConfig {
+    private boolean enabled;
+    private String directory;
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public String getDirectory() {
+      return directory;
+    }
+
+    public void setDirectory(String directory) {
+      this.directory = directory;
+    }
+  }
+
+  public static class ZmqConfig {
+    private boolean enabled;
+    private String hashblock;
+    private String rawtx;
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public String getHashblock() {
+      return hashblock;
+    }
+
+    public void setHashblock(String hashblock) {
+      this.hashblock = hashblock;
+    }
+
+    public String getRawtx() {
+      return rawtx;
+    }
+
+    public void setRawtx(String rawtx) {
+      this.rawtx = rawtx;
+    }
+  }
+
   public static class PoolConfig {
     private String id;
     private long denomination;
@@ -338,6 +623,11 @@ public class WhirlpoolServerConfig {
     @NotEmpty private String user;
     private String password;
     private boolean mockTxBroadcast;
+    private int maxConnections;
+    private int connectTimeout;
+    private int readTimeout;
+    private RpcNodeConfig[] readNodes = new RpcNodeConfig[0]; // additional nodes for reads
+    private int ejectDuration;
 
     public String getProtocol() {
       return protocol;
@@ -386,6 +676,94 @@ public class WhirlpoolServerConfig {
     public void setMockTxBroadcast(boolean mockTxBroadcast) {
       this.mockTxBroadcast = mockTxBroadcast;
     }
+
+    public int getMaxConnections() {
+      return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+      this.maxConnections = maxConnections;
+    }
+
+    public int getConnectTimeout() {
+      return connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeout) {
+      this.connectTimeout = connectTimeout;
+    }
+
+    public int getReadTimeout() {
+      return readTimeout;
+    }
+
+    public void setReadTimeout(int readTimeout) {
+      this.readTimeout = readTimeout;
+    }
+
+    public RpcNodeConfig[] getReadNodes() {
+      return readNodes;
+    }
+
+    public void setReadNodes(RpcNodeConfig[] readNodes) {
+      this.readNodes = readNodes;
+    }
+
+    public int getEjectDuration() {
+      return ejectDuration;
+    }
+
+    public void setEjectDuration(int ejectDuration) {
+      this.ejectDuration = ejectDuration;
+    }
+  }
+
+  public static class RpcNodeConfig {
+    @NotEmpty private String protocol;
+    @NotEmpty private String host;
+    @NotEmpty private int port;
+    @NotEmpty private String user;
+    private String password;
+
+    public String getProtocol() {
+      return protocol;
+    }
+
+    public void setProtocol(String protocol) {
+      this.protocol = protocol;
+    }
+
+    public String getHost() {
+      return host;
+    }
+
+    public void setHost(String host) {
+      this.host = host;
+    }
+
+    public int getPort() {
+      return port;
+    }
+
+    public void setPort(int port) {
+      this.port = port;
+    }
+
+    public String getUser() {
+      return user;
+    }
+
+    public void setUser(String user) {
+      this.user = user;
+    }
+
+    public String getPassword() {
+      return password;
+    }
+
+    public void setPassword(String password) {
+      this.password = password;
+    }
   }
 
   public static class SamouraiFeeConfig {
@@ -415,7 +793,25 @@ public class WhirlpoolServerConfig {
     configInfo.put("testMode", String.valueOf(testMode));
     configInfo.put(
         "rpcClient",
-        rpcClient.getHost() + ":" + rpcClient.getPort() + "," + (testnet ? "testnet" : "mainnet"));
+        rpcClient.getHost()
+            + ":"
+            + rpcClient.getPort()
+            + ","
+            + (testnet ? "testnet" : "mainnet")
+            + ", maxConnections="
+            + rpcClient.getMaxConnections()
+            + ", connectTimeout="
+            + rpcClient.getConnectTimeout()
+            + "s, readTimeout="
+            + rpcClient.getReadTimeout()
+            + "s, ejectDuration="
+            + rpcClient.getEjectDuration()
+            + "s");
+    for (int i = 0; i < rpcClient.getReadNodes().length; i++) {
+      RpcNodeConfig readNode = rpcClient.getReadNodes()[i];
+      configInfo.put(
+          "rpcClient.readNodes[" + i + "]", readNode.getHost() + ":" + readNode.getPort());
+    }
     configInfo.put("protocolVersion", WhirlpoolProtocol.PROTOCOL_VERSION);
 
     configInfo.put(
@@ -435,6 +831,12 @@ public class WhirlpoolServerConfig {
             + registerInput.minConfirmationsLiquidity
             + ", mustMix="
             + registerInput.minConfirmationsMustMix);
+    configInfo.put(
+        "registerInput.tx0Check",
+        "threads="
+            + registerInput.tx0CheckThreads
+            + ", queueSize="
+            + registerInput.tx0CheckQueueSize);
 
     String timeoutInfo =
         "registerOutput="
@@ -442,10 +844,41 @@ public class WhirlpoolServerConfig {
             + ", signing="
             + String.valueOf(signing.timeout)
             + ", revealOutput="
-            + String.valueOf(revealOutput.timeout);
+            + String.valueOf(revealOutput.timeout)
+            + ", broadcast="
+            + String.valueOf(broadcast.timeout)
+            + " (retries="
+            + String.valueOf(broadcast.retries)
+            + ")";
     configInfo.put("timeouts", timeoutInfo);
+    configInfo.put(
+        "signing.verifier",
+        "threads=" + signing.verifierThreads + ", queueSize=" + signing.verifierQueueSize);
+    configInfo.put("mix.maxInFlight", String.valueOf(mix.maxInFlight));
     configInfo.put("export.mixs", export.mixs.directory + " -> " + export.mixs.filename);
     configInfo.put("ban.blames", String.valueOf(ban.blames));
+    configInfo.put("keyPairPool.size", String.valueOf(keyPairPool.size));
+    configInfo.put("journal", journal.enabled ? journal.directory : "disabled");
+    configInfo.put("txStore", txStore.enabled ? txStore.directory : "disabled");
+    configInfo.put(
+        "cache",
+        "maxSize="
+            + cache.maxSize
+            + ", positiveTtl="
+            + cache.positiveTtl
+            + "s, negativeTtl="
+            + cache.negativeTtl
+            + "s");
+    configInfo.put(
+        "websocketExecutor",
+        "threads="
+            + websocketExecutor.threads
+            + ", queueSize="
+            + websocketExecutor.queueSize
+            + ", userQueueSize="
+            + websocketExecutor.userQueueSize);
+    configInfo.put(
+        "zmq", zmq.enabled ? "hashblock=" + zmq.hashblock + ", rawtx=" + zmq.rawtx : "disabled");
     for (PoolConfig poolConfig : pools) {
       String poolInfo = "denomination=" + String.valueOf(poolConfig.denomination);
       poolInfo +=
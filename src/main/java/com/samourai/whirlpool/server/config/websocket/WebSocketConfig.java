@@ -2,6 +2,7 @@ package com.samourai.whirlpool.server.config.websocket;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.samourai.whirlpool.protocol.WhirlpoolProtocol;
+import com.samourai.whirlpool.server.services.PoolStatusService;
 import com.samourai.whirlpool.server.services.WebSocketSessionService;
 import java.lang.invoke.MethodHandles;
 import java.util.List;
@@ -83,7 +84,8 @@ public class WebSocketConfig extends WebSocketMessageBrokerConfigurationSupport
 
   @Override
   public void configureMessageBroker(MessageBrokerRegistry registry) {
-    registry.enableSimpleBroker(whirlpoolProtocol.SOCKET_SUBSCRIBE_USER_REPLY);
+    registry.enableSimpleBroker(
+        whirlpoolProtocol.SOCKET_SUBSCRIBE_USER_REPLY, PoolStatusService.TOPIC_POOL_STATUS);
     registry.setUserDestinationPrefix(whirlpoolProtocol.SOCKET_SUBSCRIBE_USER_PRIVATE);
   }
 
@@ -123,7 +125,7 @@ public class WebSocketConfig extends WebSocketMessageBrokerConfigurationSupport
 
   @Bean
   @Override
-  public org.springframework.web.socket.WebSocketHandler subProtocolWebSocketHandler() {
+  public WebSocketHandler subProtocolWebSocketHandler() {
     return getWebSocketHandler();
   }
 
@@ -4,9 +4,8 @@ import com.samourai.whirlpool.protocol.WhirlpoolProtocol;
 import com.samourai.whirlpool.protocol.rest.PoolInfo;
 import com.samourai.whirlpool.protocol.rest.PoolsResponse;
 import com.samourai.whirlpool.protocol.rest.RestErrorResponse;
-import com.samourai.whirlpool.server.beans.Mix;
-import com.samourai.whirlpool.server.beans.Pool;
 import com.samourai.whirlpool.server.services.PoolService;
+import com.samourai.whirlpool.server.services.PoolStatusService;
 import java.lang.invoke.MethodHandles;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,10 +21,12 @@ public class PoolsController extends AbstractRestController {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
   private PoolService poolService;
+  private PoolStatusService poolStatusService;
 
   @Autowired
-  public PoolsController(PoolService poolService) {
+  public PoolsController(PoolService poolService, PoolStatusService poolStatusService) {
     this.poolService = poolService;
+    this.poolStatusService = poolStatusService;
   }
 
   @RequestMapping(value = WhirlpoolProtocol.ENDPOINT_POOLS, method = RequestMethod.GET)
@@ -34,36 +35,12 @@ public class PoolsController extends AbstractRestController {
         poolService
             .getPools()
             .parallelStream()
-            .map(pool -> computePoolInfo(pool))
+            .map(pool -> poolStatusService.computePoolInfo(pool))
             .toArray((i) -> new PoolInfo[i]);
     PoolsResponse poolsResponse = new PoolsResponse(pools);
     return poolsResponse;
   }
 
-  private PoolInfo computePoolInfo(Pool pool) {
-    Mix currentMix = pool.getCurrentMix();
-
-    int nbRegistered =
-        currentMix.getNbConfirmingInputs()
-            + pool.getMustMixQueue().getSize()
-            + pool.getLiquidityQueue().getSize()
-            + pool.getUnconfirmedQueue().getSize();
-    int mixNbConfirmed = currentMix.getNbInputs();
-    PoolInfo poolInfo =
-        new PoolInfo(
-            pool.getPoolId(),
-            pool.getDenomination(),
-            pool.getMinerFeeMin(),
-            pool.getMinerFeeMax(),
-            pool.getMinAnonymitySet(),
-            nbRegistered,
-            currentMix.getTargetAnonymitySet(),
-            currentMix.getMixStatus(),
-            currentMix.getElapsedTime(),
-            mixNbConfirmed);
-    return poolInfo;
-  }
-
   @ExceptionHandler
   public ResponseEntity<RestErrorResponse> handleException(Exception exception) {
     return super.handleException(exception);
@@ -3,18 +3,30 @@ package com.samourai.whirlpool.server.controllers.web;
 import com.samourai.whirlpool.protocol.WhirlpoolProtocol;
 import com.samourai.whirlpool.protocol.websocket.notifications.MixStatus;
 import com.samourai.whirlpool.server.beans.Mix;
+import com.samourai.whirlpool.server.services.BroadcastService;
+import com.samourai.whirlpool.server.services.CacheService;
+import com.samourai.whirlpool.server.services.ChainTipService;
+import com.samourai.whirlpool.server.services.JournalService;
+import com.samourai.whirlpool.server.services.KeyPairPoolService;
 import com.samourai.whirlpool.server.services.MixLimitsService;
 import com.samourai.whirlpool.server.services.MixService;
 import com.samourai.whirlpool.server.services.PoolService;
+import com.samourai.whirlpool.server.services.TaskService;
+import com.samourai.whirlpool.server.services.TxStoreService;
+import com.samourai.whirlpool.server.services.ZmqService;
+import com.samourai.whirlpool.server.services.rpc.RpcClientService;
+import com.samourai.whirlpool.server.utils.BoundedExecutor;
 import java.lang.invoke.MethodHandles;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -28,13 +40,51 @@ public class StatusWebController {
   private PoolService poolService;
   private MixService mixService;
   private MixLimitsService mixLimitsService;
+  private KeyPairPoolService keyPairPoolService;
+  private BroadcastService broadcastService;
+  private JournalService journalService;
+  private TaskService taskService;
+  private BoundedExecutor websocketExecutor;
+  private BoundedExecutor signingVerifierExecutor;
+  private BoundedExecutor tx0CheckExecutor;
+  private ChainTipService chainTipService;
+  private ZmqService zmqService;
+  private TxStoreService txStoreService;
+  private CacheService cacheService;
+  private RpcClientService rpcClientService;
 
   @Autowired
   public StatusWebController(
-      PoolService poolService, MixService mixService, MixLimitsService mixLimitsService) {
+      PoolService poolService,
+      MixService mixService,
+      MixLimitsService mixLimitsService,
+      KeyPairPoolService keyPairPoolService,
+      BroadcastService broadcastService,
+      JournalService journalService,
+      TaskService taskService,
+      @Qualifier("websocketExecutor") BoundedExecutor websocketExecutor,
+      @Qualifier("signingVerifierExecutor") BoundedExecutor signingVerifierExecutor,
+      @Qualifier("tx0CheckExecutor") BoundedExecutor tx0CheckExecutor,
+      ChainTipService chainTipService,
+      ZmqService zmqService,
+      TxStoreService txStoreService,
+      CacheService cacheService,
+      RpcClientService rpcClientService) {
     this.poolService = poolService;
     this.mixService = mixService;
     this.mixLimitsService = mixLimitsService;
+    this.keyPairPoolService = keyPairPoolService;
+    this.broadcastService = broadcastService;
+    this.journalService = journalService;
+    this.taskService = taskService;
+    this.websocketExecutor = websocketExecutor;
+    this.signingVerifierExecutor = signingVerifierExecutor;
+    this.tx0CheckExecutor = tx0CheckExecutor;
+    this.chainTipService = chainTipService;
+    this.zmqService = zmqService;
+    this.txStoreService = txStoreService;
+    this.cacheService = cacheService;
+    this.rpcClientService = rpcClientService;
   }
 
   @RequestMapping(value = ENDPOINT, method = RequestMethod.GET)
@@ -49,6 +99,12 @@ public class StatusWebController {
               poolAttributes.put("poolId", pool.getPoolId());
               poolAttributes.put("denomination", pool.getDenomination());
               poolAttributes.put("mixStatus", mix.getMixStatus());
+              // running mixs besides current mix (which may be in flight too)
+              int nbMixsInFlight = mixService.getNbMixsInFlight(pool);
+              if (pool.getMixsInFlight().contains(mix)) {
+                nbMixsInFlight--;
+              }
+              poolAttributes.put("nbMixsInFlight", nbMixsInFlight);
               poolAttributes.put("targetAnonymitySet", mix.getTargetAnonymitySet());
               poolAttributes.put("maxAnonymitySet", pool.getMaxAnonymitySet());
               poolAttributes.put("minAnonymitySet", pool.getMinAnonymitySet());
@@ -113,10 +169,95 @@ public class StatusWebController {
               pools.add(poolAttributes);
             });
     model.addAttribute("pools", pools);
+    model.addAttribute("metrics", computeMetrics());
     model.addAttribute("protocolVersion", WhirlpoolProtocol.PROTOCOL_VERSION);
     return "status";
   }
 
+  private Map<String, String> computeMetrics() {
+    Map<String, String> metrics = new LinkedHashMap<>();
+    metrics.put(
+        "keyPairPool",
+        "available="
+            + keyPairPoolService.getNbAvailable()
+            + ", taken="
+            + keyPairPoolService.getNbTaken()
+            + ", missed="
+            + keyPairPoolService.getNbMissed()
+            + ", refill="
+            + keyPairPoolService.getRefillLatencies());
+    metrics.put(
+        "broadcast",
+        "queued="
+            + broadcastService.getQueueSize()
+            + ", success="
+            + broadcastService.getNbSuccess()
+            + ", failed="
+            + broadcastService.getNbFailed());
+    metrics.put(
+        "timer",
+        "timers="
+            + taskService.getNbTimers()
+            + ", tickLag="
+            + taskService.getTickLag()
+            + "ms, maxTickLag="
+            + taskService.getMaxTickLag()
+            + "ms");
+    metrics.put(
+        "websocketExecutor",
+        computeExecutorMetrics(websocketExecutor) + ", keys=" + websocketExecutor.getNbKeys());
+    metrics.put("signingVerifierExecutor", computeExecutorMetrics(signingVerifierExecutor));
+    metrics.put("tx0CheckExecutor", computeExecutorMetrics(tx0CheckExecutor));
+    metrics.put(
+        "unconfirmedPromotion",
+        "blocks="
+            + chainTipService.getNbBlocks()
+            + ", promoted="
+            + chainTipService.getNbPromoted()
+            + ", lastLatency="
+            + chainTipService.getLastPromotionLatency()
+            + "ms");
+    for (Map.Entry<String, String> rpcStats : rpcClientService.getStats().entrySet()) {
+      metrics.put("rpc[" + rpcStats.getKey() + "]", rpcStats.getValue());
+    }
+    for (Map.Entry<String, String> cacheStats : cacheService.getStats().entrySet()) {
+      metrics.put("cache[" + cacheStats.getKey() + "]", cacheStats.getValue());
+    }
+    if (txStoreService.isEnabled()) {
+      metrics.put(
+          "txStore",
+          "size="
+              + txStoreService.getSize()
+              + ", hits="
+              + txStoreService.getNbHits()
+              + ", misses="
+              + txStoreService.getNbMisses());
+    }
+    if (zmqService.isSubscribed()) {
+      metrics.put("zmq", "blocks=" + zmqService.getNbBlocks() + ", txs=" + zmqService.getNbTxs());
+    }
+    if (journalService.isEnabled()) {
+      metrics.put("journal", journalService.getStats().toString());
+    }
+    return metrics;
+  }
+
+  private String computeExecutorMetrics(BoundedExecutor executor) {
+    return "active="
+        + executor.getActiveCount()
+        + ", queued="
+        + executor.getQueueSize()
+        + ", completed="
+        + executor.getNbCompleted()
+        + ", rejected="
+        + executor.getNbRejected()
+        + ", latency="
+        + executor.getAverageLatency()
+        + "ms (max="
+        + executor.getMaxLatency()
+        + "ms)";
+  }
+
   private StatusStep computeStep(MixStatus mixStatus, Map<MixStatus, Timestamp> timeStatus) {
     boolean isActive =
         (!timeStatus.isEmpty()
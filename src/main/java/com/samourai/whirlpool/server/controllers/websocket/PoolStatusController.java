@@ -0,0 +1,46 @@
+package com.samourai.whirlpool.server.controllers.websocket;
+
+import com.samourai.whirlpool.protocol.rest.PoolInfo;
+import com.samourai.whirlpool.server.beans.Pool;
+import com.samourai.whirlpool.server.services.PoolService;
+import com.samourai.whirlpool.server.services.PoolStatusService;
+import com.samourai.whirlpool.server.services.WebSocketService;
+import java.lang.invoke.MethodHandles;
+import java.security.Principal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
+import org.springframework.stereotype.Controller;
+
+@Controller
+public class PoolStatusController extends AbstractWebSocketController {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private PoolService poolService;
+  private PoolStatusService poolStatusService;
+
+  @Autowired
+  public PoolStatusController(
+      PoolService poolService,
+      PoolStatusService poolStatusService,
+      WebSocketService webSocketService) {
+    super(webSocketService);
+    this.poolService = poolService;
+    this.poolStatusService = poolStatusService;
+  }
+
+  /** Reply full pool status to subscriber, next changes will be published on topic. */
+  @SubscribeMapping(PoolStatusService.TOPIC_POOL_STATUS + "{poolId}")
+  public PoolInfo subscribePoolStatus(@DestinationVariable String poolId) throws Exception {
+    Pool pool = poolService.getPool(poolId);
+    return poolStatusService.computePoolInfo(pool);
+  }
+
+  @MessageExceptionHandler
+  public void handleException(Exception exception, Principal principal) {
+    super.handleException(exception, principal);
+  }
+}
@@ -4,12 +4,12 @@ import com.samourai.whirlpool.protocol.WhirlpoolProtocol;
 import com.samourai.whirlpool.protocol.websocket.messages.SubscribePoolResponse;
 import com.samourai.whirlpool.server.services.PoolService;
 import com.samourai.whirlpool.server.services.WebSocketService;
+import com.samourai.whirlpool.server.services.WebSocketSessionService;
 import java.lang.invoke.MethodHandles;
 import java.security.Principal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.task.TaskExecutor;
 import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
 import org.springframework.messaging.simp.annotation.SubscribeMapping;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
@@ -21,14 +21,16 @@ public class SubscribePoolController extends AbstractWebSocketController {
   private static final int SUBSCRIBE_RESPONSE_DELAY = 1000;
 
   private PoolService poolService;
-  private TaskExecutor taskExecutor;
+  private WebSocketSessionService webSocketSessionService;
 
   @Autowired
   public SubscribePoolController(
-      PoolService poolService, WebSocketService webSocketService, TaskExecutor taskExecutor) {
+      PoolService poolService,
+      WebSocketService webSocketService,
+      WebSocketSessionService webSocketSessionService) {
     super(webSocketService);
     this.poolService = poolService;
-    this.taskExecutor = taskExecutor;
+    this.webSocketSessionService = webSocketSessionService;
   }
 
   @SubscribeMapping(
@@ -47,18 +49,11 @@ public class SubscribePoolController extends AbstractWebSocketController {
     SubscribePoolResponse subscribePoolResponse =
         poolService.computeSubscribePoolResponse(headerPoolId);
 
-    // delay to make sure client processed subscription before sending him private response
-    taskExecutor.execute(
-        () -> {
-          synchronized (this) {
-            try {
-              wait(SUBSCRIBE_RESPONSE_DELAY);
-            } catch (InterruptedException e) {
-            }
-          }
-          // send reply
-          getWebSocketService().sendPrivate(username, subscribePoolResponse);
-        });
+    // reply as soon as client subscribed to private replies, or after SUBSCRIBE_RESPONSE_DELAY
+    webSocketSessionService.runOnReplySubscribed(
+        headers.getSessionId(),
+        () -> getWebSocketService().sendPrivate(username, subscribePoolResponse),
+        SUBSCRIBE_RESPONSE_DELAY);
   }
 
   private String getHeaderPoolId(StompHeaderAccessor headers) {
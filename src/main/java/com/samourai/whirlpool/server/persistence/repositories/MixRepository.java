@@ -2,6 +2,7 @@ package com.samourai.whirlpool.server.persistence.repositories;
 
 import com.samourai.whirlpool.protocol.websocket.notifications.MixStatus;
 import com.samourai.whirlpool.server.persistence.to.MixTO;
+import java.util.Optional;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
@@ -12,4 +13,6 @@ public interface MixRepository extends PagingAndSortingRepository<MixTO, Long> {
 
   @Query("SELECT SUM(amountOut) from mix WHERE mixStatus=:mixStatus")
   Long sumAmountOutByMixStatus(@Param("mixStatus") MixStatus mixStatus);
+
+  Optional<MixTO> findByMixId(String mixId);
 }
@@ -55,6 +55,11 @@ public class MixTO extends EntityTO {
     this.mixLog.update(mix, this);
   }
 
+  public void setFail(FailReason failReason) {
+    this.mixStatus = MixStatus.FAIL;
+    this.failReason = failReason;
+  }
+
   public String getPoolId() {
     return poolId;
   }
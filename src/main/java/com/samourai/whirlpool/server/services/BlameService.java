@@ -22,7 +22,7 @@ public class BlameService {
   }
 
   public void blame(ConfirmedInput confirmedInput, BlameReason reason, String mixId) {
-    log.info("blameForNoSigning " + confirmedInput.getRegisteredInput().getUsername());
+    log.info("blame " + reason + ": " + confirmedInput.getRegisteredInput().getUsername());
     dbService.saveBlame(confirmedInput, reason, mixId);
   }
 
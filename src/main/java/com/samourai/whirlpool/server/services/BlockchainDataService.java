@@ -3,33 +3,80 @@ package com.samourai.whirlpool.server.services;
 import com.samourai.wallet.segwit.bech32.Bech32UtilGeneric;
 import com.samourai.whirlpool.server.beans.rpc.RpcOutWithTx;
 import com.samourai.whirlpool.server.beans.rpc.RpcTransaction;
+import com.samourai.whirlpool.server.services.rpc.RpcBlockHeaderResponse;
 import com.samourai.whirlpool.server.services.rpc.RpcClientService;
 import com.samourai.whirlpool.server.services.rpc.RpcRawTransactionResponse;
+import com.samourai.whirlpool.server.utils.SingleFlight;
 import com.samourai.whirlpool.server.utils.Utils;
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import org.bitcoinj.core.NetworkParameters;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+/**
+ * Fetches transactions from RPC. Parsed txs are cached by txid as their contents never change. Once
+ * confirmed, only confirmations of their block are refreshed (getblockheader). Once deep enough to
+ * be safe from reorgs, their block height is cached too and confirmations are derived from chain
+ * tip without RPC.
+ */
 @Service
 public class BlockchainDataService {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final String CACHE_RAW_TX = "BlockchainDataService.rawTx";
+  private static final int CONFIRMATIONS_FINAL = 6;
+
   private CryptoService cryptoService;
   private Bech32UtilGeneric bech32Util;
   private RpcClientService rpcClientService;
+  private CacheService cacheService;
+  private ChainTipService chainTipService;
+  private SingleFlight<String, Optional<RpcTransaction>> rpcTransactionLoads;
 
   public BlockchainDataService(
       CryptoService cryptoService,
       Bech32UtilGeneric bech32Util,
-      RpcClientService rpcClientService) {
+      RpcClientService rpcClientService,
+      CacheService cacheService,
+      ChainTipService chainTipService) {
     this.cryptoService = cryptoService;
     this.bech32Util = bech32Util;
     this.rpcClientService = rpcClientService;
+    this.cacheService = cacheService;
+    this.chainTipService = chainTipService;
+    this.rpcTransactionLoads = new SingleFlight<>();
   }
 
   protected Optional<RpcTransaction> getRpcTransaction(String txid) {
+    Optional<RpcTransaction> cachedTx = findFinalTransaction(txid);
+    if (cachedTx.isPresent()) {
+      return cachedTx;
+    }
+    // concurrent lookups of same txid share a single RPC query
+    return rpcTransactionLoads.get(txid, () -> fetchRpcTransaction(txid));
+  }
+
+  private Optional<RpcTransaction> fetchRpcTransaction(String txid) {
+    Optional<RpcTransaction> cachedTx = findFinalTransaction(txid);
+    if (cachedTx.isPresent()) {
+      return cachedTx;
+    }
+    CachedTransaction recentTx = findConfirmedTransaction(txid);
+    if (recentTx != null) {
+      cachedTx =
+          refreshConfirmations(txid, recentTx, rpcClientService.getBlockHeader(recentTx.blockHash));
+      if (cachedTx.isPresent()) {
+        return cachedTx;
+      }
+    }
+
     if (log.isDebugEnabled()) {
       log.debug("RPC query: getRawTransaction " + txid);
     }
@@ -38,9 +85,158 @@ public class BlockchainDataService {
       log.error("Tx not found: " + txid);
       return Optional.empty();
     }
+    RpcRawTransactionResponse rawTxResponse = queryRawTxHex.get();
+    Optional<RpcBlockHeaderResponse> header =
+        isBlockHeightMissing(rawTxResponse)
+            ? rpcClientService.getBlockHeader(rawTxResponse.getBlockHash())
+            : Optional.empty();
+    return toRpcTransaction(txid, rawTxResponse, header);
+  }
+
+  /**
+   * Fetch txs in one RPC batch, cached recent txs only with getblockheader. Block height of final
+   * txs is fetched with one getblockheader per block, in parallel. Txs not found are missing from
+   * result, RPC failures are thrown so that they are not cached as invalid inputs.
+   */
+  protected Map<String, RpcTransaction> getRpcTransactions(Collection<String> txids) {
+    Map<String, RpcTransaction> rpcTxs = new HashMap<>();
+    List<String> txidsToFetch = new ArrayList<>();
+    Map<String, CachedTransaction> recentTxs = new HashMap<>();
+    Map<String, CompletableFuture<Optional<RpcBlockHeaderResponse>>> headers = new HashMap<>();
+    for (String txid : txids) {
+      Optional<RpcTransaction> cachedTx = findFinalTransaction(txid);
+      if (cachedTx.isPresent()) {
+        rpcTxs.put(txid, cachedTx.get());
+        continue;
+      }
+      CachedTransaction recentTx = findConfirmedTransaction(txid);
+      if (recentTx != null) {
+        // one getblockheader per block
+        recentTxs.put(txid, recentTx);
+        headers.computeIfAbsent(recentTx.blockHash, rpcClientService::getBlockHeaderAsync);
+      } else {
+        txidsToFetch.add(txid);
+      }
+    }
+    for (Map.Entry<String, CachedTransaction> entry : recentTxs.entrySet()) {
+      String txid = entry.getKey();
+      CachedTransaction recentTx = entry.getValue();
+      Optional<RpcTransaction> cachedTx =
+          refreshConfirmations(txid, recentTx, headers.get(recentTx.blockHash).join());
+      if (cachedTx.isPresent()) {
+        rpcTxs.put(txid, cachedTx.get());
+      } else {
+        txidsToFetch.add(txid);
+      }
+    }
+    if (txidsToFetch.isEmpty()) {
+      return rpcTxs;
+    }
+
+    if (log.isDebugEnabled()) {
+      log.debug("RPC query: getRawTransactions " + txidsToFetch.size() + " txs");
+    }
+    Map<String, RpcRawTransactionResponse> rawTxResponses =
+        rpcClientService.getRawTransactions(txidsToFetch);
+    for (RpcRawTransactionResponse rawTxResponse : rawTxResponses.values()) {
+      if (isBlockHeightMissing(rawTxResponse)) {
+        headers.computeIfAbsent(
+            rawTxResponse.getBlockHash(), rpcClientService::getBlockHeaderAsync);
+      }
+    }
+    for (Map.Entry<String, RpcRawTransactionResponse> entry : rawTxResponses.entrySet()) {
+      RpcRawTransactionResponse rawTxResponse = entry.getValue();
+      Optional<RpcBlockHeaderResponse> header =
+          isBlockHeightMissing(rawTxResponse)
+              ? headers.get(rawTxResponse.getBlockHash()).join()
+              : Optional.empty();
+      toRpcTransaction(entry.getKey(), rawTxResponse, header)
+          .ifPresent(rpcTx -> rpcTxs.put(entry.getKey(), rpcTx));
+    }
+    if (rpcTxs.size() < txids.size()) {
+      log.error("Txs not found: " + (txids.size() - rpcTxs.size()) + "/" + txids.size());
+    }
+    return rpcTxs;
+  }
+
+  // cached tx with confirmations derived from chain tip
+  private Optional<RpcTransaction> findFinalTransaction(String txid) {
+    CachedTransaction cachedTx = cacheService.get(CACHE_RAW_TX, txid, CachedTransaction.class);
+    Integer blockHeight = chainTipService.getBlockHeight();
+    if (cachedTx == null || cachedTx.txBlockHeight == null || blockHeight == null) {
+      return Optional.empty();
+    }
+    int confirmations = blockHeight - cachedTx.txBlockHeight + 1;
+    return Optional.of(new RpcTransaction(cachedTx.tx, confirmations));
+  }
+
+  // cached tx with known block, its confirmations can be refreshed without fetching it again
+  private CachedTransaction findConfirmedTransaction(String txid) {
+    CachedTransaction cachedTx = cacheService.get(CACHE_RAW_TX, txid, CachedTransaction.class);
+    return cachedTx != null && cachedTx.blockHash != null ? cachedTx : null;
+  }
+
+  /** @return cached tx with confirmations of its block, or empty when it should be fetched again */
+  private Optional<RpcTransaction> refreshConfirmations(
+      String txid, CachedTransaction cachedTx, Optional<RpcBlockHeaderResponse> header) {
+    if (!header.isPresent() || header.get().getConfirmations() <= 0) {
+      // block unknown or not in main chain anymore (reorg)
+      return Optional.empty();
+    }
+    RpcTransaction rpcTx = new RpcTransaction(cachedTx.tx, header.get().getConfirmations());
+    Integer txBlockHeight =
+        rpcTx.getConfirmations() >= CONFIRMATIONS_FINAL ? header.get().getHeight() : null;
+    cacheService.put(
+        CACHE_RAW_TX, txid, new CachedTransaction(rpcTx, cachedTx.blockHash, txBlockHeight));
+    return Optional.of(rpcTx);
+  }
+
+  // final tx replied without block height (bitcoind verbose getrawtransaction)
+  private boolean isBlockHeightMissing(RpcRawTransactionResponse rawTxResponse) {
+    return rawTxResponse.getBlockHash() != null
+        && rawTxResponse.getBlockHeight() == null
+        && rawTxResponse.getConfirmations() >= CONFIRMATIONS_FINAL;
+  }
+
+  /** @param header block of tx when its height is missing from rawTxResponse */
+  private Optional<RpcTransaction> toRpcTransaction(
+      String txid,
+      RpcRawTransactionResponse rawTxResponse,
+      Optional<RpcBlockHeaderResponse> header) {
+    CachedTransaction cachedTx = cacheService.get(CACHE_RAW_TX, txid, CachedTransaction.class);
+    RpcTransaction rpcTx;
+    if (cachedTx != null) {
+      // already parsed, only confirmations changed
+      rpcTx = new RpcTransaction(cachedTx.tx, rawTxResponse.getConfirmations());
+    } else {
+      Optional<RpcTransaction> parsedTx = parseRpcTransaction(rawTxResponse);
+      if (!parsedTx.isPresent()) {
+        return Optional.empty();
+      }
+      rpcTx = parsedTx.get();
+    }
+
+    // block height from same node as confirmations, not from chain tip polled separately
+    String blockHash = rawTxResponse.getBlockHash();
+    Integer txBlockHeight = null;
+    if (blockHash != null && rpcTx.getConfirmations() >= CONFIRMATIONS_FINAL) {
+      txBlockHeight = rawTxResponse.getBlockHeight();
+      if (txBlockHeight == null) {
+        txBlockHeight =
+            header
+                .filter(h -> h.getConfirmations() > 0)
+                .map(RpcBlockHeaderResponse::getHeight)
+                .orElse(null);
+      }
+    }
+    cacheService.put(CACHE_RAW_TX, txid, new CachedTransaction(rpcTx, blockHash, txBlockHeight));
+    return Optional.of(rpcTx);
+  }
+
+  private Optional<RpcTransaction> parseRpcTransaction(RpcRawTransactionResponse rawTxResponse) {
     try {
       NetworkParameters params = cryptoService.getNetworkParameters();
-      RpcTransaction rpcTx = new RpcTransaction(queryRawTxHex.get(), params, bech32Util);
+      RpcTransaction rpcTx = new RpcTransaction(rawTxResponse, params, bech32Util);
       return Optional.of(rpcTx);
     } catch (Exception e) {
       log.error("Unable to parse RpcRawTransactionResponse", e);
@@ -57,4 +253,16 @@ public class BlockchainDataService {
     RpcTransaction tx = txResponse.get();
     return Utils.getRpcOutWithTx(tx, index);
   }
+
+  private static class CachedTransaction {
+    private RpcTransaction tx;
+    private String blockHash; // null until confirmed
+    private Integer txBlockHeight; // null until final
+
+    CachedTransaction(RpcTransaction tx, String blockHash, Integer txBlockHeight) {
+      this.tx = tx;
+      this.blockHash = blockHash;
+      this.txBlockHeight = txBlockHeight;
+    }
+  }
 }
@@ -7,7 +7,9 @@ import com.samourai.whirlpool.server.beans.rpc.RpcOutWithTx;
 import com.samourai.whirlpool.server.beans.rpc.RpcTransaction;
 import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
 import com.samourai.whirlpool.server.exceptions.IllegalInputException;
+import com.samourai.whirlpool.server.utils.SingleFlight;
 import java.lang.invoke.MethodHandles;
+import org.bitcoinj.core.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -20,6 +22,7 @@ public class BlockchainService {
   private Tx0Service tx0Service;
   private WhirlpoolServerConfig whirlpoolServerConfig;
   private Bech32UtilGeneric bech32Util;
+  private SingleFlight<String, TxOutPoint> premixInputValidations;
 
   public BlockchainService(
       CryptoService cryptoService,
@@ -32,11 +35,30 @@ public class BlockchainService {
     this.tx0Service = tx0Service;
     this.whirlpoolServerConfig = whirlpoolServerConfig;
     this.bech32Util = bech32Util;
+    this.premixInputValidations = new SingleFlight<>();
   }
 
   public TxOutPoint validateAndGetPremixInput(
       String utxoHash, long utxoIndex, byte[] pubkeyHex, boolean liquidity, boolean testMode)
       throws IllegalInputException {
+    // concurrent validations of same input (ie: client retries) share a single validation
+    String key =
+        utxoHash
+            + ":"
+            + utxoIndex
+            + ":"
+            + Utils.HEX.encode(pubkeyHex)
+            + ":"
+            + liquidity
+            + ":"
+            + testMode;
+    return premixInputValidations.get(
+        key, () -> computePremixInput(utxoHash, utxoIndex, pubkeyHex, liquidity, testMode));
+  }
+
+  private TxOutPoint computePremixInput(
+      String utxoHash, long utxoIndex, byte[] pubkeyHex, boolean liquidity, boolean testMode)
+      throws IllegalInputException {
     RpcOutWithTx rpcOutWithTx =
         blockchainDataService
             .getRpcOutWithTx(utxoHash, utxoIndex)
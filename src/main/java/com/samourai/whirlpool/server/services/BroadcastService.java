@@ -0,0 +1,183 @@
+package com.samourai.whirlpool.server.services;
+
+import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
+import com.samourai.whirlpool.server.services.rpc.RpcClientService;
+import com.samourai.whirlpool.server.services.rpc.RpcRawTransactionResponse;
+import java.lang.invoke.MethodHandles;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.bitcoinj.core.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Broadcasts mix transactions out of the mix engine, with timeout and retries. Whole broadcast,
+ * including time spent in queue, is bounded by SIGNING timeout, as clients wait for its result.
+ */
+@Service
+public class BroadcastService {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final int QUEUE_SIZE = 50;
+  private static final long RETRY_DELAY = 2000;
+  private static final long CHECK_TIMEOUT = 5000; // reserved for final isTxKnown()
+
+  private RpcClientService rpcClientService;
+  private WhirlpoolServerConfig whirlpoolServerConfig;
+
+  private ThreadPoolExecutor broadcastExecutor; // single worker with bounded queue
+
+  private AtomicLong nbSuccess;
+  private AtomicLong nbFailed;
+
+  @Autowired
+  public BroadcastService(
+      RpcClientService rpcClientService, WhirlpoolServerConfig whirlpoolServerConfig) {
+    this.rpcClientService = rpcClientService;
+    this.whirlpoolServerConfig = whirlpoolServerConfig;
+
+    this.broadcastExecutor =
+        new ThreadPoolExecutor(
+            1,
+            1,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(QUEUE_SIZE),
+            runnable -> {
+              Thread t = new Thread(runnable, "broadcast");
+              t.setDaemon(true);
+              return t;
+            });
+    this.nbSuccess = new AtomicLong(0);
+    this.nbFailed = new AtomicLong(0);
+  }
+
+  /** Queue tx for broadcast. Returned future completes when tx was broadcast or failed. */
+  public CompletableFuture<Void> broadcast(Transaction tx) {
+    // clients wait for result from now on: time spent in queue counts
+    long deadline =
+        System.currentTimeMillis()
+            + TimeUnit.SECONDS.toMillis(whirlpoolServerConfig.getSigning().getTimeout())
+            - CHECK_TIMEOUT;
+    CompletableFuture<Void> result = new CompletableFuture<>();
+    try {
+      broadcastExecutor.execute(() -> doBroadcast(tx, deadline, result));
+    } catch (RejectedExecutionException e) {
+      log.error("broadcast queue is full, txid=" + tx.getHashAsString());
+      nbFailed.incrementAndGet();
+      result.completeExceptionally(new Exception("Broadcast queue is full"));
+    }
+    return result;
+  }
+
+  private void doBroadcast(Transaction tx, long deadline, CompletableFuture<Void> result) {
+    String txid = tx.getHashAsString();
+    long timeout = TimeUnit.SECONDS.toMillis(whirlpoolServerConfig.getBroadcast().getTimeout());
+    int maxAttempts = 1 + whirlpoolServerConfig.getBroadcast().getRetries();
+
+    Exception lastError = null;
+    for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+      if (attempt > 1 && isTxKnown(txid)) {
+        // previous attempt succeeded despite error or timeout
+        log.info("broadcast: tx already known by node, txid=" + txid);
+        lastError = null;
+        break;
+      }
+
+      long attemptTimeout = Math.min(timeout, deadline - System.currentTimeMillis());
+      if (attemptTimeout <= 0) {
+        lastError = new Exception("Broadcast timed out while queued");
+        break;
+      }
+      // async call: a timed out attempt doesn't hold a thread
+      CompletableFuture<Void> future = rpcClientService.broadcastTransactionAsync(tx);
+      try {
+        future.get(attemptTimeout, TimeUnit.MILLISECONDS);
+        lastError = null;
+        break;
+      } catch (TimeoutException e) {
+        future.cancel(false);
+        lastError = new Exception("Broadcast timed out after " + attemptTimeout + "ms");
+      } catch (ExecutionException e) {
+        lastError = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+      } catch (InterruptedException e) {
+        future.cancel(false);
+        Thread.currentThread().interrupt();
+        lastError = e;
+        break;
+      }
+
+      log.warn(
+          "broadcast attempt "
+              + attempt
+              + "/"
+              + maxAttempts
+              + " failed for txid="
+              + txid
+              + ": "
+              + lastError.getMessage());
+      if (attempt < maxAttempts) {
+        if (System.currentTimeMillis() + RETRY_DELAY >= deadline) {
+          log.warn("broadcast: no time left for retrying, txid=" + txid);
+          break;
+        }
+        try {
+          Thread.sleep(RETRY_DELAY);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
+    }
+
+    if (lastError != null && !Thread.currentThread().isInterrupted() && isTxKnown(txid)) {
+      // last attempt succeeded despite error or timeout
+      log.info("broadcast: tx known by node after last attempt, txid=" + txid);
+      lastError = null;
+    }
+
+    if (lastError == null) {
+      nbSuccess.incrementAndGet();
+      result.complete(null);
+    } else {
+      nbFailed.incrementAndGet();
+      result.completeExceptionally(lastError);
+    }
+  }
+
+  private boolean isTxKnown(String txid) {
+    CompletableFuture<Optional<RpcRawTransactionResponse>> future =
+        rpcClientService.getRawTransactionAsync(txid);
+    try {
+      return future.get(CHECK_TIMEOUT, TimeUnit.MILLISECONDS).isPresent();
+    } catch (InterruptedException e) {
+      future.cancel(false);
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (Exception e) {
+      future.cancel(false);
+      log.error("broadcast: unable to check tx, txid=" + txid, e);
+      return false;
+    }
+  }
+
+  public int getQueueSize() {
+    return broadcastExecutor.getQueue().size() + broadcastExecutor.getActiveCount();
+  }
+
+  public long getNbSuccess() {
+    return nbSuccess.get();
+  }
+
+  public long getNbFailed() {
+    return nbFailed.get();
+  }
+}
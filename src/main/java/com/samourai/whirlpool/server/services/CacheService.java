@@ -1,37 +1,91 @@
 package com.samourai.whirlpool.server.services;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.samourai.whirlpool.server.beans.CachedResult;
+import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
+import com.samourai.whirlpool.server.utils.SingleFlight;
 import java.lang.invoke.MethodHandles;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.Cache;
-import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
 
+/**
+ * Named caches, bounded in size (frequency-based eviction). Entries expire after positiveTtl, or
+ * negativeTtl for failed CachedResult.
+ */
 @Service
 public class CacheService {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
-  private CacheManager cacheManager;
+  private WhirlpoolServerConfig.CacheConfig cacheConfig;
+  private Map<String, ManagedCache> caches; // by cacheName
+  private Set<String> confirmationSensitiveCaches;
 
-  public CacheService(CacheManager cacheManager) {
-    this.cacheManager = cacheManager;
+  public CacheService(WhirlpoolServerConfig whirlpoolServerConfig) {
+    this.cacheConfig = whirlpoolServerConfig.getCache();
+    this.caches = new ConcurrentHashMap<>();
+    this.confirmationSensitiveCaches = ConcurrentHashMap.newKeySet();
+  }
+
+  /**
+   * Cache depends on chain state: its failed CachedResult (ie: not enough confirmations) should be
+   * cleared on each new block.
+   */
+  public void setConfirmationSensitive(String cacheName) {
+    confirmationSensitiveCaches.add(cacheName);
+  }
+
+  public void onNewBlock() {
+    confirmationSensitiveCaches.forEach(cacheName -> this.clearNegative(cacheName));
   }
 
   public <T> T getOrPut(
       String cacheName, String cacheKey, Class<T> typeResult, Function<Void, T> get) {
-    Cache cache = cacheManager.getCache(cacheName);
-    T cachedResult = cache.get(cacheKey, typeResult);
+    ManagedCache managedCache = getCache(cacheName);
+    T cachedResult = typeResult.cast(managedCache.cache.getIfPresent(cacheKey));
     if (cachedResult == null) {
-      cachedResult = get.apply(null);
-      cache.put(cacheKey, cachedResult);
-      if (log.isDebugEnabled()) {
-        log.debug("cache.put: " + cacheName + " -> " + cacheKey);
-      }
+      // not loaded through cache.get(key, loader): loader may access same cache
+      cachedResult =
+          (T)
+              managedCache.loads.get(
+                  cacheKey,
+                  () -> {
+                    // may have been loaded by a flight completed meanwhile (not counted as a miss)
+                    T result =
+                        typeResult.cast(managedCache.cache.policy().getIfPresentQuietly(cacheKey));
+                    if (result == null) {
+                      long start = System.nanoTime();
+                      result = get.apply(null);
+                      managedCache.onLoad(System.nanoTime() - start);
+                      put(cacheName, cacheKey, result);
+                    }
+                    return result;
+                  });
     }
     return cachedResult;
   }
 
+  public <T> T get(String cacheName, String cacheKey, Class<T> typeResult) {
+    return typeResult.cast(getCache(cacheName).cache.getIfPresent(cacheKey));
+  }
+
+  public void put(String cacheName, String cacheKey, Object value) {
+    getCache(cacheName).cache.put(cacheKey, value);
+    if (log.isDebugEnabled()) {
+      log.debug("cache.put: " + cacheName + " -> " + cacheKey);
+    }
+  }
+
   public <T, E extends Exception> T getOrPutCachedResult(
       String cacheName, String cacheKey, Function<Void, CachedResult<T, E>> get) throws E {
     CachedResult<T, E> cachedResult =
@@ -43,10 +97,101 @@ public class CacheService {
     if (log.isDebugEnabled()) {
       log.debug("cache.clear: " + cacheName);
     }
-    cacheManager.getCache(cacheName).clear();
+    getCache(cacheName).cache.invalidateAll();
+  }
+
+  private void clearNegative(String cacheName) {
+    if (log.isDebugEnabled()) {
+      log.debug("cache.clearNegative: " + cacheName);
+    }
+    getCache(cacheName).cache.asMap().values().removeIf(CacheService::isNegative);
   }
 
   public void _reset() {
-    cacheManager.getCacheNames().forEach(cacheName -> this.clear(cacheName));
+    caches.keySet().forEach(cacheName -> this.clear(cacheName));
+  }
+
+  private ManagedCache getCache(String cacheName) {
+    return caches.computeIfAbsent(cacheName, name -> new ManagedCache(newCache()));
+  }
+
+  private Cache<String, Object> newCache() {
+    long positiveTtl = TimeUnit.SECONDS.toNanos(cacheConfig.getPositiveTtl());
+    long negativeTtl = TimeUnit.SECONDS.toNanos(cacheConfig.getNegativeTtl());
+    return Caffeine.newBuilder()
+        .maximumSize(cacheConfig.getMaxSize())
+        .expireAfter(
+            new Expiry<String, Object>() {
+              @Override
+              public long expireAfterCreate(String key, Object value, long currentTime) {
+                return isNegative(value) ? negativeTtl : positiveTtl;
+              }
+
+              @Override
+              public long expireAfterUpdate(
+                  String key, Object value, long currentTime, long currentDuration) {
+                return isNegative(value) ? negativeTtl : positiveTtl;
+              }
+
+              @Override
+              public long expireAfterRead(
+                  String key, Object value, long currentTime, long currentDuration) {
+                return currentDuration;
+              }
+            })
+        .recordStats()
+        .build();
+  }
+
+  private static boolean isNegative(Object value) {
+    return value instanceof CachedResult && ((CachedResult) value).isException();
+  }
+
+  /** Statistics by cacheName. */
+  public Map<String, String> getStats() {
+    Map<String, String> stats = new LinkedHashMap<>();
+    for (Map.Entry<String, ManagedCache> entry : new TreeMap<>(caches).entrySet()) {
+      ManagedCache managedCache = entry.getValue();
+      CacheStats cacheStats = managedCache.cache.stats();
+      stats.put(
+          entry.getKey(),
+          "size="
+              + managedCache.cache.estimatedSize()
+              + ", hits="
+              + cacheStats.hitCount()
+              + ", misses="
+              + cacheStats.missCount()
+              + ", evictions="
+              + cacheStats.evictionCount()
+              + ", avgLoadTime="
+              + TimeUnit.NANOSECONDS.toMillis(managedCache.computeAverageLoadTime())
+              + "ms, coalesced="
+              + managedCache.loads.getNbCoalesced());
+    }
+    return stats;
+  }
+
+  private static class ManagedCache {
+    private Cache<String, Object> cache;
+    private SingleFlight<String, Object> loads; // concurrent misses share a single load
+    private AtomicLong nbLoads;
+    private AtomicLong totalLoadTime; // ns
+
+    ManagedCache(Cache<String, Object> cache) {
+      this.cache = cache;
+      this.loads = new SingleFlight<>();
+      this.nbLoads = new AtomicLong(0);
+      this.totalLoadTime = new AtomicLong(0);
+    }
+
+    void onLoad(long loadTime) {
+      nbLoads.incrementAndGet();
+      totalLoadTime.addAndGet(loadTime);
+    }
+
+    long computeAverageLoadTime() {
+      long loads = nbLoads.get();
+      return loads > 0 ? totalLoadTime.get() / loads : 0;
+    }
   }
 }
@@ -0,0 +1,187 @@
+package com.samourai.whirlpool.server.services;
+
+import com.samourai.whirlpool.server.beans.Pool;
+import com.samourai.whirlpool.server.beans.RegisteredInput;
+import com.samourai.whirlpool.server.services.rpc.RpcClientService;
+import com.samourai.whirlpool.server.services.rpc.RpcRawTransactionResponse;
+import java.lang.invoke.MethodHandles;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Tracks chain tip and refreshes confirmations of unconfirmed inputs on each new block, so that
+ * they are promoted to mix or queue as soon as they are confirmed.
+ */
+@Service
+public class ChainTipService {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final long POLL_DELAY = 10000;
+
+  private RpcClientService rpcClientService;
+  private PoolService poolService;
+
+  private String bestBlockHash;
+  private volatile Integer blockHeight;
+  private final Object pollLock;
+  private boolean checkRequested;
+  private AtomicLong nbBlocks;
+  private AtomicLong nbPromoted;
+  private volatile long lastPromotionLatency;
+  private Thread pollThread;
+  private volatile boolean running;
+
+  @Autowired
+  public ChainTipService(RpcClientService rpcClientService, PoolService poolService) {
+    this.rpcClientService = rpcClientService;
+    this.poolService = poolService;
+    this.bestBlockHash = null;
+    this.blockHeight = null;
+    this.pollLock = new Object();
+    this.checkRequested = false;
+    this.nbBlocks = new AtomicLong(0);
+    this.nbPromoted = new AtomicLong(0);
+    this.lastPromotionLatency = 0;
+    this.pollThread = null;
+    this.running = false;
+  }
+
+  @PostConstruct
+  public void start() {
+    running = true;
+    pollThread = new Thread(this::pollLoop, "chainTip");
+    pollThread.setDaemon(true);
+    pollThread.start();
+  }
+
+  @PreDestroy
+  public void stop() {
+    running = false;
+    if (pollThread != null) {
+      pollThread.interrupt();
+      pollThread = null;
+    }
+  }
+
+  private void pollLoop() {
+    while (running) {
+      try {
+        synchronized (pollLock) {
+          if (!checkRequested) {
+            pollLock.wait(POLL_DELAY);
+          }
+          checkRequested = false;
+        }
+      } catch (InterruptedException e) {
+        if (running) {
+          log.warn("chainTip poll interrupted");
+        }
+        Thread.currentThread().interrupt();
+        return;
+      }
+      try {
+        __checkChainTip();
+      } catch (Exception e) {
+        log.error("chainTip check failed", e);
+      }
+    }
+  }
+
+  /** Check chain tip now rather than on next poll (new block notified). */
+  public void requestCheck() {
+    synchronized (pollLock) {
+      checkRequested = true;
+      pollLock.notify();
+    }
+  }
+
+  public synchronized void __checkChainTip() throws Exception {
+    Optional<String> blockHash = rpcClientService.getBestBlockHash();
+    if (!blockHash.isPresent() || blockHash.get().equals(bestBlockHash)) {
+      return;
+    }
+    boolean firstCheck = (bestBlockHash == null);
+    bestBlockHash = blockHash.get();
+    blockHeight = rpcClientService.getBlockHeight().orElse(null);
+    if (!firstCheck) {
+      nbBlocks.incrementAndGet();
+      if (log.isDebugEnabled()) {
+        log.debug("new block: " + bestBlockHash);
+      }
+    }
+    promoteUnconfirmedInputs();
+  }
+
+  private void promoteUnconfirmedInputs() {
+    long start = System.currentTimeMillis();
+
+    // refresh confirmations once per tx
+    Set<String> hashs = new HashSet<>();
+    for (Pool pool : poolService.getPools()) {
+      for (RegisteredInput registeredInput : pool.getUnconfirmedQueue().getInputs()) {
+        hashs.add(registeredInput.getInput().getHash());
+      }
+    }
+    if (hashs.isEmpty()) {
+      return;
+    }
+    Map<String, Integer> confirmationsByHash = new HashMap<>();
+    for (Map.Entry<String, RpcRawTransactionResponse> entry :
+        rpcClientService.getRawTransactions(hashs).entrySet()) {
+      confirmationsByHash.put(entry.getKey(), entry.getValue().getConfirmations());
+    }
+    // txs not found anymore (dropped from mempool) will never confirm
+    Set<String> droppedHashs = new HashSet<>(hashs);
+    droppedHashs.removeAll(confirmationsByHash.keySet());
+
+    // promote
+    int nbPromotedNow = 0;
+    for (Pool pool : poolService.getPools()) {
+      nbPromotedNow +=
+          poolService.promoteUnconfirmedInputs(pool, confirmationsByHash, droppedHashs);
+    }
+    lastPromotionLatency = System.currentTimeMillis() - start;
+    nbPromoted.addAndGet(nbPromotedNow);
+    log.info(
+        "unconfirmed inputs refreshed: "
+            + hashs.size()
+            + " txs ("
+            + droppedHashs.size()
+            + " dropped), "
+            + nbPromotedNow
+            + " inputs promoted in "
+            + lastPromotionLatency
+            + "ms");
+  }
+
+  public String getBestBlockHash() {
+    return bestBlockHash;
+  }
+
+  /** @return height of bestBlockHash, or null when unknown */
+  public Integer getBlockHeight() {
+    return blockHeight;
+  }
+
+  public long getNbBlocks() {
+    return nbBlocks.get();
+  }
+
+  public long getNbPromoted() {
+    return nbPromoted.get();
+  }
+
+  /** Time from new block detection to promotion of confirmed inputs. */
+  public long getLastPromotionLatency() {
+    return lastPromotionLatency;
+  }
+}
@@ -1,8 +1,6 @@
 package com.samourai.whirlpool.server.services;
 
 import com.samourai.whirlpool.server.beans.RegisteredInput;
-import com.samourai.whirlpool.server.exceptions.IllegalInputException;
-import com.samourai.whirlpool.server.exceptions.MixException;
 import com.samourai.whirlpool.server.exceptions.QueueInputException;
 import java.lang.invoke.MethodHandles;
 import org.slf4j.Logger;
@@ -23,9 +21,8 @@ public class ConfirmInputService {
     this.poolService = poolService;
   }
 
-  public synchronized void confirmInputOrQueuePool(
-      String mixId, String username, byte[] blindedBordereau)
-      throws IllegalInputException, MixException {
+  public void confirmInputOrQueuePool(String mixId, String username, byte[] blindedBordereau)
+      throws Exception {
     try {
       // add input to mix & reply confirmInputResponse
       mixService.confirmInput(mixId, username, blindedBordereau);
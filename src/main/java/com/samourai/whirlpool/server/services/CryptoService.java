@@ -1,5 +1,7 @@
 package com.samourai.whirlpool.server.services;
 
+import com.samourai.wallet.util.TxUtil;
+import com.samourai.whirlpool.server.beans.TxOutPoint;
 import java.lang.invoke.MethodHandles;
 import java.math.BigInteger;
 import java.security.KeyFactory;
@@ -7,10 +9,16 @@ import java.security.PublicKey;
 import java.security.SecureRandom;
 import java.security.SignatureException;
 import java.security.spec.RSAPublicKeySpec;
+import java.util.Arrays;
+import org.bitcoinj.core.Coin;
 import org.bitcoinj.core.Context;
 import org.bitcoinj.core.ECKey;
 import org.bitcoinj.core.NetworkParameters;
 import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.crypto.TransactionSignature;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.script.ScriptBuilder;
 import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
 import org.bouncycastle.crypto.digests.SHA256Digest;
 import org.bouncycastle.crypto.engines.RSAEngine;
@@ -92,6 +100,37 @@ public class CryptoService {
     return signer.verifySignature(unblindedSignedBordereau);
   }
 
+  /** Verify P2WPKH witness of a single input, against unsigned tx and input value. */
+  public boolean verifyWitness(Transaction tx, TxOutPoint input, byte[] pubkey, byte[][] witness) {
+    Integer inputIndex = TxUtil.getInstance().findInputIndex(tx, input.getHash(), input.getIndex());
+    if (inputIndex == null) {
+      log.error("verifyWitness: input not found in tx: " + input);
+      return false;
+    }
+    // witness is client input: rejected without stack trace, blamed by caller
+    if (witness == null || witness.length != 2 || !Arrays.equals(witness[1], pubkey)) {
+      log.warn("verifyWitness: unexpected witness for input " + input);
+      return false;
+    }
+    try {
+      ECKey ecKey = ECKey.fromPublicOnly(pubkey);
+      TransactionSignature signature =
+          TransactionSignature.decodeFromBitcoin(witness[0], true, true);
+      Script scriptCode = ScriptBuilder.createP2PKHOutputScript(ecKey);
+      Sha256Hash sigHash =
+          tx.hashForWitnessSignature(
+              inputIndex,
+              scriptCode,
+              Coin.valueOf(input.getValue()),
+              signature.sigHashMode(),
+              signature.anyoneCanPay());
+      return ecKey.verify(sigHash, signature);
+    } catch (Exception e) {
+      log.warn("verifyWitness: invalid signature for input " + input + ": " + e.getMessage());
+      return false;
+    }
+  }
+
   public boolean isValidTxHash(String txHash) {
     try {
       Sha256Hash.wrap(txHash);
@@ -36,6 +36,17 @@ public class DbService {
     mixStats = null; // clear cache
   }
 
+  public void failMix(String mixId, FailReason failReason) {
+    mixRepository
+        .findByMixId(mixId)
+        .ifPresent(
+            mixTO -> {
+              mixTO.setFail(failReason);
+              mixRepository.save(mixTO);
+              mixStats = null; // clear cache
+            });
+  }
+
   // receiveAddress
 
   public void revokeReceiveAddress(String receiveAddress) {
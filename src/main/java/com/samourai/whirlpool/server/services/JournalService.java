@@ -0,0 +1,398 @@
+package com.samourai.whirlpool.server.services;
+
+import com.samourai.whirlpool.protocol.websocket.notifications.MixStatus;
+import com.samourai.whirlpool.server.beans.FailReason;
+import com.samourai.whirlpool.server.beans.Mix;
+import com.samourai.whirlpool.server.beans.RegisteredInput;
+import com.samourai.whirlpool.server.beans.TxOutPoint;
+import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import javax.annotation.PreDestroy;
+import org.bitcoinj.core.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Append-only journal of pools & mixs state transitions, written to disk by batches. On startup,
+ * journal is replayed to fail interrupted mixs and to recover inputs queued before restart.
+ *
+ * <p>Records are appended without locking (pools append from their own executor) and applied to
+ * state by the flush thread only.
+ */
+@Service
+public class JournalService {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final String JOURNAL_FILENAME = "journal.log";
+  private static final String SNAPSHOT_FILENAME = "snapshot.log";
+  private static final String SEPARATOR = "\t";
+  private static final long FLUSH_INTERVAL = 200; // ms
+  private static final int SNAPSHOT_INTERVAL = 10000; // records
+
+  private static final String INPUT_QUEUED = "INPUT_QUEUED";
+  private static final String INPUT_INVITED = "INPUT_INVITED";
+  private static final String INPUT_REMOVED = "INPUT_REMOVED";
+  private static final String INPUT_CONFIRMED = "INPUT_CONFIRMED";
+  private static final String OUTPUT_REGISTERED = "OUTPUT_REGISTERED";
+  private static final String MIX_STATUS = "MIX_STATUS";
+  private static final String MIX_REMOVED = "MIX_REMOVED";
+
+  private DbService dbService;
+  private boolean enabled;
+  private File directory;
+  private FileChannel journalChannel;
+  private Thread flushThread;
+  private volatile boolean running;
+
+  private Queue<String> pendingRecords; // appended, not written yet
+  private int nbRecordsSinceSnapshot;
+
+  // current state, rebuilt by replay and maintained by flush thread
+  private Map<String, String> queuedInputs; // by inputId
+  private Map<String, List<String>> runningMixs; // by mixId
+
+  private Map<String, List<RegisteredInput>> recoveredInputs; // by poolId
+
+  @Autowired
+  public JournalService(DbService dbService, WhirlpoolServerConfig whirlpoolServerConfig)
+      throws Exception {
+    this.dbService = dbService;
+    this.enabled = whirlpoolServerConfig.getJournal().isEnabled();
+    this.pendingRecords = new ConcurrentLinkedQueue<>();
+    this.nbRecordsSinceSnapshot = 0;
+    this.queuedInputs = new ConcurrentHashMap<>();
+    this.runningMixs = new ConcurrentHashMap<>();
+    this.recoveredInputs = new LinkedHashMap<>();
+
+    if (!enabled) {
+      log.warn("journal is disabled");
+      return;
+    }
+    this.directory = new File(whirlpoolServerConfig.getJournal().getDirectory());
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new Exception("journal directory doesn't exist: " + directory.getAbsolutePath());
+    }
+    recover();
+
+    this.journalChannel =
+        FileChannel.open(
+            getJournalFile().toPath(),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND);
+    this.running = true;
+    this.flushThread = new Thread(this::flushLoop, "journal-flush");
+    flushThread.setDaemon(true);
+    flushThread.start();
+  }
+
+  /** Write pending records on shutdown. */
+  @PreDestroy
+  public void close() throws Exception {
+    if (!enabled || !running) {
+      return;
+    }
+    // not interrupted: interrupting a write would close journalChannel
+    running = false;
+    flushThread.join();
+    flush();
+    journalChannel.force(true);
+    journalChannel.close();
+  }
+
+  // records
+
+  public void onInputQueued(String poolId, RegisteredInput registeredInput) {
+    TxOutPoint input = registeredInput.getInput();
+    append(
+        INPUT_QUEUED,
+        poolId,
+        input.getHash(),
+        String.valueOf(input.getIndex()),
+        String.valueOf(input.getValue()),
+        String.valueOf(input.getConfirmations()),
+        String.valueOf(registeredInput.isLiquidity()),
+        registeredInput.getPubkey() != null ? Utils.HEX.encode(registeredInput.getPubkey()) : "",
+        registeredInput.getUsername());
+  }
+
+  public void onInputInvited(Mix mix, RegisteredInput registeredInput) {
+    TxOutPoint input = registeredInput.getInput();
+    append(INPUT_INVITED, mix.getMixId(), input.getHash(), String.valueOf(input.getIndex()));
+  }
+
+  public void onInputRemoved(String poolId, RegisteredInput registeredInput) {
+    TxOutPoint input = registeredInput.getInput();
+    append(INPUT_REMOVED, poolId, input.getHash(), String.valueOf(input.getIndex()));
+  }
+
+  public void onInputConfirmed(Mix mix, RegisteredInput registeredInput) {
+    TxOutPoint input = registeredInput.getInput();
+    append(INPUT_CONFIRMED, mix.getMixId(), input.getHash(), String.valueOf(input.getIndex()));
+  }
+
+  public void onOutputRegistered(Mix mix) {
+    append(OUTPUT_REGISTERED, mix.getMixId());
+  }
+
+  public void onMixStatus(Mix mix) {
+    append(MIX_STATUS, mix.getMixId(), mix.getPool().getPoolId(), mix.getMixStatus().name());
+  }
+
+  public void onMixRemoved(Mix mix) {
+    append(MIX_REMOVED, mix.getMixId());
+  }
+
+  private void append(String... fields) {
+    if (!enabled) {
+      return;
+    }
+    String record = System.currentTimeMillis() + SEPARATOR + String.join(SEPARATOR, fields);
+    pendingRecords.add(record);
+  }
+
+  // state
+
+  private void apply(String record) {
+    String[] fields = record.split(SEPARATOR, -1);
+    String type = fields[1];
+    switch (type) {
+      case INPUT_QUEUED:
+        queuedInputs.put(fields[3] + ":" + fields[4], record);
+        break;
+      case INPUT_INVITED:
+      case INPUT_REMOVED:
+        queuedInputs.remove(fields[3] + ":" + fields[4]);
+        break;
+      case INPUT_CONFIRMED:
+      case OUTPUT_REGISTERED:
+        List<String> mixRecords = runningMixs.get(fields[2]);
+        if (mixRecords != null) {
+          mixRecords.add(record);
+        }
+        break;
+      case MIX_STATUS:
+        MixStatus mixStatus = MixStatus.valueOf(fields[4]);
+        if (MixStatus.SUCCESS.equals(mixStatus) || MixStatus.FAIL.equals(mixStatus)) {
+          runningMixs.remove(fields[2]);
+        } else {
+          runningMixs.computeIfAbsent(fields[2], k -> new ArrayList<>()).add(record);
+        }
+        break;
+      case MIX_REMOVED:
+        runningMixs.remove(fields[2]);
+        break;
+      default:
+        log.error("journal: unknown record type: " + type);
+        break;
+    }
+  }
+
+  private List<String> computeSnapshot() {
+    List<String> records = new ArrayList<>(queuedInputs.values());
+    runningMixs.values().forEach(records::addAll);
+    return records;
+  }
+
+  // disk
+
+  private File getJournalFile() {
+    return new File(directory, JOURNAL_FILENAME);
+  }
+
+  private File getSnapshotFile() {
+    return new File(directory, SNAPSHOT_FILENAME);
+  }
+
+  private void flushLoop() {
+    while (running) {
+      try {
+        Thread.sleep(FLUSH_INTERVAL);
+        flush();
+      } catch (InterruptedException e) {
+        log.warn("journal flush interrupted");
+        Thread.currentThread().interrupt();
+        return;
+      } catch (Exception e) {
+        log.error("journal flush failed", e);
+      }
+    }
+  }
+
+  // should be called from flush thread, or after it stopped
+  private void flush() throws IOException {
+    List<String> records = new ArrayList<>();
+    String record;
+    while ((record = pendingRecords.poll()) != null) {
+      apply(record);
+      records.add(record);
+    }
+    if (records.isEmpty()) {
+      return;
+    }
+    write(journalChannel, records);
+    journalChannel.force(false);
+    nbRecordsSinceSnapshot += records.size();
+
+    if (nbRecordsSinceSnapshot >= SNAPSHOT_INTERVAL) {
+      snapshot();
+    }
+  }
+
+  // should be called from flush thread, or before it starts
+  private void snapshot() throws IOException {
+    // state includes all written records
+    File tmpFile = new File(directory, SNAPSHOT_FILENAME + ".tmp");
+    try (FileChannel channel =
+        FileChannel.open(
+            tmpFile.toPath(),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      write(channel, computeSnapshot());
+      channel.force(true);
+    }
+    Files.move(
+        tmpFile.toPath(),
+        getSnapshotFile().toPath(),
+        StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    if (journalChannel != null) {
+      journalChannel.truncate(0);
+      journalChannel.force(true);
+    } else {
+      Files.write(getJournalFile().toPath(), new byte[0]);
+    }
+    nbRecordsSinceSnapshot = 0;
+    if (log.isDebugEnabled()) {
+      log.debug(
+          "journal snapshot: "
+              + queuedInputs.size()
+              + " queued inputs, "
+              + runningMixs.size()
+              + " running mixs");
+    }
+  }
+
+  private void write(FileChannel channel, List<String> records) throws IOException {
+    StringBuilder sb = new StringBuilder();
+    records.forEach(record -> sb.append(record).append('\n'));
+    ByteBuffer buffer = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  // recovery
+
+  private void recover() throws IOException {
+    long start = System.currentTimeMillis();
+    int nbRecords = replay(getSnapshotFile()) + replay(getJournalFile());
+    if (nbRecords == 0) {
+      return;
+    }
+
+    // interrupted mixs can't be resumed: clients lost their session
+    for (Map.Entry<String, List<String>> runningMix : runningMixs.entrySet()) {
+      String mixId = runningMix.getKey();
+      log.warn(" • [" + mixId + "] mix interrupted by restart => FAIL");
+      dbService.failMix(mixId, FailReason.FAIL_INTERRUPTED);
+    }
+
+    // queued inputs are requeued once validated again, see takeRecoveredInputs()
+    recoveredInputs.clear();
+    int nbRecoveredInputs = 0;
+    for (String queuedInput : queuedInputs.values()) {
+      String[] fields = queuedInput.split(SEPARATOR, -1);
+      String poolId = fields[2];
+      String hash = fields[3];
+      long index = Long.parseLong(fields[4]);
+      TxOutPoint input =
+          new TxOutPoint(hash, index, Long.parseLong(fields[5]), Integer.parseInt(fields[6]));
+      boolean liquidity = Boolean.parseBoolean(fields[7]);
+      byte[] pubkey = Utils.HEX.decode(fields[8]);
+      // previous username, replaced when client registers again after reconnecting
+      String username = fields.length > 9 ? fields[9] : "recovered-" + hash + ":" + index;
+      recoveredInputs
+          .computeIfAbsent(poolId, k -> new ArrayList<>())
+          .add(new RegisteredInput(username, pubkey, liquidity, input));
+      nbRecoveredInputs++;
+    }
+
+    log.info(
+        "journal recovered in "
+            + (System.currentTimeMillis() - start)
+            + "ms: "
+            + nbRecords
+            + " records, "
+            + runningMixs.size()
+            + " interrupted mixs, "
+            + nbRecoveredInputs
+            + " recovered inputs");
+
+    // start from empty state
+    queuedInputs.clear();
+    runningMixs.clear();
+    snapshot();
+  }
+
+  private int replay(File file) throws IOException {
+    if (!file.exists()) {
+      return 0;
+    }
+    int nbRecords = 0;
+    for (String record : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+      if (record.isEmpty()) {
+        continue;
+      }
+      try {
+        apply(record);
+        nbRecords++;
+      } catch (Exception e) {
+        // last record may be truncated by crash
+        log.warn("journal: skipping invalid record in " + file.getName() + ": " + record);
+      }
+    }
+    return nbRecords;
+  }
+
+  /**
+   * Inputs which were queued before restart, by poolId. They were validated against the chain state
+   * before restart and must be validated again before being requeued.
+   */
+  public synchronized Map<String, List<RegisteredInput>> takeRecoveredInputs() {
+    Map<String, List<RegisteredInput>> result = recoveredInputs;
+    recoveredInputs = new LinkedHashMap<>();
+    return result;
+  }
+
+  public Map<String, Integer> getStats() {
+    Map<String, Integer> stats = new HashMap<>();
+    stats.put("queuedInputs", queuedInputs.size());
+    stats.put("runningMixs", runningMixs.size());
+    stats.put("pendingRecords", pendingRecords.size());
+    return stats;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+}
@@ -0,0 +1,103 @@
+package com.samourai.whirlpool.server.services;
+
+import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
+import com.samourai.whirlpool.server.utils.LatencyHistogram;
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PreDestroy;
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/** Pre-generates RSA keyPairs in background, so that starting a mix doesn't wait for keygen. */
+@Service
+public class KeyPairPoolService {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final long STOP_TIMEOUT = 5000; // ms
+
+  private CryptoService cryptoService;
+  private BlockingQueue<AsymmetricCipherKeyPair> keyPairs;
+
+  private AtomicLong nbTaken;
+  private AtomicLong nbMissed;
+  private LatencyHistogram refillLatencies;
+  private Thread refillThread;
+
+  @Autowired
+  public KeyPairPoolService(
+      CryptoService cryptoService, WhirlpoolServerConfig whirlpoolServerConfig) {
+    this.cryptoService = cryptoService;
+    int size = Math.max(1, whirlpoolServerConfig.getKeyPairPool().getSize());
+    this.keyPairs = new ArrayBlockingQueue<>(size);
+    this.nbTaken = new AtomicLong(0);
+    this.nbMissed = new AtomicLong(0);
+    this.refillLatencies = new LatencyHistogram();
+
+    this.refillThread = new Thread(this::refillLoop, "keyPairPool-refill");
+    refillThread.setDaemon(true);
+    refillThread.setPriority(Thread.MIN_PRIORITY);
+    refillThread.start();
+  }
+
+  @PreDestroy
+  public void stop() {
+    refillThread.interrupt();
+    try {
+      refillThread.join(STOP_TIMEOUT);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void refillLoop() {
+    try {
+      while (true) {
+        long start = System.currentTimeMillis();
+        AsymmetricCipherKeyPair keyPair = cryptoService.generateKeyPair();
+        long refillDuration = System.currentTimeMillis() - start;
+        refillLatencies.record(refillDuration);
+        if (log.isDebugEnabled()) {
+          log.debug(
+              "keyPair generated in " + refillDuration + "ms, available=" + (keyPairs.size() + 1));
+        }
+        keyPairs.put(keyPair); // waits while pool is full
+      }
+    } catch (InterruptedException e) {
+      // stopped
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** Take a pre-generated keyPair, or generate one when pool is empty. */
+  public AsymmetricCipherKeyPair takeKeyPair() {
+    nbTaken.incrementAndGet();
+    AsymmetricCipherKeyPair keyPair = keyPairs.poll();
+    if (keyPair == null) {
+      nbMissed.incrementAndGet();
+      log.warn("keyPairPool is empty, generating keyPair synchronously");
+      keyPair = cryptoService.generateKeyPair();
+    }
+    return keyPair;
+  }
+
+  public int getNbAvailable() {
+    return keyPairs.size();
+  }
+
+  public long getNbTaken() {
+    return nbTaken.get();
+  }
+
+  public long getNbMissed() {
+    return nbMissed.get();
+  }
+
+  /** Time to generate each keyPair in background. */
+  public LatencyHistogram getRefillLatencies() {
+    return refillLatencies;
+  }
+}
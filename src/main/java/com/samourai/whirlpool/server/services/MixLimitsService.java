@@ -9,9 +9,9 @@ import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
 import com.samourai.whirlpool.server.utils.timeout.ITimeoutWatcherListener;
 import com.samourai.whirlpool.server.utils.timeout.TimeoutWatcher;
 import java.lang.invoke.MethodHandles;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,9 +21,11 @@ import org.springframework.stereotype.Service;
 @Service
 public class MixLimitsService {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
-  private MixService mixService;;
+  private MixService mixService;
   private PoolService poolService;
   private BlameService blameService;
+  private TaskService taskService;
+  private PoolStatusService poolStatusService;
   private WhirlpoolServerConfig whirlpoolServerConfig;
 
   private Map<String, TimeoutWatcher> limitsWatchers;
@@ -33,9 +35,13 @@ public class MixLimitsService {
   public MixLimitsService(
       PoolService poolService,
       BlameService blameService,
+      TaskService taskService,
+      PoolStatusService poolStatusService,
       WhirlpoolServerConfig whirlpoolServerConfig) {
     this.poolService = poolService;
     this.blameService = blameService;
+    this.taskService = taskService;
+    this.poolStatusService = poolStatusService;
     this.whirlpoolServerConfig = whirlpoolServerConfig;
 
     this.__reset();
@@ -133,28 +139,49 @@ public class MixLimitsService {
             if (log.isDebugEnabled()) {
               log.debug("limitsWatcher.onTimeout");
             }
-            switch (mix.getMixStatus()) {
-              case CONFIRM_INPUT:
-                // adjust targetAnonymitySet
-                adjustTargetAnonymitySet(mix, timeoutWatcher);
-                break;
-
-              case REGISTER_OUTPUT:
-                mixService.onTimeoutRegisterOutput(mix);
-                break;
-
-              case REVEAL_OUTPUT:
-                mixService.onTimeoutRevealOutput(mix);
-                break;
-
-              case SIGNING:
-                blameForSigningAndResetMix(mix);
-                break;
-            }
+            MixStatus mixStatus = mix.getMixStatus();
+            mix.getPool()
+                .getSerialExecutor()
+                .submit(
+                    () -> {
+                      if (!mixStatus.equals(mix.getMixStatus())) {
+                        // mix status changed while timeout was waiting for pool executor
+                        if (log.isDebugEnabled()) {
+                          log.debug(
+                              "limitsWatcher.onTimeout ignored: mixStatus changed "
+                                  + mixStatus
+                                  + " -> "
+                                  + mix.getMixStatus());
+                        }
+                        return;
+                      }
+                      switch (mixStatus) {
+                        case CONFIRM_INPUT:
+                          // adjust targetAnonymitySet
+                          adjustTargetAnonymitySet(mix, timeoutWatcher);
+                          break;
+
+                        case REGISTER_OUTPUT:
+                          mixService.onTimeoutRegisterOutput(mix);
+                          break;
+
+                        case REVEAL_OUTPUT:
+                          mixService.onTimeoutRevealOutput(mix);
+                          break;
+
+                        case SIGNING:
+                          if (mix.isBroadcasting()) {
+                            // all signed, broadcast result will end the mix
+                            break;
+                          }
+                          blameForSigningAndResetMix(mix);
+                          break;
+                      }
+                    });
           }
         };
 
-    TimeoutWatcher mixLimitsWatcher = new TimeoutWatcher(listener);
+    TimeoutWatcher mixLimitsWatcher = taskService.newTimeoutWatcher(listener);
     return mixLimitsWatcher;
   }
 
@@ -173,19 +200,25 @@ public class MixLimitsService {
             if (log.isDebugEnabled()) {
               log.debug("liquidityWatcher.onTimeout");
             }
-            if (MixStatus.CONFIRM_INPUT.equals(mix.getMixStatus()) && !mix.isAcceptLiquidities()) {
-              // accept liquidities
-              if (log.isDebugEnabled()) {
-                log.debug("accepting liquidities now (liquidityTimeout elapsed)");
-              }
-              mix.setAcceptLiquidities(true);
-              addLiquidities(mix);
-            }
+            mix.getPool()
+                .getSerialExecutor()
+                .submit(
+                    () -> {
+                      if (MixStatus.CONFIRM_INPUT.equals(mix.getMixStatus())
+                          && !mix.isAcceptLiquidities()) {
+                        // accept liquidities
+                        if (log.isDebugEnabled()) {
+                          log.debug("accepting liquidities now (liquidityTimeout elapsed)");
+                        }
+                        mix.setAcceptLiquidities(true);
+                        addLiquidities(mix);
+                      }
+                    });
             timeoutWatcher.stop();
           }
         };
 
-    TimeoutWatcher mixLimitsWatcher = new TimeoutWatcher(listener);
+    TimeoutWatcher mixLimitsWatcher = taskService.newTimeoutWatcher(listener);
     return mixLimitsWatcher;
   }
 
@@ -207,6 +240,7 @@ public class MixLimitsService {
     log.info(
         " • must-mix-adjust-timeout over, adjusting targetAnonymitySet: " + nextTargetAnonymitySet);
     mix.setTargetAnonymitySet(nextTargetAnonymitySet);
+    poolStatusService.onPoolChange(mix.getPool());
     timeoutWatcher.resetTimeout();
 
     // is mix ready now?
@@ -219,7 +253,8 @@ public class MixLimitsService {
     }
   }
 
-  public synchronized void onInputConfirmed(Mix mix) {
+  // should be called from pool's serialExecutor
+  public void onInputConfirmed(Mix mix) {
     // first mustMix registered => instanciate limitsWatcher & liquidityWatcher
     if (mix.getNbInputs() == 1) {
       String mixId = mix.getMixId();
@@ -339,7 +374,7 @@ public class MixLimitsService {
       limitsWatchers.values().forEach(watcher -> watcher.stop());
     }
 
-    this.limitsWatchers = new HashMap<>();
-    this.liquidityWatchers = new HashMap<>();
+    this.limitsWatchers = new ConcurrentHashMap<>();
+    this.liquidityWatchers = new ConcurrentHashMap<>();
   }
 }
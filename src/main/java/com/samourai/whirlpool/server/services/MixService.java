@@ -24,19 +24,20 @@ import com.samourai.whirlpool.server.beans.TxOutPoint;
 import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
 import com.samourai.whirlpool.server.exceptions.IllegalInputException;
 import com.samourai.whirlpool.server.exceptions.MixException;
+import com.samourai.whirlpool.server.exceptions.NotifiableException;
 import com.samourai.whirlpool.server.exceptions.QueueInputException;
-import com.samourai.whirlpool.server.services.rpc.RpcClientService;
+import com.samourai.whirlpool.server.utils.BoundedExecutor;
+import com.samourai.whirlpool.server.utils.SerialExecutor;
 import com.samourai.whirlpool.server.utils.Utils;
+import com.samourai.whirlpool.server.utils.timeout.HashedWheelTimer;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import org.bitcoinj.core.Coin;
 import org.bitcoinj.core.NetworkParameters;
@@ -50,6 +51,7 @@ import org.bitcoinj.script.ScriptException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -57,37 +59,49 @@ public class MixService {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   private WebSocketService webSocketService;
   private CryptoService cryptoService;
+  private KeyPairPoolService keyPairPoolService;
+  private BroadcastService broadcastService;
+  private JournalService journalService;
+  private PoolStatusService poolStatusService;
   private BlameService blameService;
   private DbService dbService;
-  private RpcClientService rpcClientService;
   private MixLimitsService mixLimitsService;
   private Bech32UtilGeneric bech32Util;
   private WhirlpoolServerConfig whirlpoolServerConfig;
   private PoolService poolService;
   private ExportService exportService;
   private TaskService taskService;
+  private BoundedExecutor signingVerifierExecutor;
 
   private Map<String, Mix> currentMixs;
+  private Map<String, Mix> currentMixsByInputsHash;
 
   private static final int GRACE_TIME_CONFIRMING_INPUTS = 10000;
 
   @Autowired
   public MixService(
       CryptoService cryptoService,
+      KeyPairPoolService keyPairPoolService,
+      BroadcastService broadcastService,
+      JournalService journalService,
+      PoolStatusService poolStatusService,
       BlameService blameService,
       DbService dbService,
-      RpcClientService rpcClientService,
       WebSocketService webSocketService,
       Bech32UtilGeneric bech32Util,
       WhirlpoolServerConfig whirlpoolServerConfig,
       MixLimitsService mixLimitsService,
       PoolService poolService,
       ExportService exportService,
-      TaskService taskService) {
+      TaskService taskService,
+      @Qualifier("signingVerifierExecutor") BoundedExecutor signingVerifierExecutor) {
     this.cryptoService = cryptoService;
+    this.keyPairPoolService = keyPairPoolService;
+    this.broadcastService = broadcastService;
+    this.journalService = journalService;
+    this.poolStatusService = poolStatusService;
     this.blameService = blameService;
     this.dbService = dbService;
-    this.rpcClientService = rpcClientService;
     this.webSocketService = webSocketService;
     this.bech32Util = bech32Util;
     this.whirlpoolServerConfig = whirlpoolServerConfig;
@@ -96,8 +110,10 @@ public class MixService {
     this.poolService = poolService;
     this.exportService = exportService;
     this.taskService = taskService;
+    this.signingVerifierExecutor = signingVerifierExecutor;
 
-    this.currentMixs = new HashMap<>();
+    this.currentMixs = new ConcurrentHashMap<>();
+    this.currentMixsByInputsHash = new ConcurrentHashMap<>();
 
     this.__reset();
   }
@@ -118,6 +134,14 @@ public class MixService {
       throw new IllegalInputException("Input already registered for this mix");
     }
 
+    // verify not already registered in another running mix of this pool
+    if (mix.getPool()
+        .getMixsInFlight()
+        .stream()
+        .anyMatch(m -> m != mix && m.hasInput(registeredInput.getInput()))) {
+      throw new IllegalInputException("Input already registered for another mix");
+    }
+
     // liquidity: verify liquidities open
     if (registeredInput.isLiquidity() && !isRegisterLiquiditiesOpen(mix)) {
       throw new IllegalInputException(
@@ -127,11 +151,7 @@ public class MixService {
     // verify max-inputs-same-hash
     String inputHash = registeredInput.getInput().getHash();
     int maxInputsSameHash = whirlpoolServerConfig.getRegisterInput().getMaxInputsSameHash();
-    long countInputsSameHash =
-        mix.getInputs()
-            .parallelStream()
-            .filter(input -> input.getRegisteredInput().getInput().getHash().equals(inputHash))
-            .count();
+    int countInputsSameHash = mix.getNbInputsSameHash(inputHash);
     if ((countInputsSameHash + 1) > maxInputsSameHash) {
       if (log.isDebugEnabled()) {
         log.debug("already " + countInputsSameHash + " inputs with same hash: " + inputHash);
@@ -143,7 +163,17 @@ public class MixService {
     }
   }
 
-  public synchronized void confirmInput(String mixId, String username, byte[] blindedBordereau)
+  public void confirmInput(String mixId, String username, byte[] blindedBordereau)
+      throws Exception {
+    getSerialExecutor(mixId)
+        .call(
+            () -> {
+              doConfirmInput(mixId, username, blindedBordereau);
+              return null;
+            });
+  }
+
+  private void doConfirmInput(String mixId, String username, byte[] blindedBordereau)
       throws IllegalInputException, MixException, QueueInputException {
     Mix mix = getMix(mixId);
 
@@ -171,6 +201,8 @@ public class MixService {
 
     // add to mix inputs
     mix.registerInput(confirmedInput);
+    journalService.onInputConfirmed(mix, registeredInput);
+    poolStatusService.onPoolChange(mix.getPool());
     log.info(
         " • registered "
             + (registeredInput.isLiquidity() ? "liquidity" : "mustMix")
@@ -212,29 +244,33 @@ public class MixService {
         }
 
         // allow grace period for pending inputs confirmations...
-        ScheduledFuture scheduledRegisterOutput = mix.getScheduleRegisterOutput();
+        HashedWheelTimer.Timeout scheduledRegisterOutput = mix.getScheduleRegisterOutput();
         if (scheduledRegisterOutput == null) {
           // schedule
           if (log.isDebugEnabled()) {
             log.debug("Scheduling REGISTER_OUTPUT, in " + GRACE_TIME_CONFIRMING_INPUTS + "...");
           }
-          ScheduledFuture scheduledFuture =
+          HashedWheelTimer.Timeout scheduledFuture =
               taskService.runOnce(
                   GRACE_TIME_CONFIRMING_INPUTS,
-                  () -> {
-                    if (log.isDebugEnabled()) {
-                      log.debug("REGISTER_OUTPUT schedule expired.");
-                    }
-                    mix.clearScheduleRegisterOutput();
-                    checkConfirmInputReady(mix, false);
-                  });
+                  () ->
+                      mix.getPool()
+                          .getSerialExecutor()
+                          .submit(
+                              () -> {
+                                if (log.isDebugEnabled()) {
+                                  log.debug("REGISTER_OUTPUT schedule expired.");
+                                }
+                                mix.clearScheduleRegisterOutput();
+                                checkConfirmInputReady(mix, false);
+                              }));
           mix.setScheduleRegisterOutput(scheduledFuture);
         } else {
           // already scheduled
           if (log.isDebugEnabled()) {
             log.debug(
                 "REGISTER_OUTPUT already scheduled, in "
-                    + scheduledRegisterOutput.getDelay(TimeUnit.SECONDS)
+                    + scheduledRegisterOutput.getDelay() / 1000
                     + "s");
           }
         }
@@ -274,7 +310,19 @@ public class MixService {
     return true;
   }
 
-  public synchronized void registerOutput(
+  public void registerOutput(
+      String inputsHash, byte[] unblindedSignedBordereau, String receiveAddress) throws Exception {
+    Mix mix = getMixByInputsHash(inputsHash, null);
+    mix.getPool()
+        .getSerialExecutor()
+        .call(
+            () -> {
+              doRegisterOutput(inputsHash, unblindedSignedBordereau, receiveAddress);
+              return null;
+            });
+  }
+
+  private void doRegisterOutput(
       String inputsHash, byte[] unblindedSignedBordereau, String receiveAddress) throws Exception {
     Mix mix = getMixByInputsHash(inputsHash, MixStatus.REGISTER_OUTPUT);
 
@@ -286,6 +334,7 @@ public class MixService {
 
     log.info(" • registered output: " + receiveAddress);
     mix.registerOutput(receiveAddress);
+    journalService.onOutputRegistered(mix);
 
     if (isRegisterOutputReady(mix)) {
       String mixId = mix.getMixId();
@@ -323,7 +372,7 @@ public class MixService {
     }
   }
 
-  protected synchronized boolean isRegisterOutputReady(Mix mix) {
+  protected boolean isRegisterOutputReady(Mix mix) {
     if (!isRegisterInputReady(mix)) {
       // TODO recheck inputs balances and update/ban/reopen REGISTER_INPUT or fail if input spent in
       // the meantime
@@ -332,7 +381,16 @@ public class MixService {
     return (mix.getReceiveAddresses().size() == mix.getNbInputs());
   }
 
-  public synchronized void revealOutput(String mixId, String username, String receiveAddress)
+  public void revealOutput(String mixId, String username, String receiveAddress) throws Exception {
+    getSerialExecutor(mixId)
+        .call(
+            () -> {
+              doRevealOutput(mixId, username, receiveAddress);
+              return null;
+            });
+  }
+
+  private void doRevealOutput(String mixId, String username, String receiveAddress)
       throws MixException, IllegalInputException {
     Mix mix = getMix(mixId, MixStatus.REVEAL_OUTPUT);
 
@@ -361,35 +419,105 @@ public class MixService {
     }
   }
 
-  protected synchronized boolean isRevealOutputReady(Mix mix) {
+  protected boolean isRevealOutputReady(Mix mix) {
     return (mix.getNbRevealedOutputs()
         == mix.getNbInputs()); // TODO -1 to not wait for the one who didn't sign?
   }
 
-  public synchronized void registerSignature(String mixId, String username, byte[][] witness)
+  public void registerSignature(String mixId, String username, byte[][] witness) throws Exception {
+    Mix mix = getMix(mixId, MixStatus.SIGNING);
+    ConfirmedInput confirmedInput =
+        mix.findInputByUsername(username)
+            .orElseThrow(() -> new IllegalInputException("Input not found for signing"));
+    RegisteredInput registeredInput = confirmedInput.getRegisteredInput();
+
+    // verify witness on verifier threads (tx doesn't change while SIGNING), then register it on
+    // pool executor
+    boolean accepted =
+        signingVerifierExecutor.tryExecute(
+            () -> {
+              boolean valid =
+                  cryptoService.verifyWitness(
+                      mix.getTx(),
+                      registeredInput.getInput(),
+                      registeredInput.getPubkey(),
+                      witness);
+              mix.getPool()
+                  .getSerialExecutor()
+                  .submit(() -> onSignatureVerified(mix, confirmedInput, witness, valid));
+            });
+    if (!accepted) {
+      throw new IllegalInputException("Too many signatures pending, please retry");
+    }
+  }
+
+  private void onSignatureVerified(
+      Mix mix, ConfirmedInput confirmedInput, byte[][] witness, boolean valid) {
+    String username = confirmedInput.getRegisteredInput().getUsername();
+    if (!valid) {
+      log.warn(" • invalid signature: username=" + username);
+      webSocketService.sendPrivateError(username, "Invalid signature");
+      onInvalidSignature(mix, confirmedInput);
+      return;
+    }
+    try {
+      doRegisterSignature(mix.getMixId(), username, witness);
+    } catch (Exception e) {
+      log.error("registerSignature failed: username=" + username, e);
+      webSocketService.sendPrivateError(username, NotifiableException.computeNotifiableMessage(e));
+    }
+  }
+
+  private void doRegisterSignature(String mixId, String username, byte[][] witness)
       throws Exception {
     log.info(" • registered signature: username=" + username);
     Mix mix = getMix(mixId, MixStatus.SIGNING);
     Signature signature = new Signature(witness);
     mix.setSignatureByUsername(username, signature);
 
-    if (isRegisterSignaturesReady(mix)) {
+    if (isRegisterSignaturesReady(mix) && !mix.isBroadcasting()) {
       Transaction tx = mix.getTx();
       tx = signTransaction(tx, mix);
       mix.setTx(tx);
 
       log.info("Tx to broadcast: \n" + tx + "\nRaw: " + Utils.getRawTx(tx));
-      try {
-        rpcClientService.broadcastTransaction(tx);
-        goSuccess(mix);
-      } catch (Exception e) {
-        log.error("Unable to broadcast tx", e);
-        goFail(mix, FailReason.FAIL_BROADCAST);
-      }
+      mix.setBroadcasting(true);
+      broadcastService
+          .broadcast(tx)
+          .whenComplete(
+              (result, e) ->
+                  mix.getPool().getSerialExecutor().submit(() -> onBroadcastResult(mix, e)));
+    }
+  }
+
+  private void onInvalidSignature(Mix mix, ConfirmedInput confirmedInput) {
+    if (!MixStatus.SIGNING.equals(mix.getMixStatus()) || mix.isBroadcasting()) {
+      return;
     }
+    // tx can't be completed anymore
+    blameService.blame(confirmedInput, BlameReason.INVALID_SIGNING, mix.getMixId());
+    goFail(mix, FailReason.FAIL_SIGNING);
   }
 
-  protected synchronized boolean isRegisterSignaturesReady(Mix mix) {
+  private void onBroadcastResult(Mix mix, Throwable broadcastError) {
+    mix.setBroadcasting(false);
+    if (!MixStatus.SIGNING.equals(mix.getMixStatus())) {
+      log.warn(
+          "broadcast result ignored, mixStatus changed meanwhile: mixId="
+              + mix.getMixId()
+              + ", mixStatus="
+              + mix.getMixStatus());
+      return;
+    }
+    if (broadcastError == null) {
+      goSuccess(mix);
+    } else {
+      log.error("Unable to broadcast tx", broadcastError);
+      goFail(mix, FailReason.FAIL_BROADCAST);
+    }
+  }
+
+  protected boolean isRegisterSignaturesReady(Mix mix) {
     if (!isRegisterOutputReady(mix)) {
       return false;
     }
@@ -426,6 +554,14 @@ public class MixService {
 
       // update mix status
       mix.setMixStatusAndTime(mixStatus);
+      if (mixStatus != MixStatus.CONFIRM_INPUT) {
+        mix.getPool().addMixInFlight(mix);
+      }
+      journalService.onMixStatus(mix);
+      poolStatusService.onPoolChange(mix.getPool());
+      if (mixStatus == MixStatus.REGISTER_OUTPUT) {
+        currentMixsByInputsHash.put(mix.getInputsHash(), mix);
+      }
       try {
         dbService.saveMix(mix);
       } catch (Exception e) {
@@ -440,19 +576,49 @@ public class MixService {
       }
 
       // start next mix (after notifying clients for success)
-      if (mixStatus == MixStatus.SUCCESS) {
-        __nextMix(mix.getPool());
-      } else if (mixStatus == MixStatus.FAIL) {
-        __nextMix(mix.getPool());
+      if (mixStatus == MixStatus.SUCCESS || mixStatus == MixStatus.FAIL) {
+        onMixFinished(mix);
+      } else if (mixStatus == MixStatus.REGISTER_OUTPUT) {
+        // mix inputs are closed => next mix can start while this one completes
+        Pool pool = mix.getPool();
+        if (getNbMixsInFlight(pool) < whirlpoolServerConfig.getMix().getMaxInFlight()) {
+          __nextMix(pool);
+        }
       }
     } catch (MixException e) {
       log.error("Unexpected mix error", e);
       if (mix != null) {
-        __nextMix(mix.getPool());
+        onMixFinished(mix);
       }
     }
   }
 
+  private void onMixFinished(Mix mix) {
+    removeMix(mix);
+
+    // start next mix if pool has no mix accepting inputs
+    Pool pool = mix.getPool();
+    Mix currentMix = pool.getCurrentMix();
+    if (currentMix == mix || !MixStatus.CONFIRM_INPUT.equals(currentMix.getMixStatus())) {
+      __nextMix(pool);
+    }
+  }
+
+  private void removeMix(Mix mix) {
+    journalService.onMixRemoved(mix);
+    mixLimitsService.unmanage(mix);
+    currentMixs.remove(mix.getMixId());
+    mix.getPool().removeMixInFlight(mix);
+    if (mix.getInputsHash() != null) {
+      currentMixsByInputsHash.remove(mix.getInputsHash());
+    }
+  }
+
+  /** @return number of running mixs past CONFIRM_INPUT for this pool */
+  public int getNbMixsInFlight(Pool pool) {
+    return pool.getNbMixsInFlight();
+  }
+
   private void sendToMixingUsers(Mix mix, Object payload) {
     List<String> usernames =
         mix.getInputs()
@@ -467,7 +633,7 @@ public class MixService {
     MixStatusNotification mixStatusNotification = null;
     switch (mix.getMixStatus()) {
       case REGISTER_OUTPUT:
-        String inputsHash = mix.computeInputsHash();
+        String inputsHash = mix.getInputsHash();
         mixStatusNotification = new RegisterOutputMixStatusNotification(mixId, inputsHash);
         break;
       case REVEAL_OUTPUT:
@@ -494,6 +660,10 @@ public class MixService {
     return getMix(mixId, null);
   }
 
+  private SerialExecutor getSerialExecutor(String mixId) throws MixException {
+    return getMix(mixId).getPool().getSerialExecutor();
+  }
+
   private Mix getMix(String mixId, MixStatus mixStatus) throws MixException {
     Mix mix = currentMixs.get(mixId);
     if (mix == null) {
@@ -511,16 +681,10 @@ public class MixService {
 
   private Mix getMixByInputsHash(String inputsHash, MixStatus mixStatus)
       throws IllegalInputException, MixException {
-    List<Mix> mixsFound =
-        currentMixs
-            .values()
-            .parallelStream()
-            .filter(mix -> mix.computeInputsHash().equals(inputsHash))
-            .collect(Collectors.toList());
-    if (mixsFound.size() != 1) {
+    Mix mix = currentMixsByInputsHash.get(inputsHash);
+    if (mix == null) {
       throw new IllegalInputException("Mix not found for inputsHash");
     }
-    Mix mix = mixsFound.get(0);
     if (mixStatus != null && !mixStatus.equals(mix.getMixStatus())) {
       throw new MixException(
           "Operation not permitted for current mix status: expected="
@@ -598,7 +762,7 @@ public class MixService {
       tx.setWitness(inputIndex, witness);
     }
 
-    // check final transaction
+    // witnesses were verified on registerSignature(), just check final transaction structure
     tx.verify();
 
     return tx;
@@ -652,90 +816,156 @@ public class MixService {
     exportService.exportMix(mix);
   }
 
-  public synchronized void onClientDisconnect(String username) {
+  public void onClientDisconnect(String username) {
+    // don't wait for busy pools: session cleanup shouldn't stall behind them
     for (Mix mix : getCurrentMixs()) {
-      String mixId = mix.getMixId();
+      mix.getPool().getSerialExecutor().submit(() -> disconnectFromMix(mix, username));
+    }
+  }
 
-      // mark registeredInput offline
-      List<ConfirmedInput> confirmedInputs =
-          mix.getInputs()
-              .parallelStream()
-              .filter(
-                  confirmedInput ->
-                      confirmedInput.getRegisteredInput().getUsername().equals(username))
-              .collect(Collectors.toList());
-      if (!confirmedInputs.isEmpty()) {
-        if (MixStatus.CONFIRM_INPUT.equals(mix.getMixStatus())) {
-          // mix not started yet => remove input as mix isn't started yet
-          confirmedInputs.forEach(
-              confirmedInput -> {
-                log.info(
-                    " • ["
-                        + mixId
-                        + "] unregistered "
-                        + (confirmedInput.getRegisteredInput().isLiquidity()
-                            ? "liquidity"
-                            : "mustMix")
-                        + " from registered inputs, username="
-                        + username);
-                mix.unregisterInput(confirmedInput);
-              });
-        } else {
-          // mix already started => mark input as offline
-          confirmedInputs.forEach(
-              confirmedInput -> {
-                log.info(
-                    " • ["
-                        + mixId
-                        + "] offlined "
-                        + (confirmedInput.getRegisteredInput().isLiquidity()
-                            ? "liquidity"
-                            : "mustMix")
-                        + " from running mix ( "
-                        + mix.getMixStatus()
-                        + "), username="
-                        + username);
-                confirmedInput.setOffline(true);
-              });
+  private void disconnectFromMix(Mix mix, String username) {
+    String mixId = mix.getMixId();
+
+    // mark registeredInput offline
+    List<ConfirmedInput> confirmedInputs =
+        mix.getInputs()
+            .parallelStream()
+            .filter(
+                confirmedInput ->
+                    confirmedInput.getRegisteredInput().getUsername().equals(username))
+            .collect(Collectors.toList());
+    if (!confirmedInputs.isEmpty()) {
+      if (MixStatus.CONFIRM_INPUT.equals(mix.getMixStatus())) {
+        // mix not started yet => remove input as mix isn't started yet
+        confirmedInputs.forEach(
+            confirmedInput -> {
+              log.info(
+                  " • ["
+                      + mixId
+                      + "] unregistered "
+                      + (confirmedInput.getRegisteredInput().isLiquidity()
+                          ? "liquidity"
+                          : "mustMix")
+                      + " from registered inputs, username="
+                      + username);
+              mix.unregisterInput(confirmedInput);
+            });
+        poolStatusService.onPoolChange(mix.getPool());
+      } else {
+        // mix already started => mark input as offline
+        confirmedInputs.forEach(
+            confirmedInput -> {
+              log.info(
+                  " • ["
+                      + mixId
+                      + "] offlined "
+                      + (confirmedInput.getRegisteredInput().isLiquidity()
+                          ? "liquidity"
+                          : "mustMix")
+                      + " from running mix ( "
+                      + mix.getMixStatus()
+                      + "), username="
+                      + username);
+              confirmedInput.setOffline(true);
+            });
+      }
+    }
+  }
+
+  // called for each tx seen in mempool, from any thread
+  public void onMempoolTx(Transaction tx) {
+    if (currentMixs.isEmpty()) {
+      return;
+    }
+    List<TxOutPoint> spentOutPoints = new ArrayList<>(tx.getInputs().size());
+    for (TransactionInput txInput : tx.getInputs()) {
+      TransactionOutPoint outPoint = txInput.getOutpoint();
+      spentOutPoints.add(new TxOutPoint(outPoint.getHash().toString(), outPoint.getIndex(), 0, 0));
+    }
+    for (Mix mix : getCurrentMixs()) {
+      for (TxOutPoint spentOutPoint : spentOutPoints) {
+        if (mix.hasInput(spentOutPoint)) {
+          String txid = tx.getHashAsString();
+          mix.getPool().getSerialExecutor().submit(() -> onInputSpent(mix, spentOutPoint, txid));
         }
       }
     }
   }
 
+  private void onInputSpent(Mix mix, TxOutPoint spentOutPoint, String txid) {
+    MixStatus mixStatus = mix.getMixStatus();
+    if (MixStatus.SUCCESS.equals(mixStatus) || MixStatus.FAIL.equals(mixStatus)) {
+      return;
+    }
+    if (mix.getTx() != null && txid.equals(mix.getTx().getHashAsString())) {
+      // spent by our own mix tx
+      return;
+    }
+    ConfirmedInput confirmedInput = mix.findInput(spentOutPoint).orElse(null);
+    if (confirmedInput == null) {
+      return;
+    }
+    String username = confirmedInput.getRegisteredInput().getUsername();
+    log.warn(
+        "["
+            + mix.getMixId()
+            + "] input double-spent: "
+            + spentOutPoint
+            + " by tx "
+            + txid
+            + ", username="
+            + username
+            + ", mixStatus="
+            + mixStatus);
+    if (MixStatus.CONFIRM_INPUT.equals(mixStatus)) {
+      // mix not started yet => just remove input
+      mix.unregisterInput(confirmedInput);
+      poolStatusService.onPoolChange(mix.getPool());
+      return;
+    }
+    // mix can't be completed anymore
+    blameService.blame(confirmedInput, BlameReason.DOUBLE_SPEND, mix.getMixId());
+    goFail(mix, FailReason.FAIL_DOUBLE_SPEND);
+  }
+
   private Collection<Mix> getCurrentMixs() {
     return currentMixs.values();
   }
 
   public void __reset() {
-    currentMixs = new HashMap<>();
+    currentMixs = new ConcurrentHashMap<>();
+    currentMixsByInputsHash = new ConcurrentHashMap<>();
     mixLimitsService.__reset();
     poolService
         .getPools()
         .forEach(
             pool -> {
+              pool.clearMixsInFlight();
               __nextMix(pool);
             });
   }
 
   public Mix __nextMix(Pool pool) {
     String mixId = Utils.generateUniqueString();
-    Mix mix = new Mix(mixId, pool, cryptoService);
-    startMix(mix);
+    Mix mix = new Mix(mixId, pool, keyPairPoolService.takeKeyPair(), cryptoService);
+    pool.getSerialExecutor().run(() -> startMix(mix));
     return mix;
   }
 
-  private synchronized void startMix(Mix mix) {
+  private void startMix(Mix mix) {
     Pool pool = mix.getPool();
     Mix currentMix = pool.getCurrentMix();
-    if (currentMix != null) {
-      mixLimitsService.unmanage(mix);
-      currentMixs.remove(currentMix.getMixId());
+    if (currentMix != null && MixStatus.CONFIRM_INPUT.equals(currentMix.getMixStatus())) {
+      // replace mix not started yet (running mixs are removed when finished)
+      removeMix(currentMix);
       // TODO disconnect all clients (except liquidities?)
     }
 
     String mixId = mix.getMixId();
     currentMixs.put(mixId, mix);
     pool.setCurrentMix(mix);
+    journalService.onMixStatus(mix);
+    poolStatusService.onPoolChange(pool);
 
     log.info("[NEW MIX " + mix.getMixId() + "]");
     logMixStatus(mix);
@@ -10,12 +10,12 @@ import com.samourai.whirlpool.server.beans.RegisteredInput;
 import com.samourai.whirlpool.server.beans.TxOutPoint;
 import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
 import com.samourai.whirlpool.server.exceptions.IllegalInputException;
-import com.samourai.whirlpool.server.exceptions.MixException;
 import java.lang.invoke.MethodHandles;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -28,16 +28,22 @@ public class PoolService {
   private WhirlpoolServerConfig whirlpoolServerConfig;
   private CryptoService cryptoService;
   private WebSocketService webSocketService;
+  private JournalService journalService;
+  private PoolStatusService poolStatusService;
   private Map<String, Pool> pools;
 
   @Autowired
   public PoolService(
       WhirlpoolServerConfig whirlpoolServerConfig,
       CryptoService cryptoService,
-      WebSocketService webSocketService) {
+      WebSocketService webSocketService,
+      JournalService journalService,
+      PoolStatusService poolStatusService) {
     this.whirlpoolServerConfig = whirlpoolServerConfig;
     this.cryptoService = cryptoService;
     this.webSocketService = webSocketService;
+    this.journalService = journalService;
+    this.poolStatusService = poolStatusService;
     __reset();
   }
 
@@ -47,6 +53,11 @@ public class PoolService {
   }
 
   public void __reset(WhirlpoolServerConfig.PoolConfig[] poolConfigs) {
+    if (pools != null) {
+      // stop executors of previous pools
+      pools.values().forEach(pool -> pool.getSerialExecutor().shutdown());
+    }
+    poolStatusService.__reset();
     pools = new HashMap<>();
     for (WhirlpoolServerConfig.PoolConfig poolConfig : poolConfigs) {
       String poolId = poolConfig.getId();
@@ -102,15 +113,32 @@ public class PoolService {
     return poolStatusNotification;
   }
 
-  public synchronized void registerInput(
+  public void registerInput(
       String poolId,
       String username,
       byte[] pubkey,
       boolean liquidity,
       TxOutPoint input,
       boolean inviteIfPossible)
-      throws IllegalInputException, MixException {
+      throws IllegalInputException {
     Pool pool = getPool(poolId);
+    pool.getSerialExecutor()
+        .call(
+            () -> {
+              doRegisterInput(pool, username, pubkey, liquidity, input, inviteIfPossible);
+              return null;
+            });
+  }
+
+  private void doRegisterInput(
+      Pool pool,
+      String username,
+      byte[] pubkey,
+      boolean liquidity,
+      TxOutPoint input,
+      boolean inviteIfPossible)
+      throws IllegalInputException {
+    String poolId = pool.getPoolId();
 
     // verify balance
     long inputBalance = input.getValue();
@@ -127,6 +155,10 @@ public class PoolService {
               + ")");
     }
 
+    // input registered again (ie: client reconnected after restart) => replace previous
+    // registration
+    removeFromPool(pool, input);
+
     RegisteredInput registeredInput = new RegisteredInput(username, pubkey, liquidity, input);
 
     // verify confirmations
@@ -139,6 +171,8 @@ public class PoolService {
               + ": "
               + input);
       pool.getUnconfirmedQueue().register(registeredInput);
+      journalService.onInputQueued(poolId, registeredInput);
+      poolStatusService.onPoolChange(pool);
       return;
     }
 
@@ -164,6 +198,8 @@ public class PoolService {
 
     // queue input
     queue.register(registeredInput);
+    journalService.onInputQueued(pool.getPoolId(), registeredInput);
+    poolStatusService.onPoolChange(pool);
 
     log.info(
         " • ["
@@ -180,6 +216,8 @@ public class PoolService {
     ConfirmInputMixStatusNotification confirmInputMixStatusNotification =
         new ConfirmInputMixStatusNotification(mix.getMixId(), publicKey64);
     mix.registerConfirmingInput(registeredInput);
+    journalService.onInputInvited(mix, registeredInput);
+    poolStatusService.onPoolChange(mix.getPool());
 
     log.info(
         " • ["
@@ -193,7 +231,8 @@ public class PoolService {
     webSocketService.sendPrivate(registeredInput.getUsername(), confirmInputMixStatusNotification);
   }
 
-  public synchronized int inviteAllToMix(Mix mix, boolean liquidity) {
+  // should be called from pool's serialExecutor
+  public int inviteAllToMix(Mix mix, boolean liquidity) {
     InputPool queue =
         (liquidity ? mix.getPool().getLiquidityQueue() : mix.getPool().getMustMixQueue());
     Optional<RegisteredInput> registeredInput;
@@ -205,6 +244,78 @@ public class PoolService {
     return nbInvited;
   }
 
+  /**
+   * Move unconfirmed inputs which reached enough confirmations to mix or queue. Inputs from
+   * droppedHashs (txs not found anymore) are removed.
+   */
+  public int promoteUnconfirmedInputs(
+      Pool pool, Map<String, Integer> confirmationsByHash, Set<String> droppedHashs) {
+    return pool.getSerialExecutor()
+        .call(() -> doPromoteUnconfirmedInputs(pool, confirmationsByHash, droppedHashs));
+  }
+
+  private int doPromoteUnconfirmedInputs(
+      Pool pool, Map<String, Integer> confirmationsByHash, Set<String> droppedHashs) {
+    int nbPromoted = 0;
+    for (RegisteredInput unconfirmedInput : pool.getUnconfirmedQueue().getInputs()) {
+      TxOutPoint input = unconfirmedInput.getInput();
+      if (droppedHashs.contains(input.getHash())) {
+        // tx dropped from mempool (replaced or expired) => input will never confirm
+        pool.getUnconfirmedQueue().removeByInput(input);
+        journalService.onInputRemoved(pool.getPoolId(), unconfirmedInput);
+        poolStatusService.onPoolChange(pool);
+        log.info(
+            " • ["
+                + pool.getPoolId()
+                + "] removed unconfirmed UTXO, tx not found anymore, username="
+                + unconfirmedInput.getUsername()
+                + ": "
+                + input);
+        continue;
+      }
+      Integer confirmations = confirmationsByHash.get(input.getHash());
+      boolean liquidity = unconfirmedInput.isLiquidity();
+      int minConfirmations =
+          liquidity
+              ? whirlpoolServerConfig.getRegisterInput().getMinConfirmationsLiquidity()
+              : whirlpoolServerConfig.getRegisterInput().getMinConfirmationsMustMix();
+      if (confirmations == null || confirmations < minConfirmations) {
+        continue;
+      }
+
+      // remove from unconfirmed queue
+      pool.getUnconfirmedQueue().removeByInput(input);
+      journalService.onInputRemoved(pool.getPoolId(), unconfirmedInput);
+
+      TxOutPoint confirmedInput =
+          new TxOutPoint(input.getHash(), input.getIndex(), input.getValue(), confirmations);
+      RegisteredInput registeredInput =
+          new RegisteredInput(
+              unconfirmedInput.getUsername(),
+              unconfirmedInput.getPubkey(),
+              liquidity,
+              confirmedInput);
+      log.info(
+          " • ["
+              + pool.getPoolId()
+              + "] promoted confirmed UTXO "
+              + (liquidity ? "liquidity" : "mustMix")
+              + ": "
+              + confirmedInput);
+
+      Mix currentMix = pool.getCurrentMix();
+      if (currentMix.isInvitationOpen(liquidity)) {
+        // mix invitation open => directly invite to mix
+        inviteToMix(currentMix, registeredInput);
+      } else {
+        // enqueue in pool
+        queueToPool(pool, registeredInput);
+      }
+      nbPromoted++;
+    }
+    return nbPromoted;
+  }
+
   private boolean isUtxoConfirmed(TxOutPoint txOutPoint, boolean liquidity) {
     int inputConfirmations = txOutPoint.getConfirmations();
     if (liquidity) {
@@ -235,31 +346,65 @@ public class PoolService {
     return true;
   }
 
-  public synchronized void onClientDisconnect(String username) {
+  public void onClientDisconnect(String username) {
     for (Pool pool : getPools()) {
-      // remove queued liquidity
-      boolean liquidityRemoved = pool.getLiquidityQueue().removeByUsername(username).isPresent();
-      if (liquidityRemoved) {
-        log.info(
-            " • [" + pool.getPoolId() + "] removed 1 liquidity from pool, username=" + username);
-      }
+      pool.getSerialExecutor().submit(() -> removeFromPool(pool, username));
+    }
+  }
 
-      // remove queued mustMix
-      boolean mustMixRemoved = pool.getMustMixQueue().removeByUsername(username).isPresent();
-      if (mustMixRemoved) {
-        log.info(" • [" + pool.getPoolId() + "] removed 1 mustMix from pool, username=" + username);
-      }
+  private void removeFromPool(Pool pool, TxOutPoint input) {
+    Optional<RegisteredInput> removed = pool.getLiquidityQueue().removeByInput(input);
+    if (!removed.isPresent()) {
+      removed = pool.getMustMixQueue().removeByInput(input);
+    }
+    if (!removed.isPresent()) {
+      removed = pool.getUnconfirmedQueue().removeByInput(input);
+    }
+    if (removed.isPresent()) {
+      journalService.onInputRemoved(pool.getPoolId(), removed.get());
+    } else {
+      removed = pool.getCurrentMix().removeConfirmingInput(input);
+    }
+    if (removed.isPresent()) {
+      log.info(
+          " • ["
+              + pool.getPoolId()
+              + "] replacing previous registration, username="
+              + removed.get().getUsername()
+              + ": "
+              + input);
+    }
+  }
 
-      // remove unconfirmed utxo
-      boolean unconfirmedInputRemoved =
-          pool.getUnconfirmedQueue().removeByUsername(username).isPresent();
-      if (unconfirmedInputRemoved) {
-        log.info(
-            " • ["
-                + pool.getPoolId()
-                + "] removed 1 unconfirmed UTXO from pool, username="
-                + username);
-      }
+  private void removeFromPool(Pool pool, String username) {
+    // remove queued liquidity
+    Optional<RegisteredInput> liquidityRemoved =
+        pool.getLiquidityQueue().removeByUsername(username);
+    if (liquidityRemoved.isPresent()) {
+      journalService.onInputRemoved(pool.getPoolId(), liquidityRemoved.get());
+      poolStatusService.onPoolChange(pool);
+      log.info(" • [" + pool.getPoolId() + "] removed 1 liquidity from pool, username=" + username);
+    }
+
+    // remove queued mustMix
+    Optional<RegisteredInput> mustMixRemoved = pool.getMustMixQueue().removeByUsername(username);
+    if (mustMixRemoved.isPresent()) {
+      journalService.onInputRemoved(pool.getPoolId(), mustMixRemoved.get());
+      poolStatusService.onPoolChange(pool);
+      log.info(" • [" + pool.getPoolId() + "] removed 1 mustMix from pool, username=" + username);
+    }
+
+    // remove unconfirmed utxo
+    Optional<RegisteredInput> unconfirmedInputRemoved =
+        pool.getUnconfirmedQueue().removeByUsername(username);
+    if (unconfirmedInputRemoved.isPresent()) {
+      journalService.onInputRemoved(pool.getPoolId(), unconfirmedInputRemoved.get());
+      poolStatusService.onPoolChange(pool);
+      log.info(
+          " • ["
+              + pool.getPoolId()
+              + "] removed 1 unconfirmed UTXO from pool, username="
+              + username);
     }
   }
 }
@@ -0,0 +1,117 @@
+package com.samourai.whirlpool.server.services;
+
+import com.samourai.whirlpool.protocol.rest.PoolInfo;
+import com.samourai.whirlpool.server.beans.Mix;
+import com.samourai.whirlpool.server.beans.Pool;
+import com.samourai.whirlpool.server.beans.PoolStatusDelta;
+import java.lang.invoke.MethodHandles;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Publishes pool status changes on a topic per pool. Changes are coalesced (at most one update per
+ * pool each PUBLISH_INTERVAL) and only changed fields are sent.
+ */
+@Service
+public class PoolStatusService {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  public static final String TOPIC_POOL_STATUS = "/topic/pools/";
+  private static final long PUBLISH_INTERVAL = 500;
+
+  private WebSocketService webSocketService;
+  private TaskService taskService;
+  private Map<String, PoolStatusState> states; // by poolId
+
+  @Autowired
+  public PoolStatusService(WebSocketService webSocketService, TaskService taskService) {
+    this.webSocketService = webSocketService;
+    this.taskService = taskService;
+    this.states = new ConcurrentHashMap<>();
+  }
+
+  // should be called when pools are reset: updates scheduled on previous pools are lost
+  public void __reset() {
+    states.clear();
+  }
+
+  public PoolInfo computePoolInfo(Pool pool) {
+    Mix currentMix = pool.getCurrentMix();
+
+    int nbRegistered = computeNbRegistered(pool);
+    int mixNbConfirmed = currentMix.getNbInputs();
+    PoolInfo poolInfo =
+        new PoolInfo(
+            pool.getPoolId(),
+            pool.getDenomination(),
+            pool.getMinerFeeMin(),
+            pool.getMinerFeeMax(),
+            pool.getMinAnonymitySet(),
+            nbRegistered,
+            currentMix.getTargetAnonymitySet(),
+            currentMix.getMixStatus(),
+            currentMix.getElapsedTime(),
+            mixNbConfirmed);
+    return poolInfo;
+  }
+
+  private int computeNbRegistered(Pool pool) {
+    return pool.getCurrentMix().getNbConfirmingInputs()
+        + pool.getMustMixQueue().getSize()
+        + pool.getLiquidityQueue().getSize()
+        + pool.getUnconfirmedQueue().getSize();
+  }
+
+  // should be called from pool's serialExecutor
+  public void onPoolChange(Pool pool) {
+    PoolStatusState state = states.computeIfAbsent(pool.getPoolId(), k -> new PoolStatusState());
+    synchronized (state) {
+      if (state.scheduled) {
+        // already scheduled, change will be published with it
+        return;
+      }
+      state.scheduled = true;
+      long delay =
+          Math.max(0, state.lastPublishTime + PUBLISH_INTERVAL - System.currentTimeMillis());
+      taskService.runOnce(delay, () -> pool.getSerialExecutor().submit(() -> publish(pool, state)));
+    }
+  }
+
+  private void publish(Pool pool, PoolStatusState state) {
+    PoolStatusDelta status = computeStatus(pool);
+    PoolStatusDelta delta;
+    synchronized (state) {
+      state.scheduled = false;
+      state.lastPublishTime = System.currentTimeMillis();
+      delta = PoolStatusDelta.compute(state.lastStatus, status);
+      state.lastStatus = status;
+    }
+    if (!delta.hasChanges()) {
+      return;
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("[" + pool.getPoolId() + "] poolStatus: " + delta);
+    }
+    webSocketService.sendTopic(TOPIC_POOL_STATUS + pool.getPoolId(), delta);
+  }
+
+  // fields published on changes (pool configuration is only sent on subscribe)
+  private PoolStatusDelta computeStatus(Pool pool) {
+    Mix currentMix = pool.getCurrentMix();
+    return new PoolStatusDelta(
+        pool.getPoolId(),
+        computeNbRegistered(pool),
+        currentMix.getTargetAnonymitySet(),
+        currentMix.getMixStatus(),
+        currentMix.getNbInputs());
+  }
+
+  private static class PoolStatusState {
+    private boolean scheduled = false;
+    private long lastPublishTime = 0;
+    private PoolStatusDelta lastStatus = new PoolStatusDelta(); // nothing published yet
+  }
+}
@@ -1,10 +1,12 @@
 package com.samourai.whirlpool.server.services;
 
+import com.samourai.whirlpool.server.beans.RegisteredInput;
 import com.samourai.whirlpool.server.beans.TxOutPoint;
 import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
 import com.samourai.whirlpool.server.exceptions.IllegalInputException;
-import com.samourai.whirlpool.server.exceptions.MixException;
 import java.lang.invoke.MethodHandles;
+import java.util.List;
+import java.util.Map;
 import org.bitcoinj.core.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,7 +37,7 @@ public class RegisterInputService {
     this.whirlpoolServerConfig = whirlpoolServerConfig;
   }
 
-  public synchronized void registerInput(
+  public void registerInput(
       String poolId,
       String username,
       byte[] pubkey,
@@ -44,7 +46,7 @@ public class RegisterInputService {
       long utxoIndex,
       boolean liquidity,
       boolean testMode)
-      throws IllegalInputException, MixException {
+      throws IllegalInputException {
     if (!cryptoService.isValidTxHash(utxoHash)) {
       throw new IllegalInputException("Invalid utxoHash");
     }
@@ -70,6 +72,45 @@ public class RegisterInputService {
     poolService.registerInput(poolId, username, pubkey, liquidity, txOutPoint, true);
   }
 
+  /**
+   * Requeue inputs which were queued before restart. Each input is validated again, as it may have
+   * been spent or banned while server was down.
+   */
+  public int recoverInputs(Map<String, List<RegisteredInput>> recoveredInputsByPool) {
+    int nbRecovered = 0;
+    for (Map.Entry<String, List<RegisteredInput>> entry : recoveredInputsByPool.entrySet()) {
+      String poolId = entry.getKey();
+      for (RegisteredInput recoveredInput : entry.getValue()) {
+        TxOutPoint input = recoveredInput.getInput();
+        try {
+          if (blameService.isBannedUTXO(input.getHash(), input.getIndex())) {
+            throw new IllegalInputException("Banned from service");
+          }
+          // tx0 checks are still skipped when server runs in testMode
+          TxOutPoint txOutPoint =
+              blockchainService.validateAndGetPremixInput(
+                  input.getHash(),
+                  input.getIndex(),
+                  recoveredInput.getPubkey(),
+                  recoveredInput.isLiquidity(),
+                  true);
+          poolService.registerInput(
+              poolId,
+              recoveredInput.getUsername(),
+              recoveredInput.getPubkey(),
+              recoveredInput.isLiquidity(),
+              txOutPoint,
+              false);
+          nbRecovered++;
+        } catch (Exception e) {
+          log.warn(
+              " • [" + poolId + "] recovered input rejected: " + input + ": " + e.getMessage());
+        }
+      }
+    }
+    return nbRecovered;
+  }
+
   private void checkInputSignature(String message, byte[] pubkeyHex, String signature)
       throws IllegalInputException {
     if (log.isDebugEnabled()) {
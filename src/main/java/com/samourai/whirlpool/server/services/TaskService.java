@@ -1,25 +1,49 @@
 package com.samourai.whirlpool.server.services;
 
+import com.samourai.whirlpool.server.utils.timeout.HashedWheelTimer;
+import com.samourai.whirlpool.server.utils.timeout.ITimeoutWatcherListener;
+import com.samourai.whirlpool.server.utils.timeout.TimeoutWatcher;
 import java.lang.invoke.MethodHandles;
-import java.util.Date;
-import java.util.concurrent.ScheduledFuture;
+import javax.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Service;
 
+/** Shared timer for mix timeouts: one thread for all pools and mixs. */
 @Service
 public class TaskService {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final long TICK_DURATION = 100; // ms
+  private static final int WHEEL_SIZE = 512;
 
-  private TaskScheduler taskScheduler;
+  private HashedWheelTimer timer;
 
-  public TaskService(TaskScheduler taskScheduler) {
-    this.taskScheduler = taskScheduler;
+  public TaskService() {
+    this.timer = new HashedWheelTimer("timer", TICK_DURATION, WHEEL_SIZE);
   }
 
-  public ScheduledFuture runOnce(long delayMilliSeconds, Runnable runnable) {
-    return taskScheduler.schedule(
-        runnable, new Date(System.currentTimeMillis() + delayMilliSeconds));
+  public HashedWheelTimer.Timeout runOnce(long delayMilliSeconds, Runnable runnable) {
+    return timer.newTimeout(runnable, delayMilliSeconds);
+  }
+
+  public TimeoutWatcher newTimeoutWatcher(ITimeoutWatcherListener listener) {
+    return new TimeoutWatcher(listener, timer);
+  }
+
+  public int getNbTimers() {
+    return timer.getNbTimeouts();
+  }
+
+  public long getTickLag() {
+    return timer.getTickLag();
+  }
+
+  public long getMaxTickLag() {
+    return timer.getMaxTickLag();
+  }
+
+  @PreDestroy
+  public void stop() {
+    timer.stop();
   }
 }
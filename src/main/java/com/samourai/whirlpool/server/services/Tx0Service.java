@@ -9,12 +9,22 @@ import com.samourai.whirlpool.server.beans.rpc.RpcOutWithTx;
 import com.samourai.whirlpool.server.beans.rpc.RpcTransaction;
 import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
 import com.samourai.whirlpool.server.exceptions.IllegalInputException;
+import com.samourai.whirlpool.server.utils.BoundedExecutor;
+import com.samourai.whirlpool.server.utils.Utils;
 import java.lang.invoke.MethodHandles;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import org.bitcoinj.core.ECKey;
 import org.bitcoinj.crypto.ChildNumber;
 import org.bitcoinj.crypto.DeterministicKey;
@@ -24,19 +34,23 @@ import org.bitcoinj.script.ScriptChunk;
 import org.bitcoinj.script.ScriptOpCodes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 @Service
 public class Tx0Service {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   private static final String CACHE_CHECK_INPUT = "Tx0Service.checkInput";
+  private static final int RPC_BATCH_SIZE = 100;
 
   private BlockchainDataService blockchainDataService;
   private CryptoService cryptoService;
   private FormatsUtilGeneric formatsUtil;
   private WhirlpoolServerConfig whirlpoolServerConfig;
   private CacheService cacheService;
+  private TxStoreService txStoreService;
   private Bech32UtilGeneric bech32Util;
+  private BoundedExecutor rpcExecutor;
 
   public Tx0Service(
       BlockchainDataService blockchainDataService,
@@ -44,13 +58,20 @@ public class Tx0Service {
       FormatsUtilGeneric formatsUtil,
       WhirlpoolServerConfig whirlpoolServerConfig,
       CacheService cacheService,
-      Bech32UtilGeneric bech32UtilGeneric) {
+      TxStoreService txStoreService,
+      Bech32UtilGeneric bech32UtilGeneric,
+      @Qualifier("tx0CheckExecutor") BoundedExecutor rpcExecutor) {
     this.blockchainDataService = blockchainDataService;
     this.cryptoService = cryptoService;
     this.formatsUtil = formatsUtil;
     this.whirlpoolServerConfig = whirlpoolServerConfig;
     this.cacheService = cacheService;
+    this.txStoreService = txStoreService;
     this.bech32Util = bech32UtilGeneric;
+    this.rpcExecutor = rpcExecutor;
+
+    // failures such as missing origin tx may be resolved by next block
+    cacheService.setConfirmationSensitive(CACHE_CHECK_INPUT);
   }
 
   protected boolean checkInput(RpcOutWithTx rpcOutWithTx) throws IllegalInputException {
@@ -75,7 +96,7 @@ public class Tx0Service {
   private boolean checkInput(RpcTransaction tx, long denomination, List<String> txsPath)
       throws IllegalInputException {
     // use cache
-    String cacheKey = tx.getTxid() + ":" + denomination;
+    String cacheKey = computeCacheKey(tx, denomination);
     boolean liquidity =
         cacheService.getOrPutCachedResult(
             CACHE_CHECK_INPUT, cacheKey, (v) -> doCheckInputCacheable(tx, denomination, txsPath));
@@ -84,6 +105,11 @@ public class Tx0Service {
 
   protected CachedResult<Boolean, IllegalInputException> doCheckInputCacheable(
       RpcTransaction tx, long denomination, List<String> txsPath) {
+    // verified before restart?
+    Optional<Boolean> verified = txStoreService.findVerified(tx.getTxid(), denomination);
+    if (verified.isPresent()) {
+      return new CachedResult(verified.get());
+    }
     try {
       // is it a tx0?
       Integer x = findSamouraiFeesXpubIndiceFromTx0(tx);
@@ -103,6 +129,7 @@ public class Tx0Service {
                   + txsPathStr
                   + ")");
         }
+        txStoreService.putVerified(tx.getTxid(), denomination, false);
         return new CachedResult(false);
       } else {
         // this is not a valid tx0 => may be a liquidity coming from a previous whirlpool tx, or an
@@ -111,6 +138,7 @@ public class Tx0Service {
         // check valid whirlpool tx
         checkWhirlpoolTx(tx, denomination, txsPath);
 
+        txStoreService.putVerified(tx.getTxid(), denomination, true);
         return new CachedResult(true);
       }
     } catch (IllegalInputException e) {
@@ -118,11 +146,147 @@ public class Tx0Service {
     }
   }
 
+  /**
+   * Check tx is a valid whirlpool tx, with each input coming from a valid tx0 or another valid
+   * whirlpool tx. Ancestry is verified iteratively level by level, origins of a level being fetched
+   * with RPC batches. Aborts on first invalid tx.
+   */
   protected void checkWhirlpoolTx(RpcTransaction tx, long denomination, List<String> txsPath)
       throws IllegalInputException {
+    TxNode root = new TxNode(tx, null, null);
+    checkWhirlpoolTxStructure(root, denomination, txsPath);
+
+    Set<String> visited = new HashSet<>();
+    visited.add(tx.getTxid());
+    List<TxNode> verified = new ArrayList<>(); // verified ancestors, to be cached on success
+    List<TxNode> level = Arrays.asList(root);
+    while (!level.isEmpty()) {
+      Map<String, CompletableFuture<Optional<RpcTransaction>>> origins = fetchOrigins(level);
+      try {
+        // each input should be >= the denomination
+        Map<TxNode, List<RpcOutWithTx>> originsByNode = new LinkedHashMap<>();
+        for (TxNode node : level) {
+          originsByNode.put(node, checkWhirlpoolTxInputs(node, denomination, txsPath, origins));
+        }
+
+        // each input should come from a valid tx0 or from another whirlpool tx
+        List<TxNode> nextLevel = new ArrayList<>();
+        for (Map.Entry<TxNode, List<RpcOutWithTx>> entry : originsByNode.entrySet()) {
+          for (RpcOutWithTx rpcOutWithTxOrigin : entry.getValue()) {
+            RpcTransaction txOrigin = rpcOutWithTxOrigin.getTx();
+            if (!visited.add(txOrigin.getTxid())) {
+              continue; // already verified through another input
+            }
+            TxNode node = new TxNode(txOrigin, entry.getKey(), rpcOutWithTxOrigin.getRpcOut());
+            if (checkAncestor(node, denomination, txsPath)) {
+              nextLevel.add(node);
+            }
+            if (node.isTx0 != null) {
+              verified.add(node);
+            }
+          }
+        }
+        level = nextLevel;
+      } finally {
+        // abort pending fetches on failure
+        origins.values().forEach(future -> future.cancel(false));
+      }
+    }
+
+    // OK, this is a valid whirlpool TX => remember verified ancestors
+    for (TxNode node : verified) {
+      cacheService.put(
+          CACHE_CHECK_INPUT, computeCacheKey(node.tx, denomination), new CachedResult(!node.isTx0));
+      txStoreService.putVerified(node.tx.getTxid(), denomination, !node.isTx0);
+    }
+  }
+
+  private Map<String, CompletableFuture<Optional<RpcTransaction>>> fetchOrigins(
+      List<TxNode> level) {
+    Set<String> hashs = new LinkedHashSet<>();
+    for (TxNode node : level) {
+      for (RpcIn in : node.tx.getIns()) {
+        hashs.add(in.getOriginHash());
+      }
+    }
+
+    // one RPC batch per RPC_BATCH_SIZE origins
+    Map<String, CompletableFuture<Optional<RpcTransaction>>> origins = new LinkedHashMap<>();
+    List<String> batch = new ArrayList<>(RPC_BATCH_SIZE);
+    for (String hash : hashs) {
+      batch.add(hash);
+      if (batch.size() == RPC_BATCH_SIZE) {
+        fetchOriginsBatch(batch, origins);
+        batch = new ArrayList<>(RPC_BATCH_SIZE);
+      }
+    }
+    if (!batch.isEmpty()) {
+      fetchOriginsBatch(batch, origins);
+    }
+    return origins;
+  }
+
+  private void fetchOriginsBatch(
+      List<String> batch, Map<String, CompletableFuture<Optional<RpcTransaction>>> origins) {
+    CompletableFuture<Map<String, RpcTransaction>> batchFuture =
+        CompletableFuture.supplyAsync(
+            () -> blockchainDataService.getRpcTransactions(batch), rpcExecutor);
+    for (String hash : batch) {
+      origins.put(hash, batchFuture.thenApply(txs -> Optional.ofNullable(txs.get(hash))));
+    }
+  }
+
+  // returns false when no further verification is needed for this ancestor
+  private boolean checkAncestor(TxNode node, long denomination, List<String> txsPath)
+      throws IllegalInputException {
+    String cacheKey = computeCacheKey(node.tx, denomination);
+    CachedResult<Boolean, IllegalInputException> cachedResult =
+        cacheService.get(CACHE_CHECK_INPUT, cacheKey, CachedResult.class);
+    if (cachedResult != null) {
+      // already verified with its ancestors
+      cachedResult.getOrException();
+      return false;
+    }
+    Optional<Boolean> verified = txStoreService.findVerified(node.tx.getTxid(), denomination);
+    if (verified.isPresent()) {
+      // verified before restart
+      return false;
+    }
+    try {
+      // is it a tx0?
+      Integer x = findSamouraiFeesXpubIndiceFromTx0(node.tx);
+      if (x != null) {
+        if (!isTx0FeesPaid(node.tx, x)) {
+          List<String> nodePath = computeTxsPath(node, txsPath);
+          nodePath.add("tx0:" + node.tx.getTxid());
+          throw new IllegalInputException(
+              "Input doesn't belong to a Samourai pre-mix wallet (fees payment not valid for tx0 "
+                  + node.tx.getTxid()
+                  + ", x="
+                  + x
+                  + ") (verified path:"
+                  + txsPathToString(nodePath)
+                  + ")");
+        }
+        node.isTx0 = true;
+        return false;
+      }
+      checkWhirlpoolTxStructure(node, denomination, txsPath);
+      node.isTx0 = false;
+      return true;
+    } catch (IllegalInputException e) {
+      cacheService.put(CACHE_CHECK_INPUT, cacheKey, new CachedResult(e));
+      throw e;
+    }
+  }
+
+  private void checkWhirlpoolTxStructure(TxNode node, long denomination, List<String> txsPath)
+      throws IllegalInputException {
+    RpcTransaction tx = node.tx;
+
     // tx should have same number of inputs-outputs > 1
     if (tx.getIns().size() != tx.getOuts().size() || tx.getIns().size() < 2) {
-      String txsPathStr = txsPathToString(txsPath);
+      String txsPathStr = txsPathToString(computeTxsPath(node, txsPath));
       throw new IllegalInputException(
           tx.getTxid()
               + " is not a valid whirlpool tx, inputs/outputs count mismatch (verified path:"
@@ -133,7 +297,7 @@ public class Tx0Service {
     // each output should match the denomination
     for (RpcOut out : tx.getOuts()) {
       if (out.getValue() != denomination) {
-        String txsPathStr = txsPathToString(txsPath);
+        String txsPathStr = txsPathToString(computeTxsPath(node, txsPath));
         throw new IllegalInputException(
             tx.getTxid()
                 + " is not a valid whirlpool tx, denomination mismatch for output "
@@ -145,14 +309,20 @@ public class Tx0Service {
                 + ")");
       }
     }
+  }
 
-    Map<Long, RpcOutWithTx> cachedOrigins = new HashMap();
+  private List<RpcOutWithTx> checkWhirlpoolTxInputs(
+      TxNode node,
+      long denomination,
+      List<String> txsPath,
+      Map<String, CompletableFuture<Optional<RpcTransaction>>> origins)
+      throws IllegalInputException {
+    RpcTransaction tx = node.tx;
+    List<RpcOutWithTx> rpcOutWithTxOrigins = new ArrayList<>(tx.getIns().size());
     for (RpcIn in : tx.getIns()) {
-      // RPC request
-      // !!!!!!!! TODO cache
       RpcOutWithTx rpcOutWithTxOrigin =
-          blockchainDataService
-              .getRpcOutWithTx(in.getOriginHash(), in.getOriginIndex())
+          joinOrigin(origins.get(in.getOriginHash()))
+              .flatMap(txOrigin -> Utils.getRpcOutWithTx(txOrigin, in.getOriginIndex()))
               .orElseThrow(
                   () ->
                       new IllegalInputException(
@@ -160,12 +330,10 @@ public class Tx0Service {
                               + in.getOriginHash()
                               + "-"
                               + in.getOriginIndex()));
-      cachedOrigins.put(in.getOriginIndex(), rpcOutWithTxOrigin);
 
-      // each input should be >= the denomination
       RpcOut outOrigin = rpcOutWithTxOrigin.getRpcOut();
       if (outOrigin.getValue() < denomination) {
-        String txsPathStr = txsPathToString(txsPath);
+        String txsPathStr = txsPathToString(computeTxsPath(node, txsPath));
         throw new IllegalInputException(
             tx.getTxid()
                 + " is not a valid whirlpool tx, denomination mismatch for input "
@@ -176,25 +344,34 @@ public class Tx0Service {
                 + txsPathStr
                 + ")");
       }
+      rpcOutWithTxOrigins.add(rpcOutWithTxOrigin);
     }
+    return rpcOutWithTxOrigins;
+  }
 
-    // recursively check each input validity: should come from a valid tx0 or from another whirlpool
-    // tx)
-    for (RpcIn in : tx.getIns()) {
-      RpcOutWithTx rpcOutWithTxOrigin = cachedOrigins.get(in.getOriginIndex());
-      RpcOut outOrigin = rpcOutWithTxOrigin.getRpcOut();
-      RpcTransaction txOrigin = rpcOutWithTxOrigin.getTx();
-
-      List<String> txsPathNew = new ArrayList<>(txsPath);
-      txsPathNew.add("mixInput:" + outOrigin.getHash() + "-" + outOrigin.getIndex());
+  private Optional<RpcTransaction> joinOrigin(CompletableFuture<Optional<RpcTransaction>> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
 
-      checkInput(
-          txOrigin,
-          denomination,
-          txsPathNew); // denomination from previous whirlpool should be the same
+  // path is only computed when reporting an error
+  private List<String> computeTxsPath(TxNode node, List<String> txsPath) {
+    LinkedList<String> nodePath = new LinkedList<>();
+    for (TxNode n = node; n.parent != null; n = n.parent) {
+      nodePath.addFirst("mixInput:" + n.outOrigin.getHash() + "-" + n.outOrigin.getIndex());
     }
+    nodePath.addAll(0, txsPath);
+    return nodePath;
+  }
 
-    // OK, this is a valid whirlpool TX
+  private String computeCacheKey(RpcTransaction tx, long denomination) {
+    return tx.getTxid() + ":" + denomination;
   }
 
   private String txsPathToString(List<String> txsPath) {
@@ -264,4 +441,18 @@ public class Tx0Service {
     }
     return null;
   }
+
+  private static class TxNode {
+    private RpcTransaction tx;
+    private TxNode parent; // tx spending this one (null for verified tx)
+    private RpcOut outOrigin; // output spent by parent
+    private Boolean isTx0; // set once verified
+
+    TxNode(RpcTransaction tx, TxNode parent, RpcOut outOrigin) {
+      this.tx = tx;
+      this.parent = parent;
+      this.outOrigin = outOrigin;
+      this.isTx0 = null;
+    }
+  }
 }
@@ -0,0 +1,124 @@
+package com.samourai.whirlpool.server.services;
+
+import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
+import com.samourai.whirlpool.server.utils.MappedTxStore;
+import java.io.File;
+import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PreDestroy;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Persistent store of txs verified as tx0 or whirlpool tx, keyed by txid and denomination in a
+ * single file. Only valid txs are stored, so that ancestries don't have to be walked again after
+ * restart.
+ */
+@Service
+public class TxStoreService {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final byte VALUE_TX0 = 1;
+  private static final byte VALUE_WHIRLPOOL_TX = 2;
+  private static final String FILENAME = "verified.dat";
+
+  private boolean enabled;
+  private MappedTxStore store; // null when disabled or failed to open
+
+  private AtomicLong nbHits;
+  private AtomicLong nbMisses;
+
+  @Autowired
+  public TxStoreService(WhirlpoolServerConfig whirlpoolServerConfig) throws Exception {
+    this.enabled = whirlpoolServerConfig.getTxStore().isEnabled();
+    this.store = null;
+    this.nbHits = new AtomicLong(0);
+    this.nbMisses = new AtomicLong(0);
+
+    if (!enabled) {
+      log.warn("txStore is disabled");
+      return;
+    }
+    File directory = new File(whirlpoolServerConfig.getTxStore().getDirectory());
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new Exception("txStore directory doesn't exist: " + directory.getAbsolutePath());
+    }
+
+    // tx0 verification depends on fees configuration
+    WhirlpoolServerConfig.SamouraiFeeConfig samouraiFees = whirlpoolServerConfig.getSamouraiFees();
+    String rules = samouraiFees.getXpub() + ":" + samouraiFees.getAmount();
+    long fingerprint =
+        Sha256Hash.of(rules.getBytes(StandardCharsets.UTF_8)).toBigInteger().longValue();
+
+    File file = new File(directory, FILENAME);
+    try {
+      this.store = new MappedTxStore(file, fingerprint);
+    } catch (Exception e) {
+      // txs will be verified again
+      log.error("txStore: unable to open " + file.getAbsolutePath(), e);
+    }
+  }
+
+  /** @return true for a verified whirlpool tx, false for a verified tx0, empty when unknown */
+  public Optional<Boolean> findVerified(String txid, long denomination) {
+    if (store == null) {
+      return Optional.empty();
+    }
+    byte value = store.get(computeKey(txid, denomination));
+    if (value == 0) {
+      nbMisses.incrementAndGet();
+      return Optional.empty();
+    }
+    nbHits.incrementAndGet();
+    return Optional.of(value == VALUE_WHIRLPOOL_TX);
+  }
+
+  public void putVerified(String txid, long denomination, boolean isWhirlpoolTx) {
+    if (store == null) {
+      return;
+    }
+    try {
+      store.put(computeKey(txid, denomination), isWhirlpoolTx ? VALUE_WHIRLPOOL_TX : VALUE_TX0);
+    } catch (Exception e) {
+      log.error("txStore: unable to store " + txid, e);
+    }
+  }
+
+  // txid and denomination (utxo value for tx0) folded into a single key
+  private static byte[] computeKey(String txid, long denomination) {
+    byte[] txidBytes = Utils.HEX.decode(txid);
+    ByteBuffer key = ByteBuffer.allocate(txidBytes.length + 8);
+    key.put(txidBytes).putLong(denomination);
+    return Sha256Hash.hash(key.array());
+  }
+
+  @PreDestroy
+  public void close() throws Exception {
+    if (store != null) {
+      store.close();
+      store = null;
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public int getSize() {
+    return store != null ? store.getSize() : 0;
+  }
+
+  public long getNbHits() {
+    return nbHits.get();
+  }
+
+  public long getNbMisses() {
+    return nbMisses.get();
+  }
+}
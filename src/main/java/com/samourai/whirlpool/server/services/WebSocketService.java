@@ -1,34 +1,60 @@
 package com.samourai.whirlpool.server.services;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.samourai.whirlpool.protocol.WhirlpoolProtocol;
 import com.samourai.whirlpool.protocol.websocket.messages.ErrorResponse;
+import com.samourai.whirlpool.server.utils.BoundedExecutor;
 import com.samourai.whirlpool.server.utils.Utils;
 import java.lang.invoke.MethodHandles;
 import java.util.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.task.TaskExecutor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
 import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Service;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
 
 @Service
 public class WebSocketService {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final MimeType CONTENT_TYPE =
+      new MimeType(MimeTypeUtils.APPLICATION_JSON, Collections.singletonMap("charset", "UTF-8"));
+
   private WhirlpoolProtocol whirlpoolProtocol;
   private SimpMessagingTemplate messagingTemplate;
-  private TaskExecutor taskExecutor;
+  private MessageHandler sessionMessageHandler;
+  private BoundedExecutor websocketExecutor;
+  private WebSocketSessionService webSocketSessionService;
+  private ObjectMapper objectMapper;
 
   @Autowired
   public WebSocketService(
       WhirlpoolProtocol whirlpoolProtocol,
       SimpMessagingTemplate messagingTemplate,
-      TaskExecutor taskExecutor) {
+      @Qualifier("subProtocolWebSocketHandler") MessageHandler sessionMessageHandler,
+      @Qualifier("websocketExecutor") BoundedExecutor websocketExecutor) {
     this.whirlpoolProtocol = whirlpoolProtocol;
     this.messagingTemplate = messagingTemplate;
-    this.taskExecutor = taskExecutor;
-    messagingTemplate.setMessageConverter(new MappingJackson2MessageConverter());
+    this.sessionMessageHandler = sessionMessageHandler;
+    this.websocketExecutor = websocketExecutor;
+    MappingJackson2MessageConverter messageConverter = new MappingJackson2MessageConverter();
+    messagingTemplate.setMessageConverter(messageConverter);
+    this.objectMapper = messageConverter.getObjectMapper();
+  }
+
+  // avoids circular reference
+  public void setWebSocketSessionService(WebSocketSessionService webSocketSessionService) {
+    this.webSocketSessionService = webSocketSessionService;
   }
 
   public void sendPrivate(String username, Object payload) {
@@ -45,16 +71,69 @@ public class WebSocketService {
               + ") : "
               + Utils.toJsonString(payload));
     }
-    usernames.forEach(
-        username -> {
-          taskExecutor.execute(
-              () ->
-                  messagingTemplate.convertAndSendToUser(
-                      username,
-                      whirlpoolProtocol.SOCKET_SUBSCRIBE_USER_REPLY,
-                      payload,
-                      computeHeaders(payload)));
-        });
+
+    // serialize payload once for all recipients
+    byte[] body = null;
+    Map<String, Object> headers = computeHeaders(payload);
+    if (webSocketSessionService != null) {
+      try {
+        body = objectMapper.writeValueAsBytes(payload);
+      } catch (Exception e) {
+        log.error("unable to serialize payload, falling back to messagingTemplate", e);
+      }
+    }
+
+    // pre-serialized messages are handed to the STOMP session handler from the per-user queue,
+    // not through the pooled clientOutboundChannel: messages to a user are delivered in the order
+    // they were sent. Broker path is only used until reply subscription is known.
+    for (String username : usernames) {
+      boolean sent = false;
+      if (body != null) {
+        for (WebSocketSession session : webSocketSessionService.getSessions(username)) {
+          String subscriptionId = webSocketSessionService.getReplySubscriptionId(session.getId());
+          if (subscriptionId != null) {
+            Message<byte[]> message =
+                computeMessage(session.getId(), subscriptionId, body, headers);
+            sendPrivateOrDisconnect(username, () -> sessionMessageHandler.handleMessage(message));
+            sent = true;
+          }
+        }
+      }
+      if (!sent) {
+        // subscription not known yet => let broker resolve user destination
+        sendPrivateOrDisconnect(
+            username,
+            () ->
+                messagingTemplate.convertAndSendToUser(
+                    username, whirlpoolProtocol.SOCKET_SUBSCRIBE_USER_REPLY, payload, headers));
+      }
+    }
+  }
+
+  // protocol messages are never dropped: a client too slow to receive them is disconnected, and
+  // goes through the normal disconnect path instead of being blamed for a message it never got
+  private void sendPrivateOrDisconnect(String username, Runnable send) {
+    if (websocketExecutor.execute(username, send)) {
+      return;
+    }
+    log.warn("(--> " + username + ") : too slow to receive messages, disconnecting");
+    if (webSocketSessionService == null) {
+      return;
+    }
+    for (WebSocketSession session : webSocketSessionService.getSessions(username)) {
+      try {
+        session.close(CloseStatus.SESSION_NOT_RELIABLE);
+      } catch (Exception e) {
+        log.error("unable to close session " + session.getId(), e);
+      }
+    }
+  }
+
+  public void sendTopic(String destination, Object payload) {
+    // topic messages are superseded by next ones: dropped when subscribers are too slow
+    websocketExecutor.execute(
+        destination,
+        () -> messagingTemplate.convertAndSend(destination, payload, computeHeaders(payload)));
   }
 
   public void sendPrivateError(String username, String message) {
@@ -69,4 +148,20 @@ public class WebSocketService {
     headers.put(whirlpoolProtocol.HEADER_PROTOCOL_VERSION, WhirlpoolProtocol.PROTOCOL_VERSION);
     return headers;
   }
+
+  // same message as broker would deliver to this subscription, with pre-serialized body
+  private Message<byte[]> computeMessage(
+      String sessionId, String subscriptionId, byte[] body, Map<String, Object> headers) {
+    SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+    accessor.setSessionId(sessionId);
+    accessor.setSubscriptionId(subscriptionId);
+    accessor.setDestination(
+        whirlpoolProtocol.SOCKET_SUBSCRIBE_USER_PRIVATE
+            + whirlpoolProtocol.SOCKET_SUBSCRIBE_USER_REPLY);
+    accessor.setContentType(CONTENT_TYPE);
+    for (Map.Entry<String, Object> header : headers.entrySet()) {
+      accessor.setNativeHeader(header.getKey(), header.getValue().toString());
+    }
+    return MessageBuilder.createMessage(body, accessor.getMessageHeaders());
+  }
 }
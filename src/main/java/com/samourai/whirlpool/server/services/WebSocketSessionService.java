@@ -1,32 +1,59 @@
 package com.samourai.whirlpool.server.services;
 
+import com.samourai.whirlpool.protocol.WhirlpoolProtocol;
 import com.samourai.whirlpool.server.config.websocket.WebSocketConfig;
+import com.samourai.whirlpool.server.utils.timeout.HashedWheelTimer;
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.stereotype.Service;
 import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
 
 @Service
 public class WebSocketSessionService {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
   private Map<String, Map<String, WebSocketSession>> sessions;
+  private Map<String, String> replySubscriptions; // sessionId -> subscriptionId
+  private Map<String, PendingReply> pendingReplies; // sessionId -> waiting for reply subscription
   private MixService mixService;
   private PoolService poolService;
+  private TaskService taskService;
+  private String replyDestination;
 
   @Autowired
   public WebSocketSessionService(
-      MixService mixService, PoolService poolService, WebSocketConfig websocketConfig) {
+      MixService mixService,
+      PoolService poolService,
+      TaskService taskService,
+      WebSocketService webSocketService,
+      WhirlpoolProtocol whirlpoolProtocol,
+      WebSocketConfig websocketConfig) {
     this.mixService = mixService;
     this.poolService = poolService;
+    this.taskService = taskService;
     this.sessions = new HashMap<>();
+    this.replySubscriptions = new ConcurrentHashMap<>();
+    this.pendingReplies = new ConcurrentHashMap<>();
+    this.replyDestination =
+        whirlpoolProtocol.SOCKET_SUBSCRIBE_USER_PRIVATE
+            + whirlpoolProtocol.SOCKET_SUBSCRIBE_USER_REPLY;
 
     // subscribe to websocket activity
     websocketConfig.__setWebSocketHandlerListener(this);
+
+    // avoids circular reference
+    webSocketService.setWebSocketSessionService(this);
   }
 
   public synchronized void onConnect(WebSocketSession webSocketSession) {
@@ -61,6 +88,8 @@ public class WebSocketSessionService {
       mixService.onClientDisconnect(username);
       poolService.onClientDisconnect(username);
       sessions.getOrDefault(username, new HashMap<>()).remove(sessionId);
+      replySubscriptions.remove(sessionId);
+      pendingReplies.remove(sessionId);
     } else {
       log.error(
           "unknown session for disconnected client: username="
@@ -69,4 +98,77 @@ public class WebSocketSessionService {
               + sessionId);
     }
   }
+
+  @EventListener
+  public void onSubscribe(SessionSubscribeEvent event) {
+    StompHeaderAccessor headers = StompHeaderAccessor.wrap(event.getMessage());
+    if (replyDestination.equals(headers.getDestination())) {
+      String sessionId = headers.getSessionId();
+      replySubscriptions.put(sessionId, headers.getSubscriptionId());
+
+      // client is now listening for replies
+      PendingReply pendingReply = pendingReplies.remove(sessionId);
+      if (pendingReply != null) {
+        pendingReply.run();
+      }
+    }
+  }
+
+  /**
+   * Run reply as soon as session subscribed to private replies, or after timeoutMs if this
+   * subscription was never seen. Reply runs once, and no thread waits meanwhile.
+   */
+  public void runOnReplySubscribed(String sessionId, Runnable reply, long timeoutMs) {
+    if (replySubscriptions.containsKey(sessionId)) {
+      reply.run();
+      return;
+    }
+    PendingReply pendingReply = new PendingReply(reply);
+    pendingReplies.put(sessionId, pendingReply);
+    pendingReply.timeout =
+        taskService.runOnce(
+            timeoutMs,
+            () -> {
+              pendingReplies.remove(sessionId, pendingReply);
+              pendingReply.run();
+            });
+
+    // subscription may have been registered meanwhile
+    if (replySubscriptions.containsKey(sessionId)
+        && pendingReplies.remove(sessionId, pendingReply)) {
+      pendingReply.run();
+    }
+  }
+
+  public synchronized Collection<WebSocketSession> getSessions(String username) {
+    Map<String, WebSocketSession> usernameSessions = sessions.get(username);
+    if (usernameSessions == null) {
+      return new ArrayList<>();
+    }
+    return new ArrayList<>(usernameSessions.values());
+  }
+
+  public String getReplySubscriptionId(String sessionId) {
+    return replySubscriptions.get(sessionId);
+  }
+
+  private static class PendingReply {
+    private final Runnable reply;
+    private final AtomicBoolean done;
+    private volatile HashedWheelTimer.Timeout timeout;
+
+    PendingReply(Runnable reply) {
+      this.reply = reply;
+      this.done = new AtomicBoolean(false);
+    }
+
+    void run() {
+      if (done.compareAndSet(false, true)) {
+        if (timeout != null) {
+          timeout.cancel();
+        }
+        reply.run();
+      }
+    }
+  }
 }
@@ -0,0 +1,120 @@
+package com.samourai.whirlpool.server.services;
+
+import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
+import com.samourai.whirlpool.server.utils.ZmqSubscriber;
+import java.lang.invoke.MethodHandles;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PreDestroy;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Optional subscriber to bitcoind zmq notifications: new blocks invalidate chain-dependent caches
+ * and refresh chain tip, mempool txs are checked against inputs of running mixs.
+ */
+@Service
+public class ZmqService {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  public static final String TOPIC_HASHBLOCK = "hashblock";
+  public static final String TOPIC_RAWTX = "rawtx";
+
+  private CryptoService cryptoService;
+  private CacheService cacheService;
+  private ChainTipService chainTipService;
+  private MixService mixService;
+
+  private ZmqSubscriber subscriber;
+  private AtomicLong nbBlocks;
+  private AtomicLong nbTxs;
+
+  @Autowired
+  public ZmqService(
+      WhirlpoolServerConfig whirlpoolServerConfig,
+      CryptoService cryptoService,
+      CacheService cacheService,
+      ChainTipService chainTipService,
+      MixService mixService) {
+    this.cryptoService = cryptoService;
+    this.cacheService = cacheService;
+    this.chainTipService = chainTipService;
+    this.mixService = mixService;
+    this.subscriber = null;
+    this.nbBlocks = new AtomicLong(0);
+    this.nbTxs = new AtomicLong(0);
+
+    WhirlpoolServerConfig.ZmqConfig zmqConfig = whirlpoolServerConfig.getZmq();
+    if (zmqConfig.isEnabled()) {
+      subscribe(zmqConfig.getHashblock(), zmqConfig.getRawtx());
+    }
+  }
+
+  public synchronized void subscribe(String hashblockEndpoint, String rawtxEndpoint) {
+    stop();
+    log.info("zmq: subscribing hashblock=" + hashblockEndpoint + ", rawtx=" + rawtxEndpoint);
+    Map<String, String> endpointsByTopic = new LinkedHashMap<>();
+    endpointsByTopic.put(TOPIC_HASHBLOCK, hashblockEndpoint);
+    endpointsByTopic.put(TOPIC_RAWTX, rawtxEndpoint);
+    subscriber = new ZmqSubscriber("zmq", endpointsByTopic, this::onMessage);
+  }
+
+  /** Stop subscriber thread, which closes zmq context. */
+  @PreDestroy
+  public synchronized void stop() {
+    if (subscriber != null) {
+      subscriber.stop();
+      subscriber = null;
+    }
+  }
+
+  private void onMessage(String topic, byte[] body) {
+    switch (topic) {
+      case TOPIC_HASHBLOCK:
+        onHashBlock(Utils.HEX.encode(body));
+        break;
+      case TOPIC_RAWTX:
+        onRawTx(body);
+        break;
+      default:
+        log.warn("zmq: unexpected topic " + topic);
+    }
+  }
+
+  protected void onHashBlock(String blockHash) {
+    nbBlocks.incrementAndGet();
+    if (log.isDebugEnabled()) {
+      log.debug("zmq: new block " + blockHash);
+    }
+    cacheService.onNewBlock();
+    chainTipService.requestCheck();
+  }
+
+  protected void onRawTx(byte[] rawTx) {
+    nbTxs.incrementAndGet();
+    Transaction tx;
+    try {
+      tx = new Transaction(cryptoService.getNetworkParameters(), rawTx);
+    } catch (Exception e) {
+      log.error("zmq: unable to parse rawtx", e);
+      return;
+    }
+    mixService.onMempoolTx(tx);
+  }
+
+  public boolean isSubscribed() {
+    return subscriber != null;
+  }
+
+  public long getNbBlocks() {
+    return nbBlocks.get();
+  }
+
+  public long getNbTxs() {
+    return nbTxs.get();
+  }
+}
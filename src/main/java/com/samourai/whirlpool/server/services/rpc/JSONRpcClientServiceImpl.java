@@ -1,25 +1,36 @@
 package com.samourai.whirlpool.server.services.rpc;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
 import com.samourai.whirlpool.server.exceptions.MixException;
+import com.samourai.whirlpool.server.utils.LatencyHistogram;
 import com.samourai.whirlpool.server.utils.Utils;
 import java.lang.invoke.MethodHandles;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+import javax.annotation.PreDestroy;
 import org.bitcoinj.core.Transaction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
-import wf.bitcoin.javabitcoindrpcclient.BitcoinJSONRPCClient;
-import wf.bitcoin.javabitcoindrpcclient.BitcoindRpcClient;
 
 @Service
 @Profile("!" + Utils.PROFILE_TEST)
 public class JSONRpcClientServiceImpl implements RpcClientService {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   private WhirlpoolServerConfig whirlpoolServerConfig;
-  private BitcoinJSONRPCClient rpcClient;
+  private JSONRpcTransport rpcTransport; // broadcasts and chain tip
+  private RpcLoadBalancer readBalancer; // tx reads
 
   private static final String CHAIN_TESTNET = "test";
   private static final String CHAIN_MAINNET = "main";
@@ -27,26 +38,53 @@ public class JSONRpcClientServiceImpl implements RpcClientService {
   public JSONRpcClientServiceImpl(WhirlpoolServerConfig whirlpoolServerConfig) throws Exception {
     log.info("Instanciating JSONRpcClientServiceImpl");
     this.whirlpoolServerConfig = whirlpoolServerConfig;
-    URL url = computeRpcClientUrl();
-    this.rpcClient = new BitcoinJSONRPCClient(url);
+    WhirlpoolServerConfig.RpcClientConfig config = whirlpoolServerConfig.getRpcClient();
+    this.rpcTransport =
+        computeTransport(
+            config.getProtocol(),
+            config.getHost(),
+            config.getPort(),
+            config.getUser(),
+            config.getPassword());
+
+    List<RpcNode> readNodes = new ArrayList<>();
+    readNodes.add(new RpcNode(rpcTransport));
+    for (WhirlpoolServerConfig.RpcNodeConfig nodeConfig : config.getReadNodes()) {
+      JSONRpcTransport nodeTransport =
+          computeTransport(
+              nodeConfig.getProtocol(),
+              nodeConfig.getHost(),
+              nodeConfig.getPort(),
+              nodeConfig.getUser(),
+              nodeConfig.getPassword());
+      readNodes.add(new RpcNode(nodeTransport));
+    }
+    this.readBalancer = new RpcLoadBalancer(readNodes, config.getEjectDuration());
+  }
+
+  /** Release HTTP connections and dispatcher threads of all nodes (rpcTransport included). */
+  @PreDestroy
+  public void close() {
+    readBalancer.close();
   }
 
   @Override
   public boolean testConnectivity() {
-    String nodeUrl = rpcClient.rpcURL.toString();
+    String nodeUrl = rpcTransport.getUrl();
     log.info("Connecting to bitcoin node... url=" + nodeUrl);
     try {
       // verify node connectivity
-      long blockHeight = rpcClient.getBlockCount();
+      long blockHeight = join(rpcTransport.call("getblockcount")).asLong();
 
       // verify node network
+      String chain = join(rpcTransport.call("getblockchaininfo")).path("chain").asText();
       String expectedChain = getRpcChain();
-      if (!rpcClient.getBlockChainInfo().chain().equals(expectedChain)) {
+      if (!chain.equals(expectedChain)) {
         log.error(
             "Invalid chain for bitcoin node: url="
                 + nodeUrl
                 + ", chain="
-                + rpcClient.getBlockChainInfo().chain()
+                + chain
                 + ", expectedChain="
                 + expectedChain);
         return false;
@@ -58,7 +96,7 @@ public class JSONRpcClientServiceImpl implements RpcClientService {
             "Invalid blockHeight for bitcoin node: url="
                 + nodeUrl
                 + ", chain="
-                + rpcClient.getBlockChainInfo().chain()
+                + chain
                 + ", blockHeight="
                 + blockHeight);
         return false;
@@ -67,7 +105,7 @@ public class JSONRpcClientServiceImpl implements RpcClientService {
           "Connected to bitcoin node: url="
               + nodeUrl
               + ", chain="
-              + rpcClient.getBlockChainInfo().chain()
+              + chain
               + ", blockHeight="
               + blockHeight);
       return true;
@@ -79,53 +117,256 @@ public class JSONRpcClientServiceImpl implements RpcClientService {
 
   @Override
   public Optional<RpcRawTransactionResponse> getRawTransaction(String txid) {
-    try {
-      BitcoindRpcClient.RawTransaction rawTx = rpcClient.getRawTransaction(txid);
-      if (rawTx == null) {
-        return Optional.empty();
-      }
-      RpcRawTransactionResponse rpcTxResponse =
-          new RpcRawTransactionResponse(rawTx.hex(), rawTx.confirmations());
-      return Optional.of(rpcTxResponse);
-    } catch (Exception e) {
-      log.error("getRawTransaction error", e);
-      return Optional.empty();
+    return joinUnchecked(getRawTransactionAsync(txid));
+  }
+
+  @Override
+  public CompletableFuture<Optional<RpcRawTransactionResponse>> getRawTransactionAsync(
+      String txid) {
+    return readBalancer
+        .call(
+            transport ->
+                transport
+                    .call("getrawtransaction", txid, true)
+                    .thenApply(rawTx -> Optional.ofNullable(toRawTransactionResponse(rawTx)))
+                    .exceptionally(e -> emptyIfNotFound(e)),
+            rawTx -> !rawTx.isPresent())
+        .whenComplete(logError("getRawTransaction"));
+  }
+
+  @Override
+  public Map<String, RpcRawTransactionResponse> getRawTransactions(Collection<String> txids) {
+    return joinUnchecked(getRawTransactionsAsync(txids));
+  }
+
+  @Override
+  public CompletableFuture<Map<String, RpcRawTransactionResponse>> getRawTransactionsAsync(
+      Collection<String> txids) {
+    if (txids.isEmpty()) {
+      return CompletableFuture.completedFuture(new HashMap<>());
+    }
+    List<String> txidsList = new ArrayList<>(txids);
+    List<Object[]> paramsList = new ArrayList<>(txidsList.size());
+    for (String txid : txidsList) {
+      paramsList.add(new Object[] {txid, true});
+    }
+    return readBalancer
+        .call(
+            transport -> transport.callBatch("getrawtransaction", paramsList),
+            rawTxs -> rawTxs.contains(null))
+        .thenApply(
+            rawTxs -> {
+              Map<String, RpcRawTransactionResponse> results = new HashMap<>();
+              for (int i = 0; i < txidsList.size(); i++) {
+                RpcRawTransactionResponse rpcTxResponse = toRawTransactionResponse(rawTxs.get(i));
+                if (rpcTxResponse != null) {
+                  results.put(txidsList.get(i), rpcTxResponse);
+                }
+              }
+              return results;
+            })
+        .whenComplete(logError("getRawTransactions"));
+  }
+
+  private RpcRawTransactionResponse toRawTransactionResponse(JsonNode rawTx) {
+    if (rawTx == null || rawTx.isNull()) {
+      return null;
     }
+    JsonNode confirmations = rawTx.get("confirmations");
+    JsonNode blockHash = rawTx.get("blockhash");
+    JsonNode blockHeight = rawTx.get("blockheight");
+    return new RpcRawTransactionResponse(
+        rawTx.path("hex").asText(),
+        confirmations != null ? confirmations.asInt() : null,
+        blockHash != null && !blockHash.isNull() ? blockHash.asText() : null,
+        blockHeight != null && !blockHeight.isNull() ? blockHeight.asInt() : null);
+  }
+
+  @Override
+  public Optional<RpcBlockHeaderResponse> getBlockHeader(String blockHash) {
+    return joinUnchecked(getBlockHeaderAsync(blockHash));
+  }
+
+  @Override
+  public CompletableFuture<Optional<RpcBlockHeaderResponse>> getBlockHeaderAsync(String blockHash) {
+    return readBalancer
+        .call(
+            transport ->
+                transport
+                    .call("getblockheader", blockHash, true)
+                    .thenApply(
+                        header ->
+                            Optional.ofNullable(header)
+                                .filter(h -> !h.isNull())
+                                .map(
+                                    h ->
+                                        new RpcBlockHeaderResponse(
+                                            h.path("height").asInt(),
+                                            h.path("confirmations").asInt())))
+                    .exceptionally(e -> emptyIfNotFound(e)),
+            header -> !header.isPresent())
+        .whenComplete(logError("getBlockHeader"));
+  }
+
+  @Override
+  public Optional<String> getBestBlockHash() {
+    return getBestBlockHashAsync().join();
+  }
+
+  @Override
+  public CompletableFuture<Optional<String>> getBestBlockHashAsync() {
+    return rpcTransport
+        .call("getbestblockhash")
+        .thenApply(blockHash -> Optional.ofNullable(blockHash).map(JsonNode::asText))
+        .exceptionally(
+            e -> {
+              log.error("getBestBlockHash error", unwrap(e));
+              return Optional.empty();
+            });
+  }
+
+  @Override
+  public Optional<Integer> getBlockHeight() {
+    return getBlockHeightAsync().join();
+  }
+
+  @Override
+  public CompletableFuture<Optional<Integer>> getBlockHeightAsync() {
+    return rpcTransport
+        .call("getblockcount")
+        .thenApply(
+            blockCount -> {
+              Optional<Integer> blockHeight = Optional.ofNullable(blockCount).map(JsonNode::asInt);
+              // read nodes trailing main node are not used until they catch up
+              blockHeight.ifPresent(readBalancer::onMainBlockHeight);
+              return blockHeight;
+            })
+        .exceptionally(
+            e -> {
+              log.error("getBlockHeight error", unwrap(e));
+              return Optional.empty();
+            });
   }
 
   @Override
   public void broadcastTransaction(Transaction tx) throws Exception {
+    join(broadcastTransactionAsync(tx));
+  }
+
+  @Override
+  public CompletableFuture<Void> broadcastTransactionAsync(Transaction tx) {
     String txid = tx.getHashAsString();
     if (whirlpoolServerConfig.getRpcClient().isMockTxBroadcast()) {
       log.warn("NOT broadcasting tx " + txid + "(server.rpc-client.mock-tx-broadcast=TRUE)");
-      return;
+      return CompletableFuture.completedFuture(null);
     }
 
+    log.info("Broadcasting tx " + txid);
+    String txHex = org.bitcoinj.core.Utils.HEX.encode(tx.bitcoinSerialize());
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    rpcTransport
+        .call("sendrawtransaction", txHex)
+        .whenComplete(
+            (result, e) -> {
+              if (e != null) {
+                log.error("Unable to broadcast tx " + txid, unwrap(e));
+                future.completeExceptionally(new MixException("Unable to broadcast tx"));
+              } else {
+                future.complete(null);
+              }
+            });
+    return future;
+  }
+
+  @Override
+  public Map<String, String> getStats() {
+    Map<String, String> stats = new LinkedHashMap<>();
+    List<RpcNode> nodes = readBalancer.getNodes();
+    for (int i = 0; i < nodes.size(); i++) {
+      RpcNode node = nodes.get(i);
+      JSONRpcTransport transport = node.getTransport();
+      String suffix = i > 0 ? "@" + transport.getUrl() : ""; // no suffix for main node
+      stats.put(
+          "connections" + suffix,
+          "running="
+              + transport.getNbRunning()
+              + ", queued="
+              + transport.getNbQueued()
+              + ", "
+              + node);
+      for (Map.Entry<String, LatencyHistogram> entry : transport.getLatencies().entrySet()) {
+        stats.put(entry.getKey() + suffix, entry.getValue().toString());
+      }
+    }
+    return stats;
+  }
+
+  private <T> T join(CompletableFuture<T> future) throws Exception {
     try {
-      log.info("Broadcasting tx " + txid);
-      rpcClient.sendRawTransaction(org.bitcoinj.core.Utils.HEX.encode(tx.bitcoinSerialize()));
-    } catch (Exception e) {
-      log.error("Unable to broadcast tx " + txid, e);
-      throw new MixException("Unable to broadcast tx");
+      return future.join();
+    } catch (CompletionException e) {
+      Throwable cause = unwrap(e);
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+      throw e;
     }
   }
 
+  // rethrows cause of async failure
+  private static <T> T joinUnchecked(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      Throwable cause = unwrap(e);
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw e;
+    }
+  }
+
+  // not found is a valid reply, transport failures are rethrown so that they are not cached
+  private static <T> Optional<T> emptyIfNotFound(Throwable e) {
+    Throwable cause = unwrap(e);
+    if (cause instanceof RpcErrorException
+        && ((RpcErrorException) cause).getCode() == RpcErrorException.RPC_INVALID_ADDRESS_OR_KEY) {
+      return Optional.empty();
+    }
+    throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+  }
+
+  private static <T> BiConsumer<T, Throwable> logError(String method) {
+    return (result, e) -> {
+      if (e != null) {
+        log.error(method + " error", unwrap(e));
+      }
+    };
+  }
+
+  private static Throwable unwrap(Throwable e) {
+    return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+  }
+
   private String getRpcChain() {
     return whirlpoolServerConfig.isTestnet() ? CHAIN_TESTNET : CHAIN_MAINNET;
   }
 
-  private URL computeRpcClientUrl() throws Exception {
+  private JSONRpcTransport computeTransport(
+      String protocol, String host, int port, String user, String password) throws Exception {
     WhirlpoolServerConfig.RpcClientConfig config = whirlpoolServerConfig.getRpcClient();
-    String rpcClientUrl =
-        config.getProtocol()
-            + "://"
-            + config.getUser()
-            + ":"
-            + config.getPassword()
-            + "@"
-            + config.getHost()
-            + ":"
-            + config.getPort();
+    URL url = computeRpcClientUrl(protocol, host, port);
+    return new JSONRpcTransport(
+        url.toString(),
+        user,
+        password,
+        config.getMaxConnections(),
+        config.getConnectTimeout(),
+        config.getReadTimeout());
+  }
+
+  private URL computeRpcClientUrl(String protocol, String host, int port) throws Exception {
+    String rpcClientUrl = protocol + "://" + host + ":" + port;
     try {
       return new URL(rpcClientUrl);
     } catch (Exception e) {
@@ -0,0 +1,232 @@
+package com.samourai.whirlpool.server.services.rpc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.samourai.whirlpool.server.utils.LatencyHistogram;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Credentials;
+import okhttp3.Dispatcher;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import wf.bitcoin.javabitcoindrpcclient.GenericRpcException;
+
+/**
+ * Asynchronous JSON-RPC transport for bitcoind. Requests share a pool of keep-alive connections,
+ * and at most maxConnections requests are in flight (others are queued).
+ */
+public class JSONRpcTransport {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final MediaType MEDIA_TYPE_JSON = MediaType.parse("application/json");
+  private static final long KEEP_ALIVE = 5; // minutes
+
+  private String url;
+  private String credentials;
+  private OkHttpClient httpClient;
+  private ObjectMapper objectMapper;
+  private AtomicLong idCounter;
+  private Map<String, LatencyHistogram> latencies; // by RPC method
+
+  public JSONRpcTransport(
+      String url,
+      String user,
+      String password,
+      int maxConnections,
+      int connectTimeout,
+      int readTimeout) {
+    this.url = url;
+    this.credentials = Credentials.basic(user, password != null ? password : "");
+
+    Dispatcher dispatcher = new Dispatcher();
+    dispatcher.setMaxRequests(maxConnections);
+    dispatcher.setMaxRequestsPerHost(maxConnections);
+    this.httpClient =
+        new OkHttpClient.Builder()
+            .dispatcher(dispatcher)
+            .connectionPool(new ConnectionPool(maxConnections, KEEP_ALIVE, TimeUnit.MINUTES))
+            .connectTimeout(connectTimeout, TimeUnit.SECONDS)
+            .readTimeout(readTimeout, TimeUnit.SECONDS)
+            .writeTimeout(readTimeout, TimeUnit.SECONDS)
+            .retryOnConnectionFailure(false) // sendrawtransaction is not idempotent
+            .build();
+    this.objectMapper = new ObjectMapper();
+    this.idCounter = new AtomicLong(0);
+    this.latencies = new ConcurrentHashMap<>();
+  }
+
+  /** @return result of the call, or completes with RpcErrorException on RPC error */
+  public CompletableFuture<JsonNode> call(String method, Object... params) {
+    ObjectNode request = computeRequest(method, params);
+    return post(method, request)
+        .thenApply(
+            response -> {
+              JsonNode error = response.get("error");
+              if (error != null && !error.isNull()) {
+                int code = error.path("code").asInt();
+                throw new RpcErrorException(
+                    method + " failed: " + error.path("message").asText() + " (code=" + code + ")",
+                    code);
+              }
+              return response.get("result");
+            });
+  }
+
+  /**
+   * Call same method for each params with a single JSON-RPC batch.
+   *
+   * @return result for each params (in same order), or null when not found. Completes with
+   *     RpcErrorException when any other call failed.
+   */
+  public CompletableFuture<List<JsonNode>> callBatch(String method, List<Object[]> paramsList) {
+    ArrayNode batch = objectMapper.createArrayNode();
+    Map<Long, Integer> indexById = new HashMap<>();
+    for (Object[] params : paramsList) {
+      ObjectNode request = computeRequest(method, params);
+      indexById.put(request.get("id").asLong(), indexById.size());
+      batch.add(request);
+    }
+    return post(method + "[batch]", batch)
+        .thenApply(
+            responses -> {
+              if (!responses.isArray()) {
+                throw new GenericRpcException(method + "[batch] failed: " + responses);
+              }
+              List<JsonNode> results = new ArrayList<>(Collections.nCopies(batch.size(), null));
+              for (JsonNode response : responses) {
+                Integer index = indexById.remove(response.path("id").asLong());
+                JsonNode error = response.get("error");
+                if (error != null && !error.isNull()) {
+                  int code = error.path("code").asInt();
+                  if (code != RpcErrorException.RPC_INVALID_ADDRESS_OR_KEY) {
+                    // node not ready or unable to reply: not the same as not found
+                    throw new RpcErrorException(
+                        method
+                            + "[batch] failed: "
+                            + error.path("message").asText()
+                            + " (code="
+                            + code
+                            + ")",
+                        code);
+                  }
+                  continue;
+                }
+                JsonNode result = response.get("result");
+                if (index != null && result != null && !result.isNull()) {
+                  results.set(index, result);
+                }
+              }
+              if (!indexById.isEmpty()) {
+                throw new GenericRpcException(
+                    method + "[batch] failed: " + indexById.size() + " responses missing");
+              }
+              return results;
+            });
+  }
+
+  private ObjectNode computeRequest(String method, Object... params) {
+    ObjectNode request = objectMapper.createObjectNode();
+    request.put("jsonrpc", "1.0");
+    request.put("id", idCounter.incrementAndGet());
+    request.put("method", method);
+    ArrayNode paramsNode = request.putArray("params");
+    for (Object param : params) {
+      paramsNode.addPOJO(param);
+    }
+    return request;
+  }
+
+  private CompletableFuture<JsonNode> post(String latencyKey, JsonNode body) {
+    CompletableFuture<JsonNode> future = new CompletableFuture<>();
+    Request request;
+    try {
+      request =
+          new Request.Builder()
+              .url(url)
+              .header("Authorization", credentials)
+              .post(RequestBody.create(MEDIA_TYPE_JSON, objectMapper.writeValueAsBytes(body)))
+              .build();
+    } catch (Exception e) {
+      future.completeExceptionally(e);
+      return future;
+    }
+
+    long start = System.currentTimeMillis();
+    httpClient
+        .newCall(request)
+        .enqueue(
+            new Callback() {
+              @Override
+              public void onFailure(Call call, IOException e) {
+                recordLatency(latencyKey, start);
+                future.completeExceptionally(e);
+              }
+
+              @Override
+              public void onResponse(Call call, Response response) {
+                recordLatency(latencyKey, start);
+                try (ResponseBody responseBody = response.body()) {
+                  if (response.code() == 401 || response.code() == 403) {
+                    throw new GenericRpcException("RPC authentication failed: " + response.code());
+                  }
+                  // bitcoind replies errors with a JSON body and HTTP 404/500
+                  future.complete(objectMapper.readTree(responseBody.byteStream()));
+                } catch (Exception e) {
+                  future.completeExceptionally(e);
+                }
+              }
+            });
+    return future;
+  }
+
+  private void recordLatency(String latencyKey, long start) {
+    latencies
+        .computeIfAbsent(latencyKey, k -> new LatencyHistogram())
+        .record(System.currentTimeMillis() - start);
+  }
+
+  public String getUrl() {
+    return url;
+  }
+
+  /** Latency histograms by RPC method. */
+  public Map<String, LatencyHistogram> getLatencies() {
+    return new TreeMap<>(latencies);
+  }
+
+  public int getNbQueued() {
+    return httpClient.dispatcher().queuedCallsCount();
+  }
+
+  public int getNbRunning() {
+    return httpClient.dispatcher().runningCallsCount();
+  }
+
+  public void close() {
+    if (log.isDebugEnabled()) {
+      log.debug("closing RPC transport: " + url);
+    }
+    httpClient.dispatcher().executorService().shutdown();
+    httpClient.connectionPool().evictAll();
+  }
+}
@@ -0,0 +1,19 @@
+package com.samourai.whirlpool.server.services.rpc;
+
+public class RpcBlockHeaderResponse {
+  private int height;
+  private int confirmations; // -1 when block is not in main chain
+
+  public RpcBlockHeaderResponse(int height, int confirmations) {
+    this.height = height;
+    this.confirmations = confirmations;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  public int getConfirmations() {
+    return confirmations;
+  }
+}
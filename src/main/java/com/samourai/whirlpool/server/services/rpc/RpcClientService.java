@@ -1,6 +1,10 @@
 package com.samourai.whirlpool.server.services.rpc;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import org.bitcoinj.core.Transaction;
 
 public interface RpcClientService {
@@ -8,5 +12,59 @@ public interface RpcClientService {
 
   Optional<RpcRawTransactionResponse> getRawTransaction(String txid);
 
+  /**
+   * Fetch txs with a single request. Txs not found are missing from result, RPC failures are thrown
+   * (not reported as missing).
+   */
+  Map<String, RpcRawTransactionResponse> getRawTransactions(Collection<String> txids);
+
+  /** @return header of block, or empty when block is unknown */
+  Optional<RpcBlockHeaderResponse> getBlockHeader(String blockHash);
+
+  Optional<String> getBestBlockHash();
+
+  Optional<Integer> getBlockHeight();
+
   void broadcastTransaction(Transaction tx) throws Exception;
+
+  // async variants, completed synchronously unless overridden
+
+  default CompletableFuture<Optional<RpcRawTransactionResponse>> getRawTransactionAsync(
+      String txid) {
+    return CompletableFuture.completedFuture(getRawTransaction(txid));
+  }
+
+  default CompletableFuture<Map<String, RpcRawTransactionResponse>> getRawTransactionsAsync(
+      Collection<String> txids) {
+    return CompletableFuture.completedFuture(getRawTransactions(txids));
+  }
+
+  default CompletableFuture<Optional<RpcBlockHeaderResponse>> getBlockHeaderAsync(
+      String blockHash) {
+    return CompletableFuture.completedFuture(getBlockHeader(blockHash));
+  }
+
+  default CompletableFuture<Optional<String>> getBestBlockHashAsync() {
+    return CompletableFuture.completedFuture(getBestBlockHash());
+  }
+
+  default CompletableFuture<Optional<Integer>> getBlockHeightAsync() {
+    return CompletableFuture.completedFuture(getBlockHeight());
+  }
+
+  default CompletableFuture<Void> broadcastTransactionAsync(Transaction tx) {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    try {
+      broadcastTransaction(tx);
+      future.complete(null);
+    } catch (Exception e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  /** RPC statistics by name. */
+  default Map<String, String> getStats() {
+    return new LinkedHashMap<>();
+  }
 }
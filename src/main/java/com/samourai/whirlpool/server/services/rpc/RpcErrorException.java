@@ -0,0 +1,20 @@
+package com.samourai.whirlpool.server.services.rpc;
+
+import wf.bitcoin.javabitcoindrpcclient.GenericRpcException;
+
+/** Error returned by the node in a JSON-RPC response (as opposed to transport errors). */
+public class RpcErrorException extends GenericRpcException {
+  public static final int RPC_INVALID_ADDRESS_OR_KEY = -5; // ie: tx not found
+  public static final int RPC_IN_WARMUP = -28;
+
+  private int code;
+
+  public RpcErrorException(String message, int code) {
+    super(message);
+    this.code = code;
+  }
+
+  public int getCode() {
+    return code;
+  }
+}
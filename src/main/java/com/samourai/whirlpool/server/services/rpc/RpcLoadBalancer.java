@@ -0,0 +1,255 @@
+package com.samourai.whirlpool.server.services.rpc;
+
+import java.lang.invoke.MethodHandles;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Spreads calls over several RPC nodes, to the node with lowest cost (outstanding requests, latency
+ * and failures). Nodes failing too often are ejected for ejectDuration, and a call failing on a
+ * node is retried once on another node.
+ *
+ * <p>First node is the main node, which other nodes are compared to: nodes trailing its block
+ * height are not used until they catch up, and "not found" replies of other nodes are verified on
+ * main node.
+ */
+public class RpcLoadBalancer {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final double EJECT_FAILURE_RATE = 0.5;
+  private static final long LAG_CHECK_DELAY =
+      5000; // ms between block height checks of lagging node
+
+  private List<RpcNode> nodes;
+  private long ejectDuration; // ms
+  private volatile int mainBlockHeight; // -1 until known
+
+  public RpcLoadBalancer(List<RpcNode> nodes, int ejectDuration) {
+    this.nodes = Collections.unmodifiableList(nodes);
+    this.ejectDuration = TimeUnit.SECONDS.toMillis(ejectDuration);
+    this.mainBlockHeight = -1;
+  }
+
+  /** Should only be used for idempotent calls, as they may be sent to another node on failure. */
+  public <T> CompletableFuture<T> call(Function<JSONRpcTransport, CompletableFuture<T>> rpc) {
+    return call(rpc, null, null);
+  }
+
+  /**
+   * Same as call(rpc), but a result matching notFound from another node is verified on main node,
+   * as other nodes may lag behind or lack txindex. Such stale replies count as node failures.
+   */
+  public <T> CompletableFuture<T> call(
+      Function<JSONRpcTransport, CompletableFuture<T>> rpc, Predicate<T> notFound) {
+    return call(rpc, notFound, null);
+  }
+
+  private <T> CompletableFuture<T> call(
+      Function<JSONRpcTransport, CompletableFuture<T>> rpc,
+      Predicate<T> notFound,
+      RpcNode excludedNode) {
+    RpcNode node = selectNode(excludedNode);
+    CompletableFuture<T> future = new CompletableFuture<>();
+    if (node == null) {
+      future.completeExceptionally(new IllegalStateException("No RPC node available"));
+      return future;
+    }
+
+    callNode(node, rpc)
+        .whenComplete(
+            (result, e) -> {
+              if (e == null) {
+                if (notFound != null && node != getMainNode() && notFound.test(result)) {
+                  verifyOnMainNode(node, rpc, notFound, future);
+                } else {
+                  future.complete(result);
+                }
+              } else if (isNodeFailure(e) && excludedNode == null && selectNode(node) != null) {
+                log.warn("RPC node failed, retrying on another node: " + node.getUrl(), unwrap(e));
+                complete(future, call(rpc, notFound, node));
+              } else {
+                future.completeExceptionally(e);
+              }
+            });
+    return future;
+  }
+
+  private <T> void verifyOnMainNode(
+      RpcNode node,
+      Function<JSONRpcTransport, CompletableFuture<T>> rpc,
+      Predicate<T> notFound,
+      CompletableFuture<T> future) {
+    RpcNode mainNode = getMainNode();
+    callNode(mainNode, rpc)
+        .whenComplete(
+            (mainResult, e) -> {
+              if (e != null) {
+                future.completeExceptionally(e);
+                return;
+              }
+              if (!notFound.test(mainResult)) {
+                log.warn(
+                    "RPC node replied not found for data known by main node: "
+                        + node.getUrl()
+                        + " ("
+                        + node
+                        + ")");
+                node.onStaleReply();
+                checkEject(node);
+              }
+              future.complete(mainResult);
+            });
+  }
+
+  private <T> CompletableFuture<T> callNode(
+      RpcNode node, Function<JSONRpcTransport, CompletableFuture<T>> rpc) {
+    node.onRequest();
+    long start = System.currentTimeMillis();
+    CompletableFuture<T> nodeFuture;
+    try {
+      nodeFuture = rpc.apply(node.getTransport());
+    } catch (Exception e) {
+      nodeFuture = new CompletableFuture<>();
+      nodeFuture.completeExceptionally(e);
+    }
+    return nodeFuture.whenComplete(
+        (result, e) -> {
+          boolean failure = e != null && isNodeFailure(e);
+          node.onResponse(System.currentTimeMillis() - start, failure);
+          if (failure) {
+            checkEject(node);
+          }
+        });
+  }
+
+  private static <T> void complete(CompletableFuture<T> future, CompletableFuture<T> source) {
+    source.whenComplete(
+        (result, e) -> {
+          if (e != null) {
+            future.completeExceptionally(e);
+          } else {
+            future.complete(result);
+          }
+        });
+  }
+
+  private void checkEject(RpcNode node) {
+    long now = System.currentTimeMillis();
+    if (node.getFailureRate() >= EJECT_FAILURE_RATE) {
+      if (!node.isEjected(now)) {
+        log.error(
+            "Ejecting RPC node for "
+                + TimeUnit.MILLISECONDS.toSeconds(ejectDuration)
+                + "s: "
+                + node.getUrl()
+                + " ("
+                + node
+                + ")");
+      }
+      node.eject(now + ejectDuration);
+    }
+  }
+
+  /** Main node reached blockHeight: other nodes are not used until they reach it too. */
+  public void onMainBlockHeight(int blockHeight) {
+    mainBlockHeight = blockHeight;
+    getMainNode().setBlockHeight(blockHeight);
+    long now = System.currentTimeMillis();
+    for (RpcNode node : nodes) {
+      if (node != getMainNode() && node.startBlockHeightCheck(now, 0)) {
+        checkBlockHeight(node);
+      }
+    }
+  }
+
+  private void checkBlockHeight(RpcNode node) {
+    node.getTransport()
+        .call("getblockcount")
+        .whenComplete(
+            (blockCount, e) -> {
+              if (e != null) {
+                // node failures are accounted by regular calls
+                log.warn("Unable to check RPC node block height: " + node.getUrl(), unwrap(e));
+                return;
+              }
+              node.setBlockHeight(blockCount.asInt());
+              if (isLagging(node)) {
+                log.warn(
+                    "RPC node lagging behind main node: "
+                        + node.getUrl()
+                        + " (blockHeight="
+                        + node.getBlockHeight()
+                        + ", mainBlockHeight="
+                        + mainBlockHeight
+                        + ")");
+              }
+            });
+  }
+
+  protected boolean isLagging(RpcNode node) {
+    int blockHeight = mainBlockHeight;
+    return blockHeight >= 0 && node != getMainNode() && node.getBlockHeight() < blockHeight;
+  }
+
+  /** @return healthy node with lowest cost, or node ejected first when all are ejected */
+  protected RpcNode selectNode(RpcNode excludedNode) {
+    long now = System.currentTimeMillis();
+    RpcNode bestNode = null;
+    double bestCost = 0;
+    for (RpcNode node : nodes) {
+      if (node == excludedNode || node.isEjected(now)) {
+        continue;
+      }
+      if (isLagging(node)) {
+        // not used until caught up, checked again from time to time
+        if (node.startBlockHeightCheck(now, LAG_CHECK_DELAY)) {
+          checkBlockHeight(node);
+        }
+        continue;
+      }
+      double cost = node.computeCost();
+      if (bestNode == null || cost < bestCost) {
+        bestNode = node;
+        bestCost = cost;
+      }
+    }
+    if (bestNode == null && excludedNode == null) {
+      // all nodes ejected: keep trying instead of failing every call
+      for (RpcNode node : nodes) {
+        if (bestNode == null || node.getEjectedUntil() < bestNode.getEjectedUntil()) {
+          bestNode = node;
+        }
+      }
+    }
+    return bestNode;
+  }
+
+  // RPC errors are replies of a working node, except while it is starting or reindexing
+  private static boolean isNodeFailure(Throwable e) {
+    Throwable cause = unwrap(e);
+    return !(cause instanceof RpcErrorException)
+        || ((RpcErrorException) cause).getCode() == RpcErrorException.RPC_IN_WARMUP;
+  }
+
+  private static Throwable unwrap(Throwable e) {
+    return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+  }
+
+  public List<RpcNode> getNodes() {
+    return nodes;
+  }
+
+  public RpcNode getMainNode() {
+    return nodes.get(0);
+  }
+
+  public void close() {
+    nodes.forEach(node -> node.getTransport().close());
+  }
+}
@@ -0,0 +1,138 @@
+package com.samourai.whirlpool.server.services.rpc;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** RPC backend with its load and health statistics (exponentially weighted moving averages). */
+public class RpcNode {
+  private static final double EWMA_WEIGHT = 0.3; // weight of last sample
+  private static final double ERROR_PENALTY = 10; // cost factor for a node failing every request
+
+  private JSONRpcTransport transport;
+  private AtomicInteger nbOutstanding;
+  private AtomicLong nbRequests;
+  private AtomicLong nbFailures;
+  private double latencyEwma; // ms
+  private double failureEwma; // 0 to 1
+  private boolean hasSamples;
+  private volatile long ejectedUntil;
+  private volatile int blockHeight; // -1 until checked
+  private AtomicLong blockHeightCheckedAt;
+
+  public RpcNode(JSONRpcTransport transport) {
+    this.transport = transport;
+    this.nbOutstanding = new AtomicInteger(0);
+    this.nbRequests = new AtomicLong(0);
+    this.nbFailures = new AtomicLong(0);
+    this.latencyEwma = 0;
+    this.failureEwma = 0;
+    this.hasSamples = false;
+    this.ejectedUntil = 0;
+    this.blockHeight = -1;
+    this.blockHeightCheckedAt = new AtomicLong(0);
+  }
+
+  protected void onRequest() {
+    nbOutstanding.incrementAndGet();
+    nbRequests.incrementAndGet();
+  }
+
+  protected synchronized void onResponse(long latency, boolean failure) {
+    nbOutstanding.decrementAndGet();
+    if (failure) {
+      // failures are often fast and should not make the node look faster
+      nbFailures.incrementAndGet();
+    } else if (!hasSamples) {
+      latencyEwma = latency;
+      hasSamples = true;
+    } else {
+      latencyEwma += EWMA_WEIGHT * (latency - latencyEwma);
+    }
+    failureEwma += EWMA_WEIGHT * ((failure ? 1 : 0) - failureEwma);
+  }
+
+  /** Reply was valid but outdated (ie: tx not found while known by main node). */
+  protected synchronized void onStaleReply() {
+    nbFailures.incrementAndGet();
+    failureEwma += EWMA_WEIGHT * (1 - failureEwma);
+  }
+
+  /** @return false when block height was already checked less than delay ago */
+  protected boolean startBlockHeightCheck(long now, long delay) {
+    long checkedAt = blockHeightCheckedAt.get();
+    return now - checkedAt >= delay && blockHeightCheckedAt.compareAndSet(checkedAt, now);
+  }
+
+  protected void setBlockHeight(int blockHeight) {
+    this.blockHeight = blockHeight;
+  }
+
+  public int getBlockHeight() {
+    return blockHeight;
+  }
+
+  /**
+   * Expected cost of sending one more request: outstanding requests weighted by latency, penalized
+   * by recent failures. Nodes without samples are tried first.
+   */
+  protected synchronized double computeCost() {
+    return (nbOutstanding.get() + 1) * Math.max(latencyEwma, 1) * (1 + ERROR_PENALTY * failureEwma);
+  }
+
+  protected void eject(long until) {
+    this.ejectedUntil = until;
+  }
+
+  public boolean isEjected(long now) {
+    return now < ejectedUntil;
+  }
+
+  public JSONRpcTransport getTransport() {
+    return transport;
+  }
+
+  public String getUrl() {
+    return transport.getUrl();
+  }
+
+  public int getNbOutstanding() {
+    return nbOutstanding.get();
+  }
+
+  public long getNbRequests() {
+    return nbRequests.get();
+  }
+
+  public long getNbFailures() {
+    return nbFailures.get();
+  }
+
+  public synchronized double getFailureRate() {
+    return failureEwma;
+  }
+
+  public synchronized long getLatency() {
+    return Math.round(latencyEwma);
+  }
+
+  protected long getEjectedUntil() {
+    return ejectedUntil;
+  }
+
+  @Override
+  public String toString() {
+    return "outstanding="
+        + getNbOutstanding()
+        + ", requests="
+        + getNbRequests()
+        + ", failures="
+        + getNbFailures()
+        + ", latency="
+        + getLatency()
+        + "ms, failureRate="
+        + Math.round(getFailureRate() * 100)
+        + "%"
+        + (blockHeight >= 0 ? ", blockHeight=" + blockHeight : "")
+        + (isEjected(System.currentTimeMillis()) ? ", EJECTED" : "");
+  }
+}
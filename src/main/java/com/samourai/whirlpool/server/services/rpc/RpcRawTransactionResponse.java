@@ -3,10 +3,19 @@ package com.samourai.whirlpool.server.services.rpc;
 public class RpcRawTransactionResponse {
   private String hex;
   private int confirmations;
+  private String blockHash; // null when unconfirmed
+  private Integer blockHeight; // null when not provided by node
 
   public RpcRawTransactionResponse(String hex, Integer confirmations) {
+    this(hex, confirmations, null, null);
+  }
+
+  public RpcRawTransactionResponse(
+      String hex, Integer confirmations, String blockHash, Integer blockHeight) {
     this.hex = hex;
     this.confirmations = (confirmations != null ? confirmations : 0);
+    this.blockHash = blockHash;
+    this.blockHeight = blockHeight;
   }
 
   public String getHex() {
@@ -16,4 +25,12 @@ public class RpcRawTransactionResponse {
   public int getConfirmations() {
     return confirmations;
   }
+
+  public String getBlockHash() {
+    return blockHash;
+  }
+
+  public Integer getBlockHeight() {
+    return blockHeight;
+  }
 }
@@ -0,0 +1,230 @@
+package com.samourai.whirlpool.server.utils;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fixed-size thread pool with a bounded queue. When the queue is full, the task is either run by
+ * the submitting thread (backpressure) or dropped and counted, depending on {@link
+ * RejectionPolicy}.
+ *
+ * <p>Tasks submitted with a key run one at a time, in submission order. Each key has its own
+ * bounded queue, so a slow key only drops its own tasks. A key with pending tasks waits up to
+ * KEY_SUBMIT_TIMEOUT for room in the shared queue, rather than dropping its tasks.
+ */
+public class BoundedExecutor implements Executor {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final long KEY_SUBMIT_TIMEOUT = 1000; // ms
+
+  public enum RejectionPolicy {
+    CALLER_RUNS,
+    DISCARD
+  }
+
+  private String name;
+  private ThreadPoolExecutor executor;
+  private int keyQueueSize;
+  private Map<Object, Deque<Runnable>> keyQueues; // present while key is scheduled or running
+
+  private AtomicLong nbCompleted;
+  private AtomicLong nbRejected;
+  private AtomicLong totalLatency;
+  private volatile long maxLatency;
+
+  public BoundedExecutor(
+      String name, int nbThreads, int queueSize, int keyQueueSize, RejectionPolicy policy) {
+    this.name = name;
+    AtomicInteger threadIndex = new AtomicInteger(0);
+    this.executor =
+        new ThreadPoolExecutor(
+            nbThreads,
+            nbThreads,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueSize),
+            runnable -> {
+              Thread t = new Thread(runnable, name + "-" + threadIndex.incrementAndGet());
+              t.setDaemon(true);
+              return t;
+            },
+            (runnable, executor) -> {
+              if (policy == RejectionPolicy.CALLER_RUNS && !executor.isShutdown()) {
+                // backpressure: run on caller thread
+                nbRejected.incrementAndGet();
+                runnable.run();
+                return;
+              }
+              throw new RejectedExecutionException();
+            });
+    this.keyQueueSize = keyQueueSize;
+    this.keyQueues = new ConcurrentHashMap<>();
+    this.nbCompleted = new AtomicLong(0);
+    this.nbRejected = new AtomicLong(0);
+    this.totalLatency = new AtomicLong(0);
+    this.maxLatency = 0;
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    tryExecute(command);
+  }
+
+  /** Returns false when command was dropped because queue is full. */
+  public boolean tryExecute(Runnable command) {
+    long submitTime = System.currentTimeMillis();
+    return submit(() -> runTask(command, submitTime), 1);
+  }
+
+  /**
+   * Run command after all commands previously submitted with same key.
+   *
+   * @return false when command was dropped because the queue of this key is full
+   */
+  public boolean execute(Object key, Runnable command) {
+    long submitTime = System.currentTimeMillis();
+    Runnable task = () -> runTask(command, submitTime);
+    boolean[] result = new boolean[2]; // accepted, idle
+    keyQueues.compute(
+        key,
+        (k, queue) -> {
+          if (queue == null) {
+            queue = new ArrayDeque<>();
+            result[1] = true;
+          }
+          if (queue.size() < keyQueueSize) {
+            queue.add(task);
+            result[0] = true;
+          }
+          return queue;
+        });
+    if (!result[0]) {
+      onDropped(1);
+      return false;
+    }
+    if (result[1]) {
+      // key was idle => schedule its drain
+      if (!submitOrWait(() -> drain(key))) {
+        Deque<Runnable> dropped = keyQueues.remove(key);
+        if (dropped != null) {
+          onDropped(dropped.size());
+        }
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void drain(Object key) {
+    while (true) {
+      Runnable[] next = new Runnable[1];
+      keyQueues.computeIfPresent(
+          key,
+          (k, queue) -> {
+            next[0] = queue.poll();
+            return next[0] != null ? queue : null;
+          });
+      if (next[0] == null) {
+        return;
+      }
+      next[0].run();
+    }
+  }
+
+  private boolean submit(Runnable task, int nbTasks) {
+    try {
+      executor.execute(task);
+      return true;
+    } catch (RejectedExecutionException e) {
+      if (nbTasks > 0) {
+        onDropped(nbTasks);
+      }
+      return false;
+    }
+  }
+
+  private boolean submitOrWait(Runnable task) {
+    if (submit(task, 0)) {
+      return true;
+    }
+    // all threads started and busy => wait for room in queue
+    try {
+      return !executor.isShutdown()
+          && executor.getQueue().offer(task, KEY_SUBMIT_TIMEOUT, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private void onDropped(int nbTasks) {
+    long total = nbRejected.addAndGet(nbTasks);
+    log.warn("[" + name + "] queue full, " + nbTasks + " task(s) dropped (total=" + total + ")");
+  }
+
+  private void runTask(Runnable command, long submitTime) {
+    try {
+      command.run();
+    } catch (Exception e) {
+      log.error("[" + name + "] task failed", e);
+    } finally {
+      // latency from submit to completion
+      long latency = System.currentTimeMillis() - submitTime;
+      nbCompleted.incrementAndGet();
+      totalLatency.addAndGet(latency);
+      if (latency > maxLatency) {
+        maxLatency = latency;
+      }
+    }
+  }
+
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getActiveCount() {
+    return executor.getActiveCount();
+  }
+
+  public int getQueueSize() {
+    return executor.getQueue().size();
+  }
+
+  /** Number of keys with pending tasks. */
+  public int getNbKeys() {
+    return keyQueues.size();
+  }
+
+  public long getNbCompleted() {
+    return nbCompleted.get();
+  }
+
+  /** Number of tasks dropped, or run on caller thread, because a queue was full. */
+  public long getNbRejected() {
+    return nbRejected.get();
+  }
+
+  public long getAverageLatency() {
+    long completed = nbCompleted.get();
+    return completed > 0 ? totalLatency.get() / completed : 0;
+  }
+
+  public long getMaxLatency() {
+    return maxLatency;
+  }
+}
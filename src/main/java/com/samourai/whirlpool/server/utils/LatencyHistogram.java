@@ -0,0 +1,81 @@
+package com.samourai.whirlpool.server.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** Lock-free latency histogram with fixed exponential buckets (milliseconds). */
+public class LatencyHistogram {
+  private static final long[] BUCKETS = {
+    1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000
+  };
+
+  private AtomicLongArray counts; // last one for overflow
+  private AtomicLong nbSamples;
+  private AtomicLong totalLatency;
+  private AtomicLong maxLatency;
+
+  public LatencyHistogram() {
+    this.counts = new AtomicLongArray(BUCKETS.length + 1);
+    this.nbSamples = new AtomicLong(0);
+    this.totalLatency = new AtomicLong(0);
+    this.maxLatency = new AtomicLong(0);
+  }
+
+  public void record(long latency) {
+    int i = 0;
+    while (i < BUCKETS.length && latency > BUCKETS[i]) {
+      i++;
+    }
+    counts.incrementAndGet(i);
+    nbSamples.incrementAndGet();
+    totalLatency.addAndGet(latency);
+    maxLatency.accumulateAndGet(latency, Math::max);
+  }
+
+  public long getNbSamples() {
+    return nbSamples.get();
+  }
+
+  public long getAverage() {
+    long samples = nbSamples.get();
+    return samples > 0 ? totalLatency.get() / samples : 0;
+  }
+
+  public long getMax() {
+    return maxLatency.get();
+  }
+
+  /** @return upper bound of the bucket holding the percentile (max when overflowing) */
+  public long computePercentile(double percentile) {
+    long samples = nbSamples.get();
+    if (samples == 0) {
+      return 0;
+    }
+    long rank = (long) Math.ceil(samples * percentile / 100);
+    long cumulated = 0;
+    for (int i = 0; i < BUCKETS.length; i++) {
+      cumulated += counts.get(i);
+      if (cumulated >= rank) {
+        return BUCKETS[i];
+      }
+    }
+    return getMax();
+  }
+
+  @Override
+  public String toString() {
+    return "count="
+        + getNbSamples()
+        + ", avg="
+        + getAverage()
+        + "ms, p50="
+        + computePercentile(50)
+        + "ms, p90="
+        + computePercentile(90)
+        + "ms, p99="
+        + computePercentile(99)
+        + "ms, max="
+        + getMax()
+        + "ms";
+  }
+}
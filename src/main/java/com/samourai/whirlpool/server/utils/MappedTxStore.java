@@ -0,0 +1,274 @@
+package com.samourai.whirlpool.server.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent hash table of 32-byte keys (txids) to a non-zero byte value, memory-mapped from a
+ * single file. Open addressing with linear probing, keys being already uniformly distributed.
+ * Entries are never removed. File is rebuilt with double capacity when half full.
+ *
+ * <p>Writes are not forced on each put: each slot holds a checksum of its key and value, so that a
+ * slot torn by a crash is discarded when reopening. Entries not yet written to disk are lost on
+ * crash, which only costs verifying them again.
+ */
+public class MappedTxStore {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final int MAGIC = 0x57505458;
+  private static final int VERSION = 2;
+  private static final int HEADER_SIZE = 32; // magic, version, capacity, size, fingerprint
+  private static final int POS_CAPACITY = 8;
+  private static final int POS_SIZE = 12;
+  private static final int POS_FINGERPRINT = 16;
+  public static final int KEY_SIZE = 32;
+  private static final int POS_VALUE = KEY_SIZE;
+  private static final int POS_CHECKSUM = POS_VALUE + 1;
+  private static final int SLOT_SIZE = POS_CHECKSUM + 4; // key, value (0 = empty slot), checksum
+  private static final int INITIAL_CAPACITY = 1 << 16;
+
+  private File file;
+  private long fingerprint;
+  private FileChannel channel;
+  private MappedByteBuffer buffer;
+  private int capacity;
+  private int size;
+
+  /**
+   * @param fingerprint identifies the rules entries were computed with. Existing store is discarded
+   *     when it doesn't match.
+   */
+  public MappedTxStore(File file, long fingerprint) throws IOException {
+    this.file = file;
+    this.fingerprint = fingerprint;
+    if (!open()) {
+      create(file, INITIAL_CAPACITY);
+      open();
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("opened " + file.getAbsolutePath() + ": " + size + "/" + capacity + " entries");
+    }
+  }
+
+  private boolean open() throws IOException {
+    if (!file.exists() || file.length() < HEADER_SIZE) {
+      return false;
+    }
+    channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+    MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+    int fileCapacity = header.getInt(POS_CAPACITY);
+    if (header.getInt(0) != MAGIC
+        || header.getInt(4) != VERSION
+        || header.getLong(POS_FINGERPRINT) != fingerprint
+        || Integer.bitCount(fileCapacity) != 1
+        || file.length() != computeFileSize(fileCapacity)) {
+      log.warn("discarding incompatible store: " + file.getAbsolutePath());
+      channel.close();
+      return false;
+    }
+    buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, computeFileSize(fileCapacity));
+    capacity = fileCapacity;
+    size = recover();
+    return true;
+  }
+
+  // clear slots torn by a crash, count entries
+  private int recover() {
+    int nbEntries = 0;
+    int nbTorn = 0;
+    byte[] key = new byte[KEY_SIZE];
+    for (int i = 0; i < capacity; i++) {
+      int pos = computePosition(i);
+      byte value = buffer.get(pos + POS_VALUE);
+      if (value != 0) {
+        readKey(buffer, pos, key);
+        if (buffer.getInt(pos + POS_CHECKSUM) == computeChecksum(key, value)) {
+          nbEntries++;
+        } else {
+          buffer.put(pos + POS_VALUE, (byte) 0);
+          nbTorn++;
+        }
+      }
+    }
+    if (nbTorn > 0) {
+      log.warn("discarded " + nbTorn + " torn entries: " + file.getAbsolutePath());
+    }
+    return nbEntries;
+  }
+
+  private void create(File target, int newCapacity) throws IOException {
+    try (FileChannel newChannel =
+        FileChannel.open(
+            target.toPath(),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+      MappedByteBuffer newBuffer =
+          newChannel.map(FileChannel.MapMode.READ_WRITE, 0, computeFileSize(newCapacity));
+      newBuffer.putInt(0, MAGIC);
+      newBuffer.putInt(4, VERSION);
+      newBuffer.putInt(POS_CAPACITY, newCapacity);
+      newBuffer.putInt(POS_SIZE, 0);
+      newBuffer.putLong(POS_FINGERPRINT, fingerprint);
+
+      // rehash existing entries
+      if (buffer != null) {
+        byte[] key = new byte[KEY_SIZE];
+        for (int i = 0; i < capacity; i++) {
+          int pos = computePosition(i);
+          byte value = buffer.get(pos + POS_VALUE);
+          if (value != 0) {
+            readKey(buffer, pos, key);
+            // new file is forced before replacing store
+            writeSlot(newBuffer, findSlot(newBuffer, newCapacity, key), key, value);
+          }
+        }
+        newBuffer.putInt(POS_SIZE, size);
+      }
+      newBuffer.force();
+    }
+  }
+
+  /** @return value for key, or 0 when not found */
+  public synchronized byte get(byte[] key) {
+    checkKey(key);
+    int pos = findSlot(buffer, capacity, key);
+    return buffer.get(pos + POS_VALUE);
+  }
+
+  /** Set value (non-zero) for key. */
+  public synchronized void put(byte[] key, byte value) throws IOException {
+    checkKey(key);
+    if (value == 0) {
+      throw new IllegalArgumentException("value should not be 0");
+    }
+    int pos = findSlot(buffer, capacity, key);
+    if (buffer.get(pos + POS_VALUE) != 0) {
+      writeSlot(buffer, pos, key, value); // update
+      return;
+    }
+    if ((size + 1) * 2 > capacity) {
+      grow();
+      pos = findSlot(buffer, capacity, key);
+    }
+    writeSlot(buffer, pos, key, value);
+    size++;
+  }
+
+  /** Write pending entries to disk. */
+  public synchronized void flush() {
+    buffer.force();
+    // size is only informative, entries are counted again when reopening
+    buffer.putInt(POS_SIZE, size);
+    buffer.force();
+  }
+
+  private void grow() throws IOException {
+    int newCapacity = capacity * 2;
+    if (computeFileSize(newCapacity) > Integer.MAX_VALUE) {
+      throw new IOException("store is full: " + file.getAbsolutePath());
+    }
+    File tmpFile = new File(file.getAbsolutePath() + ".tmp");
+    create(tmpFile, newCapacity);
+    channel.close();
+    Files.move(
+        tmpFile.toPath(),
+        file.toPath(),
+        StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    if (!open()) {
+      throw new IOException("unable to reopen store after resize: " + file.getAbsolutePath());
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("resized " + file.getAbsolutePath() + ": " + size + "/" + capacity + " entries");
+    }
+  }
+
+  // slot holding key, or first empty slot
+  private static int findSlot(MappedByteBuffer buf, int cap, byte[] key) {
+    int mask = cap - 1;
+    int index = (int) (hash(key) & mask);
+    while (true) {
+      int pos = computePosition(index);
+      if (buf.get(pos + POS_VALUE) == 0 || keyEquals(buf, pos, key)) {
+        return pos;
+      }
+      index = (index + 1) & mask;
+    }
+  }
+
+  private static long hash(byte[] key) {
+    long h = 0;
+    for (int i = 0; i < 8; i++) {
+      h = (h << 8) | (key[i] & 0xff);
+    }
+    return h;
+  }
+
+  private static boolean keyEquals(MappedByteBuffer buf, int pos, byte[] key) {
+    for (int i = 0; i < KEY_SIZE; i++) {
+      if (buf.get(pos + i) != key[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void readKey(MappedByteBuffer buf, int pos, byte[] key) {
+    for (int i = 0; i < KEY_SIZE; i++) {
+      key[i] = buf.get(pos + i);
+    }
+  }
+
+  private static void writeSlot(MappedByteBuffer buf, int pos, byte[] key, byte value) {
+    for (int i = 0; i < KEY_SIZE; i++) {
+      buf.put(pos + i, key[i]);
+    }
+    buf.put(pos + POS_VALUE, value);
+    buf.putInt(pos + POS_CHECKSUM, computeChecksum(key, value));
+  }
+
+  private static int computeChecksum(byte[] key, byte value) {
+    CRC32 crc = new CRC32();
+    crc.update(key);
+    crc.update(value);
+    return (int) crc.getValue();
+  }
+
+  private static int computePosition(int index) {
+    return HEADER_SIZE + index * SLOT_SIZE;
+  }
+
+  private static long computeFileSize(int cap) {
+    return HEADER_SIZE + (long) cap * SLOT_SIZE;
+  }
+
+  private void checkKey(byte[] key) {
+    if (key.length != KEY_SIZE) {
+      throw new IllegalArgumentException("invalid key length: " + key.length);
+    }
+  }
+
+  public synchronized int getSize() {
+    return size;
+  }
+
+  public synchronized int getCapacity() {
+    return capacity;
+  }
+
+  public synchronized void close() throws IOException {
+    flush();
+    channel.close();
+  }
+}
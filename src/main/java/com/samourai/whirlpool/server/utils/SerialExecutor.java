@@ -0,0 +1,105 @@
+package com.samourai.whirlpool.server.utils;
+
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Single-threaded executor (mailbox) applying commands one after another. Commands submitted from
+ * the executor thread itself are run inline, so a command may safely call other commands.
+ */
+public class SerialExecutor {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private String name;
+  private ExecutorService executorService;
+  private volatile Thread thread;
+
+  public SerialExecutor(String name) {
+    this.name = name;
+    this.executorService =
+        Executors.newSingleThreadExecutor(
+            runnable -> {
+              Thread t = new Thread(runnable, name);
+              t.setDaemon(true);
+              thread = t;
+              return t;
+            });
+  }
+
+  public boolean isExecutorThread() {
+    return Thread.currentThread() == thread;
+  }
+
+  public interface Command<T, E extends Exception> {
+    T call() throws E;
+  }
+
+  /**
+   * Run command on executor thread, wait for it and return its result or rethrow its error.
+   *
+   * @throws RejectedExecutionException when executor was shut down
+   */
+  @SuppressWarnings("unchecked")
+  public <T, E extends Exception> T call(Command<T, E> command) throws E {
+    if (isExecutorThread()) {
+      return command.call();
+    }
+    Future<T> future = executorService.submit((Callable<T>) command::call);
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("[" + name + "] interrupted while waiting for command", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      // only checked exception the command can throw
+      throw (E) cause;
+    }
+  }
+
+  /** Run command on executor thread and wait for it. */
+  public void run(Runnable command) {
+    call(
+        () -> {
+          command.run();
+          return null;
+        });
+  }
+
+  /** Post command to executor thread without waiting for it. */
+  public void submit(Runnable command) {
+    try {
+      executorService.execute(
+          () -> {
+            try {
+              command.run();
+            } catch (Exception e) {
+              log.error("[" + name + "] command failed", e);
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      log.warn("[" + name + "] executor stopped, command ignored");
+    }
+  }
+
+  public void shutdown() {
+    executorService.shutdown();
+  }
+
+  public String getName() {
+    return name;
+  }
+}
@@ -0,0 +1,93 @@
+package com.samourai.whirlpool.server.utils;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces concurrent loads of the same key: the first caller runs the loader, other callers wait
+ * for its result (or exception) instead of loading again. Results are not kept once the load
+ * completes.
+ */
+public class SingleFlight<K, V> {
+  private Map<K, Flight<V>> flights;
+  private AtomicLong nbLoads;
+  private AtomicLong nbCoalesced;
+
+  public SingleFlight() {
+    this.flights = new ConcurrentHashMap<>();
+    this.nbLoads = new AtomicLong(0);
+    this.nbCoalesced = new AtomicLong(0);
+  }
+
+  public interface Loader<V, E extends Exception> {
+    V load() throws E;
+  }
+
+  public <E extends Exception> V get(K key, Loader<V, E> loader) throws E {
+    Flight<V> flight = new Flight<>();
+    Flight<V> current = flights.putIfAbsent(key, flight);
+    if (current != null) {
+      if (current.owner == Thread.currentThread()) {
+        // reentrant load from the loader itself: waiting would deadlock
+        return loader.load();
+      }
+      nbCoalesced.incrementAndGet();
+      return current.<E>await();
+    }
+
+    nbLoads.incrementAndGet();
+    try {
+      V value = loader.load();
+      flight.future.complete(value);
+      return value;
+    } catch (Throwable e) {
+      flight.future.completeExceptionally(e);
+      throw e;
+    } finally {
+      flights.remove(key, flight);
+    }
+  }
+
+  public int getNbInFlight() {
+    return flights.size();
+  }
+
+  public long getNbLoads() {
+    return nbLoads.get();
+  }
+
+  /** Number of callers served by another caller's load. */
+  public long getNbCoalesced() {
+    return nbCoalesced.get();
+  }
+
+  private static class Flight<V> {
+    private final Thread owner;
+    private final CompletableFuture<V> future;
+
+    Flight() {
+      this.owner = Thread.currentThread();
+      this.future = new CompletableFuture<>();
+    }
+
+    @SuppressWarnings("unchecked")
+    <E extends Exception> V await() throws E {
+      try {
+        return future.join();
+      } catch (CompletionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        // same exception type as the loader of this key
+        throw (E) cause;
+      }
+    }
+  }
+}
@@ -57,12 +57,12 @@ public class Utils {
   }
 
   public static Optional<RpcOut> findTxOutput(RpcTransaction rpcTransaction, long utxoIndex) {
-    for (RpcOut rpcOut : rpcTransaction.getOuts()) {
-      if (rpcOut.getIndex() == utxoIndex) {
-        return Optional.of(rpcOut);
-      }
+    // outputs are ordered by index
+    List<RpcOut> outs = rpcTransaction.getOuts();
+    if (utxoIndex < 0 || utxoIndex >= outs.size()) {
+      return Optional.empty();
     }
-    return Optional.empty();
+    return Optional.of(outs.get((int) utxoIndex));
   }
 
   public static String getRawTx(Transaction tx) {
@@ -89,9 +89,8 @@ public class Utils {
     return sortedMap;
   }
 
-  public static <K, V> Map.Entry<K, V> getRandomEntry(Map<K, V> map) {
-    Object entries[] = map.entrySet().toArray();
-    return (Map.Entry<K, V>) entries[secureRandom.nextInt(entries.length)];
+  public static int getRandomIndex(int size) {
+    return secureRandom.nextInt(size);
   }
 
   public static String computeInputId(TxOutPoint outPoint) {
@@ -151,7 +150,11 @@ public class Utils {
 
   public static String getToAddressBech32(
       TransactionOutput out, Bech32UtilGeneric bech32Util, NetworkParameters params) {
-    Script script = out.getScriptPubKey();
+    return getToAddressBech32(out.getScriptPubKey(), bech32Util, params);
+  }
+
+  public static String getToAddressBech32(
+      Script script, Bech32UtilGeneric bech32Util, NetworkParameters params) {
     if (script.isOpReturn()) {
       return null;
     }
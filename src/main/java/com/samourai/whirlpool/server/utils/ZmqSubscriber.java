@@ -0,0 +1,94 @@
+package com.samourai.whirlpool.server.utils;
+
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.zeromq.ZContext;
+import org.zeromq.ZMQ;
+
+/**
+ * Subscribes to bitcoind zmq notifications. Messages are [topic, body, sequence] and handed to
+ * listener on the subscriber thread.
+ */
+public class ZmqSubscriber {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final int RECEIVE_TIMEOUT = 1000;
+
+  private ZContext context;
+  private ZMQ.Socket socket;
+  private BiConsumer<String, byte[]> listener;
+  private volatile boolean running;
+  private Thread thread;
+
+  /** @param endpointsByTopic endpoint to connect for each topic (hashblock, rawtx...) */
+  public ZmqSubscriber(
+      String name, Map<String, String> endpointsByTopic, BiConsumer<String, byte[]> listener) {
+    this.context = new ZContext();
+    try {
+      this.socket = context.createSocket(ZMQ.SUB);
+      this.socket.setReceiveTimeOut(RECEIVE_TIMEOUT);
+      for (Map.Entry<String, String> entry : endpointsByTopic.entrySet()) {
+        socket.subscribe(entry.getKey().getBytes(StandardCharsets.UTF_8));
+      }
+      // a single socket can connect to several endpoints
+      endpointsByTopic.values().stream().distinct().forEach(socket::connect);
+    } catch (RuntimeException e) {
+      context.destroy(); // invalid endpoint
+      throw e;
+    }
+    this.listener = listener;
+    this.running = true;
+
+    this.thread = new Thread(this::run, name);
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private void run() {
+    try {
+      while (running) {
+        byte[] topic = socket.recv();
+        if (topic == null) {
+          continue; // timeout
+        }
+        byte[] body = socket.hasReceiveMore() ? socket.recv() : null;
+        while (socket.hasReceiveMore()) {
+          socket.recv(); // sequence
+        }
+        if (body == null) {
+          continue;
+        }
+        try {
+          listener.accept(new String(topic, StandardCharsets.UTF_8), body);
+        } catch (Exception e) {
+          log.error("zmq listener failed", e);
+        }
+      }
+    } catch (Exception e) {
+      if (running) {
+        log.error("zmq subscriber failed", e);
+      }
+    } finally {
+      context.destroy();
+    }
+  }
+
+  /** Stop and wait for subscriber thread to close its socket and context. */
+  public void stop() {
+    running = false;
+    if (Thread.currentThread() == thread) {
+      return; // stopped by listener
+    }
+    try {
+      thread.join(RECEIVE_TIMEOUT * 2);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (thread.isAlive()) {
+      log.warn("zmq subscriber thread didn't stop");
+    }
+  }
+}
@@ -0,0 +1,262 @@
+package com.samourai.whirlpool.server.utils.timeout;
+
+import java.lang.invoke.MethodHandles;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hashed timing wheel: a single thread serving any number of timeouts, with O(1) schedule and
+ * cancel. Timeouts expire with a precision of one tick. Tasks run on the timer thread and should
+ * only hand work over to another executor.
+ */
+public class HashedWheelTimer {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private final long tickDuration;
+  private final Bucket[] wheel;
+  private final int mask;
+  private final Queue<Timeout> pendingTimeouts;
+  private final Queue<Timeout> cancelledTimeouts;
+  private final AtomicInteger nbTimeouts;
+  private final LongSupplier clock;
+  private final long startTime;
+  private final Thread thread;
+
+  private long currentTick; // managed by timer thread
+  private volatile long tickLag;
+  private volatile long maxTickLag;
+  private volatile boolean running;
+
+  public HashedWheelTimer(String name, long tickDuration, int wheelSize) {
+    this(tickDuration, wheelSize, System::currentTimeMillis, name);
+  }
+
+  /** Timer without thread, for tests: ticks are processed by calling {@link #tick()}. */
+  HashedWheelTimer(long tickDuration, int wheelSize, LongSupplier clock) {
+    this(tickDuration, wheelSize, clock, null);
+  }
+
+  private HashedWheelTimer(long tickDuration, int wheelSize, LongSupplier clock, String name) {
+    this.tickDuration = tickDuration;
+    int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1; // power of 2
+    this.wheel = new Bucket[size];
+    for (int i = 0; i < size; i++) {
+      wheel[i] = new Bucket();
+    }
+    this.mask = size - 1;
+    this.pendingTimeouts = new ConcurrentLinkedQueue<>();
+    this.cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    this.nbTimeouts = new AtomicInteger(0);
+    this.clock = clock;
+    this.startTime = clock.getAsLong();
+    this.currentTick = 0;
+    this.tickLag = 0;
+    this.maxTickLag = 0;
+    this.running = true;
+
+    if (name != null) {
+      this.thread = new Thread(this::run, name);
+      thread.setDaemon(true);
+      thread.start();
+    } else {
+      this.thread = null;
+    }
+  }
+
+  /** Schedule task to run once after delay (milliseconds). */
+  public Timeout newTimeout(Runnable task, long delay) {
+    Timeout timeout = new Timeout(task, clock.getAsLong() + Math.max(0, delay));
+    nbTimeouts.incrementAndGet();
+    pendingTimeouts.add(timeout);
+    return timeout;
+  }
+
+  private void run() {
+    while (running) {
+      long deadline = startTime + (currentTick + 1) * tickDuration;
+      long sleepTime = deadline - clock.getAsLong();
+      if (sleepTime > 0) {
+        try {
+          Thread.sleep(sleepTime);
+        } catch (InterruptedException e) {
+          if (running) {
+            log.warn("timer interrupted");
+          }
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+      long lag = clock.getAsLong() - deadline;
+      tickLag = lag;
+      if (lag > maxTickLag) {
+        maxTickLag = lag;
+      }
+      tick();
+    }
+  }
+
+  /** Expire current bucket and move to next one. */
+  void tick() {
+    processCancelled();
+    transferPending(currentTick);
+    wheel[(int) (currentTick & mask)].expire();
+    currentTick++;
+  }
+
+  private void processCancelled() {
+    Timeout timeout;
+    while ((timeout = cancelledTimeouts.poll()) != null) {
+      if (timeout.bucket != null) {
+        timeout.bucket.remove(timeout);
+      }
+    }
+  }
+
+  private void transferPending(long currentTick) {
+    Timeout timeout;
+    while ((timeout = pendingTimeouts.poll()) != null) {
+      if (timeout.state.get() != Timeout.ST_INIT) {
+        continue; // cancelled before being scheduled
+      }
+      long calculated = (timeout.deadline - startTime) / tickDuration;
+      long ticks = Math.max(calculated, currentTick); // expire now if already late
+      timeout.remainingRounds = (ticks - currentTick) / wheel.length;
+      wheel[(int) (ticks & mask)].add(timeout);
+    }
+  }
+
+  /** Stop timer thread. Pending timeouts never expire. */
+  public void stop() {
+    running = false;
+    if (thread != null) {
+      thread.interrupt();
+    }
+  }
+
+  /** Number of timeouts scheduled and not yet expired or cancelled. */
+  public int getNbTimeouts() {
+    return nbTimeouts.get();
+  }
+
+  /** Delay (milliseconds) between the last tick deadline and its actual processing. */
+  public long getTickLag() {
+    return tickLag;
+  }
+
+  public long getMaxTickLag() {
+    return maxTickLag;
+  }
+
+  public class Timeout {
+    private static final int ST_INIT = 0;
+    private static final int ST_CANCELLED = 1;
+    private static final int ST_EXPIRED = 2;
+
+    private final Runnable task;
+    private final long deadline;
+    private final AtomicInteger state;
+
+    // managed by timer thread
+    private long remainingRounds;
+    private Bucket bucket;
+    private Timeout prev;
+    private Timeout next;
+
+    private Timeout(Runnable task, long deadline) {
+      this.task = task;
+      this.deadline = deadline;
+      this.state = new AtomicInteger(ST_INIT);
+    }
+
+    /** Cancel timeout. Returns false when already expired or cancelled. */
+    public boolean cancel() {
+      if (!state.compareAndSet(ST_INIT, ST_CANCELLED)) {
+        return false;
+      }
+      nbTimeouts.decrementAndGet();
+      cancelledTimeouts.add(this);
+      return true;
+    }
+
+    private void expire() {
+      if (!state.compareAndSet(ST_INIT, ST_EXPIRED)) {
+        return;
+      }
+      nbTimeouts.decrementAndGet();
+      try {
+        task.run();
+      } catch (Exception e) {
+        log.error("timeout task failed", e);
+      }
+    }
+
+    public boolean isCancelled() {
+      return state.get() == ST_CANCELLED;
+    }
+
+    public boolean isExpired() {
+      return state.get() == ST_EXPIRED;
+    }
+
+    /** Remaining delay in milliseconds. */
+    public long getDelay() {
+      return Math.max(0, deadline - clock.getAsLong());
+    }
+  }
+
+  // doubly-linked list of timeouts, only accessed by timer thread
+  private class Bucket {
+    private Timeout head;
+    private Timeout tail;
+
+    private void add(Timeout timeout) {
+      timeout.bucket = this;
+      if (head == null) {
+        head = tail = timeout;
+      } else {
+        tail.next = timeout;
+        timeout.prev = tail;
+        tail = timeout;
+      }
+    }
+
+    private void expire() {
+      Timeout timeout = head;
+      while (timeout != null) {
+        Timeout next = timeout.next;
+        if (timeout.remainingRounds <= 0) {
+          remove(timeout);
+          timeout.expire();
+        } else if (timeout.isCancelled()) {
+          remove(timeout);
+        } else {
+          timeout.remainingRounds--;
+        }
+        timeout = next;
+      }
+    }
+
+    private void remove(Timeout timeout) {
+      if (timeout.bucket != this) {
+        return; // already removed
+      }
+      if (timeout.prev != null) {
+        timeout.prev.next = timeout.next;
+      } else {
+        head = timeout.next;
+      }
+      if (timeout.next != null) {
+        timeout.next.prev = timeout.prev;
+      } else {
+        tail = timeout.prev;
+      }
+      timeout.prev = null;
+      timeout.next = null;
+      timeout.bucket = null;
+    }
+  }
+}
@@ -4,72 +4,74 @@ import java.lang.invoke.MethodHandles;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class TimeoutWatcher implements Runnable {
+/** Watches a timeout computed by listener, scheduled on a shared HashedWheelTimer. */
+public class TimeoutWatcher {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   private ITimeoutWatcherListener listener;
+  private HashedWheelTimer timer;
 
   private long waitSince;
   private boolean running;
-  private Thread thread;
+  private HashedWheelTimer.Timeout timeout;
 
-  public TimeoutWatcher(ITimeoutWatcherListener listener) {
+  public TimeoutWatcher(ITimeoutWatcherListener listener, HashedWheelTimer timer) {
     this.listener = listener;
+    this.timer = timer;
 
     this.waitSince = System.currentTimeMillis();
     this.running = true;
+    this.timeout = null;
 
-    // run
-    this.thread = new Thread(this);
-    this.thread.start();
+    schedule();
   }
 
-  @Override
-  public synchronized void run() {
-    while (running) {
+  private synchronized void schedule() {
+    if (timeout != null) {
+      timeout.cancel();
+      timeout = null;
+    }
+    if (!running) {
+      return;
+    }
 
-      // did we wait enough?
-      Long timeToWait = computeTimeToWait();
-      if (timeToWait == null) {
-        // no timer
-        try {
-          wait();
-        } catch (InterruptedException e) {
-        } // normal
-      } else {
-        if (timeToWait <= 0) {
-          // timer expired => notify
-          listener.onTimeout(this);
-          // reset timer
-          waitSince = System.currentTimeMillis();
-        } else {
-          try {
-            Thread.sleep(timeToWait);
-          } catch (InterruptedException e) {
-          } // normal
-        }
-      }
+    // did we wait enough?
+    Long timeToWait = computeTimeToWait();
+    if (timeToWait == null) {
+      // no timer, until next resetTimeout()
+      return;
     }
+    timeout = timer.newTimeout(this::onTimer, timeToWait);
   }
 
-  public void stop() {
-    running = false;
-    resumeThread();
+  private synchronized void onTimer() {
+    if (!running) {
+      return;
+    }
+    timeout = null;
+    Long timeToWait = computeTimeToWait();
+    if (timeToWait != null && timeToWait <= 0) {
+      // timer expired => notify
+      listener.onTimeout(this);
+      // reset timer
+      waitSince = System.currentTimeMillis();
+    }
+    schedule();
   }
 
-  public void resetTimeout() {
-    this.waitSince = System.currentTimeMillis();
-    resumeThread();
+  public synchronized void stop() {
+    running = false;
+    if (timeout != null) {
+      timeout.cancel();
+      timeout = null;
+    }
   }
 
-  public void resumeThread() {
-    try {
-      this.thread.interrupt(); // resume thread from sleep
-    } catch (Exception e) {
-      log.error("", e);
-    }
+  public synchronized void resetTimeout() {
+    this.waitSince = System.currentTimeMillis();
+    schedule();
   }
 
-  public void __simulateElapsedTime(long elapsedTimeSeconds) {
+  public synchronized void __simulateElapsedTime(long elapsedTimeSeconds) {
     this.waitSince = (System.currentTimeMillis() - (elapsedTimeSeconds * 1000));
     if (log.isDebugEnabled()) {
       Long timeToWait = computeTimeToWait();
@@ -80,7 +82,7 @@ public class TimeoutWatcher implements Runnable {
               + (timeToWait != null ? timeToWait : "null")
               + "ms to wait)");
     }
-    resumeThread();
+    schedule();
   }
 
   public long computeElapsedTime() {
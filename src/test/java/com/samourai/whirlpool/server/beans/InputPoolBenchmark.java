@@ -0,0 +1,67 @@
+package com.samourai.whirlpool.server.beans;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Fills an InputPool, removes 1/3 of inputs by username (client disconnects) then peeks all
+ * remaining inputs at random (mix invitations). Run with main().
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InputPoolBenchmark {
+  @Param({"10000", "100000"})
+  private int nbInputs;
+
+  private List<RegisteredInput> inputs;
+
+  @Setup
+  public void setup() {
+    inputs = new ArrayList<>();
+    for (int i = 0; i < nbInputs; i++) {
+      TxOutPoint outPoint = new TxOutPoint("hash" + i, 0, 1234, 99);
+      inputs.add(new RegisteredInput("user" + i, new byte[] {}, true, outPoint));
+    }
+  }
+
+  @Benchmark
+  public Object registerRemovePeek() {
+    InputPool inputPool = new InputPool();
+    for (RegisteredInput input : inputs) {
+      inputPool.register(input);
+    }
+    for (int i = 0; i < nbInputs; i += 3) {
+      inputPool.removeByUsername(inputs.get(i).getUsername());
+    }
+    int nbPeeked = 0;
+    Optional<RegisteredInput> registeredInput;
+    while ((registeredInput = inputPool.peekRandom()).isPresent()) {
+      nbPeeked++;
+    }
+    return nbPeeked;
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(InputPoolBenchmark.class.getSimpleName()).build())
+        .run();
+  }
+}
@@ -0,0 +1,87 @@
+package com.samourai.whirlpool.server.beans;
+
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class InputPoolTest {
+  private RegisteredInput computeInput(int i) {
+    TxOutPoint outPoint = new TxOutPoint("hash" + i, 0, 1234, 99);
+    return new RegisteredInput("user" + i, new byte[] {}, true, outPoint);
+  }
+
+  @Test
+  public void registerAndRemove() throws Exception {
+    InputPool inputPool = new InputPool();
+    RegisteredInput input1 = computeInput(1);
+    RegisteredInput input2 = computeInput(2);
+    RegisteredInput input3 = computeInput(3);
+    inputPool.register(input1);
+    inputPool.register(input2);
+    inputPool.register(input3);
+
+    // same input or same username => ignored
+    inputPool.register(input1);
+    inputPool.register(
+        new RegisteredInput("user1", new byte[] {}, true, new TxOutPoint("other", 0, 1234, 99)));
+    Assert.assertEquals(3, inputPool.getSize());
+
+    Assert.assertEquals(input2, inputPool.findByUsername("user2").get());
+    Assert.assertTrue(inputPool.hasInput(input2.getInput()));
+
+    // remove first => last input moved
+    Assert.assertEquals(input1, inputPool.removeByUsername("user1").get());
+    Assert.assertFalse(inputPool.removeByUsername("user1").isPresent());
+    Assert.assertFalse(inputPool.hasInput(input1.getInput()));
+    Assert.assertEquals(input3, inputPool.findByUsername("user3").get());
+    Assert.assertEquals(input3, inputPool.removeByUsername("user3").get());
+    Assert.assertEquals(1, inputPool.getSize());
+
+    Assert.assertEquals(input2, inputPool.peekRandom().get());
+    Assert.assertFalse(inputPool.peekRandom().isPresent());
+    Assert.assertFalse(inputPool.hasInputs());
+  }
+
+  @Test
+  public void removeByInput() throws Exception {
+    InputPool inputPool = new InputPool();
+    RegisteredInput input1 = computeInput(1);
+    RegisteredInput input2 = computeInput(2);
+    inputPool.register(input1);
+    inputPool.register(input2);
+
+    Assert.assertEquals(input1, inputPool.removeByInput(input1.getInput()).get());
+    Assert.assertFalse(inputPool.removeByInput(input1.getInput()).isPresent());
+    Assert.assertFalse(inputPool.findByUsername("user1").isPresent());
+    Assert.assertEquals(input2, inputPool.findByUsername("user2").get());
+    Assert.assertEquals(1, inputPool.getSize());
+  }
+
+  @Test
+  public void removeAndPeekAll() throws Exception {
+    int nbInputs = 1000;
+    InputPool inputPool = new InputPool();
+    for (int i = 0; i < nbInputs; i++) {
+      inputPool.register(computeInput(i));
+    }
+
+    // remove 1/3 by username
+    for (int i = 0; i < nbInputs; i += 3) {
+      Assert.assertTrue(inputPool.removeByUsername("user" + i).isPresent());
+    }
+
+    // peek all remaining: each one exactly once, removed ones never
+    Set<String> usernames = new HashSet<>();
+    Optional<RegisteredInput> registeredInput;
+    while ((registeredInput = inputPool.peekRandom()).isPresent()) {
+      String username = registeredInput.get().getUsername();
+      Assert.assertTrue(usernames.add(username));
+      Assert.assertNotEquals(0, Integer.parseInt(username.substring(4)) % 3);
+    }
+    Assert.assertEquals(nbInputs - (nbInputs + 2) / 3, usernames.size());
+    Assert.assertEquals(0, inputPool.getSize());
+    Assert.assertFalse(inputPool.hasInputs());
+  }
+}
@@ -0,0 +1,150 @@
+package com.samourai.whirlpool.server.beans;
+
+import com.samourai.whirlpool.server.beans.rpc.RawTransaction;
+import java.util.Arrays;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutPoint;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.core.TransactionWitness;
+import org.bitcoinj.params.TestNet3Params;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RawTransactionTest {
+  private static final NetworkParameters params = TestNet3Params.get();
+
+  @Test
+  public void legacy() throws Exception {
+    Transaction tx = createTransaction(3, 2, 25);
+    byte[] bytes = tx.bitcoinSerialize();
+    Assert.assertNotEquals(0, bytes[4]); // no segwit marker
+
+    assertSameAsBitcoinj(bytes);
+  }
+
+  @Test
+  public void segwit() throws Exception {
+    Transaction tx = createTransaction(3, 2, 22);
+    for (int i = 0; i < tx.getInputs().size(); i++) {
+      TransactionWitness witness = new TransactionWitness(2);
+      witness.setPush(0, new byte[72]);
+      witness.setPush(1, new byte[33]);
+      tx.getInput(i).setWitness(witness);
+    }
+    byte[] bytes = tx.bitcoinSerialize();
+    Assert.assertEquals(0, bytes[4]); // marker
+    Assert.assertEquals(1, bytes[5]); // flag
+
+    assertSameAsBitcoinj(bytes);
+  }
+
+  @Test
+  public void varIntBoundaries() throws Exception {
+    // 0xfc: single byte, 0xfd: 0xfd + uint16, 0x10000: 0xfe + uint32
+    for (int scriptSize : new int[] {0xfc, 0xfd, 0xffff, 0x10000}) {
+      assertSameAsBitcoinj(createTransaction(1, 1, scriptSize).bitcoinSerialize());
+    }
+    for (int count : new int[] {0xfc, 0xfd}) {
+      assertSameAsBitcoinj(createTransaction(count, count, 22).bitcoinSerialize());
+    }
+  }
+
+  @Test
+  public void truncated() throws Exception {
+    byte[] bytes = createSegwitTransaction().bitcoinSerialize();
+    for (int length = 0; length < bytes.length; length++) {
+      assertInvalid(Arrays.copyOf(bytes, length));
+    }
+  }
+
+  @Test
+  public void trailingBytes() throws Exception {
+    byte[] bytes = createSegwitTransaction().bitcoinSerialize();
+    assertInvalid(Arrays.copyOf(bytes, bytes.length + 1));
+  }
+
+  @Test
+  public void segwitFlag() throws Exception {
+    byte[] bytes = createSegwitTransaction().bitcoinSerialize();
+
+    // only flag 0x01 is defined
+    for (int flag : new int[] {0x00, 0x02, 0x03, 0xff}) {
+      byte[] invalid = bytes.clone();
+      invalid[5] = (byte) flag;
+      assertInvalid(invalid);
+    }
+    assertSameAsBitcoinj(bytes);
+  }
+
+  @Test
+  public void countOverflow() throws Exception {
+    byte[] bytes = createTransaction(1, 1, 22).bitcoinSerialize();
+
+    // inputs count = 0xffffffff
+    byte[] invalid = new byte[bytes.length + 4];
+    System.arraycopy(bytes, 0, invalid, 0, 4);
+    invalid[4] = (byte) 0xfe;
+    Arrays.fill(invalid, 5, 9, (byte) 0xff);
+    System.arraycopy(bytes, 5, invalid, 9, bytes.length - 5);
+    assertInvalid(invalid);
+  }
+
+  private void assertSameAsBitcoinj(byte[] bytes) {
+    Transaction expected = new Transaction(params, bytes);
+    RawTransaction rawTx = new RawTransaction(bytes);
+
+    Assert.assertEquals(expected.getHashAsString(), rawTx.getTxid());
+    Assert.assertEquals(expected.getInputs().size(), rawTx.getNbIns());
+    for (int i = 0; i < rawTx.getNbIns(); i++) {
+      TransactionOutPoint outPoint = expected.getInput(i).getOutpoint();
+      Assert.assertEquals(outPoint.getHash().toString(), rawTx.getInOriginHash(i));
+      Assert.assertEquals(outPoint.getIndex(), rawTx.getInOriginIndex(i));
+    }
+    Assert.assertEquals(expected.getOutputs().size(), rawTx.getNbOuts());
+    for (int i = 0; i < rawTx.getNbOuts(); i++) {
+      TransactionOutput out = expected.getOutput(i);
+      Assert.assertEquals(out.getValue().getValue(), rawTx.getOutValue(i));
+      Assert.assertArrayEquals(out.getScriptBytes(), rawTx.getOutScriptPubKey(i));
+    }
+  }
+
+  private void assertInvalid(byte[] bytes) {
+    try {
+      new RawTransaction(bytes);
+      Assert.fail("parsed invalid tx of " + bytes.length + " bytes");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  private Transaction createSegwitTransaction() {
+    Transaction tx = createTransaction(2, 2, 22);
+    TransactionWitness witness = new TransactionWitness(2);
+    witness.setPush(0, new byte[72]);
+    witness.setPush(1, new byte[33]);
+    tx.getInput(0).setWitness(witness);
+    return tx;
+  }
+
+  private Transaction createTransaction(int nbIns, int nbOuts, int scriptSize) {
+    Transaction tx = new Transaction(params);
+    for (int i = 0; i < nbIns; i++) {
+      byte[] hash = new byte[32];
+      Arrays.fill(hash, (byte) (i + 1));
+      hash[0] = (byte) 0xab; // not symmetric, to verify byte order
+      TransactionOutPoint outPoint =
+          new TransactionOutPoint(params, i * 1000L + 0xfffe, Sha256Hash.wrap(hash));
+      tx.addInput(new TransactionInput(params, tx, new byte[] {1, 2, 3}, outPoint));
+    }
+    for (int i = 0; i < nbOuts; i++) {
+      byte[] script = new byte[scriptSize];
+      Arrays.fill(script, (byte) i);
+      tx.addOutput(new TransactionOutput(params, tx, Coin.valueOf(1000L * i + 1), script));
+    }
+    return tx;
+  }
+}
@@ -0,0 +1,114 @@
+package com.samourai.whirlpool.server.beans;
+
+import com.samourai.wallet.segwit.bech32.Bech32UtilGeneric;
+import com.samourai.whirlpool.server.beans.rpc.RpcIn;
+import com.samourai.whirlpool.server.beans.rpc.RpcOut;
+import com.samourai.whirlpool.server.beans.rpc.RpcTransaction;
+import com.samourai.whirlpool.server.services.rpc.RpcRawTransactionResponse;
+import com.samourai.whirlpool.server.utils.Utils;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.params.TestNet3Params;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares RpcTransaction parsing against the former bitcoinj-based parser, on a 5 inputs / 5
+ * outputs segwit mix tx. Run with main().
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RpcTransactionBenchmark {
+  private static final String MOCK_TX =
+      "/mocks/3bb546df988d8a577c2b2f216a18b7e337ebaf759187ae88e0eee01829f04eb1.txt";
+
+  private NetworkParameters params;
+  private Bech32UtilGeneric bech32Util;
+  private RpcRawTransactionResponse rawTxResponse;
+
+  @Setup
+  public void setup() throws Exception {
+    params = TestNet3Params.get();
+    bech32Util = Bech32UtilGeneric.getInstance();
+    try (InputStream in = getClass().getResourceAsStream(MOCK_TX);
+        Scanner scanner = new Scanner(in, "UTF-8")) {
+      rawTxResponse = new RpcRawTransactionResponse(scanner.useDelimiter("\\A").next().trim(), 1);
+    }
+  }
+
+  // former RpcTransaction: full bitcoinj parsing and address of every output
+  @Benchmark
+  public Object bitcoinj_singleOutput() throws Exception {
+    Transaction tx =
+        new Transaction(params, org.bitcoinj.core.Utils.HEX.decode(rawTxResponse.getHex()));
+    String txid = tx.getHashAsString();
+    List<RpcIn> ins = new ArrayList<>();
+    for (TransactionInput in : tx.getInputs()) {
+      ins.add(new RpcIn(in.getOutpoint().getHash().toString(), in.getOutpoint().getIndex()));
+    }
+    List<RpcOut> outs = new ArrayList<>();
+    for (TransactionOutput out : tx.getOutputs()) {
+      String toAddress = Utils.getToAddressBech32(out, bech32Util, params);
+      outs.add(
+          new RpcOut(
+              txid,
+              out.getIndex(),
+              out.getValue().getValue(),
+              out.getScriptPubKey().getProgram(),
+              toAddress));
+    }
+    return outs.get(2).getToAddress();
+  }
+
+  @Benchmark
+  public Object rpcTransaction_singleOutput() throws Exception {
+    RpcTransaction rpcTx = new RpcTransaction(rawTxResponse, params, bech32Util);
+    return Utils.findTxOutput(rpcTx, 2).get().getToAddress();
+  }
+
+  @Benchmark
+  public Object rpcTransaction_inputs() throws Exception {
+    RpcTransaction rpcTx = new RpcTransaction(rawTxResponse, params, bech32Util);
+    long sum = 0;
+    for (RpcIn rpcIn : rpcTx.getIns()) {
+      sum += rpcIn.getOriginHash().length() + rpcIn.getOriginIndex();
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public Object rpcTransaction_allOutputs() throws Exception {
+    RpcTransaction rpcTx = new RpcTransaction(rawTxResponse, params, bech32Util);
+    List<String> toAddresses = new ArrayList<>();
+    for (RpcOut rpcOut : rpcTx.getOuts()) {
+      toAddresses.add(rpcOut.getToAddress());
+    }
+    return toAddresses;
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(RpcTransactionBenchmark.class.getSimpleName()).build())
+        .run();
+  }
+}
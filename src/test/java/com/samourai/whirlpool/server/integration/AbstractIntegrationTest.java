@@ -33,6 +33,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.test.context.ActiveProfiles;
 
@@ -71,7 +72,7 @@ public abstract class AbstractIntegrationTest {
 
   @Autowired protected FormatsUtilGeneric formatsUtil;
 
-  @Autowired protected TaskExecutor taskExecutor;
+  protected TaskExecutor taskExecutor = new SimpleAsyncTaskExecutor();
 
   @Autowired protected Tx0Service tx0Service;
 
@@ -15,6 +15,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
 
@@ -23,6 +24,8 @@ import org.springframework.test.context.junit4.SpringRunner;
 public class BlockchainServiceTest extends AbstractIntegrationTest {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
+  @Autowired private ChainTipService chainTipService;
+
   @Test
   public void getRpcTransaction_96cebec97115f59339a9053b6084aab5869adeefdbdbe974b74bfdbf3b8eaac3() {
     String txid = "96cebec97115f59339a9053b6084aab5869adeefdbdbe974b74bfdbf3b8eaac3";
@@ -105,6 +108,52 @@ public class BlockchainServiceTest extends AbstractIntegrationTest {
         "0014d798ca9c7e764f5186887f0b381a50b7122c668b");
   }
 
+  @Test
+  public void getRpcTransaction_cachedWhenFinal() throws Exception {
+    chainTipService.__checkChainTip();
+    String finalTxid =
+        rpcClientService
+            .createAndMockTxOutPoint(testUtils.createSegwitAddress(), 1000000, 10)
+            .getHash();
+    String recentTxid =
+        rpcClientService
+            .createAndMockTxOutPoint(testUtils.createSegwitAddress(), 1000000, 2)
+            .getHash();
+    Assert.assertEquals(
+        10, blockchainDataService.getRpcTransaction(finalTxid).get().getConfirmations());
+    Assert.assertEquals(
+        2, blockchainDataService.getRpcTransaction(recentTxid).get().getConfirmations());
+
+    // final tx is served from cache, recent tx only requires its block header
+    rpcClientService.resetMock();
+    Assert.assertEquals(
+        10, blockchainDataService.getRpcTransaction(finalTxid).get().getConfirmations());
+    Assert.assertEquals(
+        2, blockchainDataService.getRpcTransaction(recentTxid).get().getConfirmations());
+
+    // confirmations are derived from chain tip (final) or block header (recent)
+    rpcClientService.mockNewBlock();
+    chainTipService.__checkChainTip();
+    Assert.assertEquals(
+        11, blockchainDataService.getRpcTransaction(finalTxid).get().getConfirmations());
+    Assert.assertEquals(
+        3, blockchainDataService.getRpcTransaction(recentTxid).get().getConfirmations());
+  }
+
+  @Test
+  public void getRpcTransaction_unconfirmedRequiresRpc() throws Exception {
+    chainTipService.__checkChainTip();
+    String txid =
+        rpcClientService
+            .createAndMockTxOutPoint(testUtils.createSegwitAddress(), 1000000, 0)
+            .getHash();
+    Assert.assertEquals(0, blockchainDataService.getRpcTransaction(txid).get().getConfirmations());
+
+    // no block to refresh from: tx is fetched again
+    rpcClientService.resetMock();
+    Assert.assertFalse(blockchainDataService.getRpcTransaction(txid).isPresent());
+  }
+
   private void assertRpcOut(
       RpcOut rpcOut,
       String hash,
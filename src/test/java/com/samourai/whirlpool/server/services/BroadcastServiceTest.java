@@ -0,0 +1,201 @@
+package com.samourai.whirlpool.server.services;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
+
+import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
+import com.samourai.whirlpool.server.integration.AbstractIntegrationTest;
+import com.samourai.whirlpool.server.services.rpc.RpcBlockHeaderResponse;
+import com.samourai.whirlpool.server.services.rpc.RpcClientService;
+import com.samourai.whirlpool.server.services.rpc.RpcRawTransactionResponse;
+import java.lang.invoke.MethodHandles;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.bitcoinj.core.Transaction;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = DEFINED_PORT)
+public class BroadcastServiceTest extends AbstractIntegrationTest {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private BroadcastService computeBroadcastService(
+      RpcClientService rpcClient, int timeout, int retries, int signingTimeout) {
+    WhirlpoolServerConfig.BroadcastConfig broadcastConfig =
+        new WhirlpoolServerConfig.BroadcastConfig();
+    broadcastConfig.setTimeout(timeout);
+    broadcastConfig.setRetries(retries);
+    WhirlpoolServerConfig.SigningConfig signingConfig = new WhirlpoolServerConfig.SigningConfig();
+    signingConfig.setTimeout(signingTimeout);
+    WhirlpoolServerConfig config = new WhirlpoolServerConfig();
+    config.setBroadcast(broadcastConfig);
+    config.setSigning(signingConfig);
+    return new BroadcastService(rpcClient, config);
+  }
+
+  @Test
+  public void broadcast_retry() throws Exception {
+    // fails twice, then succeeds
+    ScriptedRpcClient rpcClient = new ScriptedRpcClient(2, 0, false);
+    BroadcastService broadcastService = computeBroadcastService(rpcClient, 5, 2, 40);
+
+    broadcastService.broadcast(new Transaction(cryptoService.getNetworkParameters())).join();
+
+    // VERIFY
+    Assert.assertEquals(3, rpcClient.nbBroadcasts.get());
+    Assert.assertEquals(1, broadcastService.getNbSuccess());
+    Assert.assertEquals(0, broadcastService.getNbFailed());
+  }
+
+  @Test
+  public void broadcast_timeoutThenKnown() throws Exception {
+    // first attempt hangs but reaches node
+    ScriptedRpcClient rpcClient = new ScriptedRpcClient(0, 1, true);
+    BroadcastService broadcastService = computeBroadcastService(rpcClient, 1, 2, 40);
+
+    broadcastService.broadcast(new Transaction(cryptoService.getNetworkParameters())).join();
+
+    // VERIFY: not broadcast again
+    Assert.assertEquals(1, rpcClient.nbBroadcasts.get());
+    Assert.assertEquals(1, broadcastService.getNbSuccess());
+  }
+
+  @Test
+  public void broadcast_knownAfterLastAttempt() throws Exception {
+    // single attempt fails but reaches node
+    ScriptedRpcClient rpcClient = new ScriptedRpcClient(1, 0, true);
+    BroadcastService broadcastService = computeBroadcastService(rpcClient, 5, 0, 40);
+
+    broadcastService.broadcast(new Transaction(cryptoService.getNetworkParameters())).join();
+
+    // VERIFY
+    Assert.assertEquals(1, rpcClient.nbBroadcasts.get());
+    Assert.assertEquals(1, broadcastService.getNbSuccess());
+  }
+
+  @Test
+  public void broadcast_boundedBySigningTimeout() throws Exception {
+    // always hangs: 3s per attempt * 6 attempts, but signing timeout is 8s
+    ScriptedRpcClient rpcClient = new ScriptedRpcClient(0, 100, false);
+    BroadcastService broadcastService = computeBroadcastService(rpcClient, 3, 5, 8);
+
+    long start = System.currentTimeMillis();
+    try {
+      broadcastService.broadcast(new Transaction(cryptoService.getNetworkParameters())).join();
+      Assert.fail();
+    } catch (CompletionException e) {
+      // expected
+    }
+    long elapsed = System.currentTimeMillis() - start;
+
+    // VERIFY
+    log.info("broadcast failed after " + elapsed + "ms");
+    Assert.assertTrue(elapsed < 8000);
+    Assert.assertEquals(1, broadcastService.getNbFailed());
+  }
+
+  @Test
+  public void broadcast_deadlineFromEnqueue() throws Exception {
+    // always hangs: first tx holds the worker until its deadline (8s - 5s reserved for check)
+    ScriptedRpcClient rpcClient = new ScriptedRpcClient(0, 100, false);
+    BroadcastService broadcastService = computeBroadcastService(rpcClient, 3, 5, 8);
+
+    long start = System.currentTimeMillis();
+    CompletableFuture<Void> first =
+        broadcastService.broadcast(new Transaction(cryptoService.getNetworkParameters()));
+    CompletableFuture<Void> second =
+        broadcastService.broadcast(new Transaction(cryptoService.getNetworkParameters()));
+    try {
+      second.join();
+      Assert.fail();
+    } catch (CompletionException e) {
+      // expected
+    }
+    long elapsed = System.currentTimeMillis() - start;
+
+    // VERIFY: time spent in queue counted, second tx not given a full timeout
+    log.info("second broadcast failed after " + elapsed + "ms");
+    Assert.assertTrue(first.isCompletedExceptionally());
+    Assert.assertTrue(elapsed < 5000);
+    Assert.assertEquals(1, rpcClient.nbBroadcasts.get());
+    Assert.assertEquals(2, broadcastService.getNbFailed());
+  }
+
+  /** Broadcast fails nbErrors times, then hangs nbHangs times, then succeeds. */
+  private static class ScriptedRpcClient implements RpcClientService {
+    private int nbErrors;
+    private int nbHangs;
+    private boolean txKnownOnFailure;
+    private AtomicInteger nbBroadcasts;
+    private volatile boolean txKnown;
+
+    ScriptedRpcClient(int nbErrors, int nbHangs, boolean txKnownOnFailure) {
+      this.nbErrors = nbErrors;
+      this.nbHangs = nbHangs;
+      this.txKnownOnFailure = txKnownOnFailure;
+      this.nbBroadcasts = new AtomicInteger(0);
+      this.txKnown = false;
+    }
+
+    @Override
+    public CompletableFuture<Void> broadcastTransactionAsync(Transaction tx) {
+      int attempt = nbBroadcasts.incrementAndGet();
+      CompletableFuture<Void> future = new CompletableFuture<>();
+      if (attempt <= nbErrors) {
+        txKnown = txKnownOnFailure;
+        future.completeExceptionally(new Exception("broadcast error"));
+      } else if (attempt <= nbErrors + nbHangs) {
+        txKnown = txKnownOnFailure; // never completes
+      } else {
+        txKnown = true;
+        future.complete(null);
+      }
+      return future;
+    }
+
+    @Override
+    public void broadcastTransaction(Transaction tx) throws Exception {
+      broadcastTransactionAsync(tx).get();
+    }
+
+    @Override
+    public Optional<RpcRawTransactionResponse> getRawTransaction(String txid) {
+      return txKnown ? Optional.of(new RpcRawTransactionResponse("", 0)) : Optional.empty();
+    }
+
+    @Override
+    public Map<String, RpcRawTransactionResponse> getRawTransactions(Collection<String> txids) {
+      return new HashMap<>();
+    }
+
+    @Override
+    public Optional<RpcBlockHeaderResponse> getBlockHeader(String blockHash) {
+      return Optional.empty();
+    }
+
+    @Override
+    public boolean testConnectivity() {
+      return true;
+    }
+
+    @Override
+    public Optional<String> getBestBlockHash() {
+      return Optional.empty();
+    }
+
+    @Override
+    public Optional<Integer> getBlockHeight() {
+      return Optional.empty();
+    }
+  }
+}
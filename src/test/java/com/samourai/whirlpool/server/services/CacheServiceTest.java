@@ -3,8 +3,17 @@ package com.samourai.whirlpool.server.services;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
 
 import com.samourai.whirlpool.server.beans.CachedResult;
+import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
+import com.samourai.whirlpool.server.exceptions.IllegalInputException;
 import com.samourai.whirlpool.server.integration.AbstractIntegrationTest;
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -138,4 +147,101 @@ public class CacheServiceTest extends AbstractIntegrationTest {
     Mockito.verify(spy, Mockito.times(nbCallsExpected))
         .fooCachedResult(Mockito.any(Exception.class));
   }
+
+  @Test
+  public void getOrPut_concurrent() throws Exception {
+    String CACHE_NAME = "TEST_getOrPut_concurrent";
+    AtomicInteger nbLoads = new AtomicInteger(0);
+    CountDownLatch loading = new CountDownLatch(1);
+
+    // TEST: concurrent misses on same key => single load
+    ExecutorService executor = Executors.newFixedThreadPool(10);
+    List<Future<String>> results = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      results.add(
+          executor.submit(
+              () ->
+                  cacheService.getOrPut(
+                      CACHE_NAME,
+                      "111",
+                      String.class,
+                      (v) -> {
+                        nbLoads.incrementAndGet();
+                        loading.countDown();
+                        try {
+                          Thread.sleep(500);
+                        } catch (InterruptedException e) {
+                          Thread.currentThread().interrupt();
+                        }
+                        return "result111";
+                      })));
+    }
+    loading.await();
+    for (Future<String> result : results) {
+      Assert.assertEquals("result111", result.get());
+    }
+    executor.shutdown();
+
+    // VERIFY
+    Assert.assertEquals(1, nbLoads.get());
+  }
+
+  @Test
+  public void getOrPut_stats() throws Exception {
+    String CACHE_NAME = "TEST_getOrPut_stats";
+    WhirlpoolServerConfig.CacheConfig cacheConfig = new WhirlpoolServerConfig.CacheConfig();
+    cacheConfig.setMaxSize(100);
+    cacheConfig.setPositiveTtl(60);
+    cacheConfig.setNegativeTtl(60);
+    WhirlpoolServerConfig config = new WhirlpoolServerConfig();
+    config.setCache(cacheConfig);
+    CacheService cacheServiceStats = new CacheService(config);
+
+    // TEST: cold miss then hit
+    Assert.assertEquals(
+        "result111",
+        cacheServiceStats.getOrPut(CACHE_NAME, "111", String.class, (v) -> "result111"));
+    Assert.assertEquals(
+        "result111",
+        cacheServiceStats.getOrPut(CACHE_NAME, "111", String.class, (v) -> "result111"));
+
+    // VERIFY: re-check inside the load is not counted as a second miss
+    String stats = cacheServiceStats.getStats().get(CACHE_NAME);
+    Assert.assertTrue(stats, stats.contains("hits=1, misses=1"));
+  }
+
+  @Test
+  public void ttl() throws Exception {
+    String CACHE_NAME = "TEST_ttl";
+    WhirlpoolServerConfig.CacheConfig cacheConfig = new WhirlpoolServerConfig.CacheConfig();
+    cacheConfig.setMaxSize(100);
+    cacheConfig.setPositiveTtl(60);
+    cacheConfig.setNegativeTtl(1);
+    WhirlpoolServerConfig config = new WhirlpoolServerConfig();
+    config.setCache(cacheConfig);
+    CacheService cacheServiceTtl = new CacheService(config);
+
+    cacheServiceTtl.put(CACHE_NAME, "positive", new CachedResult("ok"));
+    cacheServiceTtl.put(CACHE_NAME, "negative", new CachedResult(new IllegalInputException("ko")));
+
+    // TEST: both cached
+    Assert.assertEquals(
+        "ok", cacheServiceTtl.get(CACHE_NAME, "positive", CachedResult.class).getOrException());
+    try {
+      cacheServiceTtl.get(CACHE_NAME, "negative", CachedResult.class).getOrException();
+      Assert.assertTrue(false);
+    } catch (IllegalInputException e) {
+      // exception rebuilt from cache
+      Assert.assertEquals("ko", e.getMessage());
+    }
+
+    // TEST: negative result expired
+    Thread.sleep(1500);
+    Assert.assertNotNull(cacheServiceTtl.get(CACHE_NAME, "positive", CachedResult.class));
+    Assert.assertNull(cacheServiceTtl.get(CACHE_NAME, "negative", CachedResult.class));
+
+    // VERIFY stats
+    String stats = cacheServiceTtl.getStats().get(CACHE_NAME);
+    Assert.assertTrue(stats, stats.contains("hits=3, misses=1"));
+  }
 }
@@ -89,7 +89,7 @@ public class ConfirmInputServiceTest extends AbstractIntegrationTest {
         cryptoService.signBlindedOutput(blindedBordereau, mix.getKeyPair());
 
     // REGISTER_OUTPUT
-    mix.setMixStatusAndTime(MixStatus.REGISTER_OUTPUT);
+    mixService.changeMixStatus(mix.getMixId(), MixStatus.REGISTER_OUTPUT);
     Assert.assertEquals(0, mix.getReceiveAddresses().size());
     byte[] unblindedSignedBordereau =
         clientCryptoService.unblind(signedBlindedBordereau, blindingParams);
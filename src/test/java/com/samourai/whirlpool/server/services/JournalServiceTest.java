@@ -0,0 +1,110 @@
+package com.samourai.whirlpool.server.services;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
+
+import com.samourai.whirlpool.server.beans.FailReason;
+import com.samourai.whirlpool.server.beans.Mix;
+import com.samourai.whirlpool.server.beans.RegisteredInput;
+import com.samourai.whirlpool.server.beans.TxOutPoint;
+import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
+import com.samourai.whirlpool.server.integration.AbstractIntegrationTest;
+import java.io.File;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = DEFINED_PORT)
+public class JournalServiceTest extends AbstractIntegrationTest {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private WhirlpoolServerConfig computeConfig() throws Exception {
+    File directory = Files.createTempDirectory("journal").toFile();
+    WhirlpoolServerConfig.JournalConfig journalConfig = new WhirlpoolServerConfig.JournalConfig();
+    journalConfig.setEnabled(true);
+    journalConfig.setDirectory(directory.getAbsolutePath());
+    WhirlpoolServerConfig config = new WhirlpoolServerConfig();
+    config.setJournal(journalConfig);
+    return config;
+  }
+
+  @Test
+  public void recover() throws Exception {
+    WhirlpoolServerConfig config = computeConfig();
+    DbService mockDbService = Mockito.mock(DbService.class);
+
+    Mix mix = __getCurrentMix();
+    String poolId = mix.getPool().getPoolId();
+    byte[] pubkey = new byte[] {1, 2, 3};
+    String hash1 = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa";
+    String hash2 = "bbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbb";
+    RegisteredInput queuedInput =
+        new RegisteredInput("user1", pubkey, false, new TxOutPoint(hash1, 1, 1234, 5));
+    RegisteredInput invitedInput =
+        new RegisteredInput("user2", pubkey, false, new TxOutPoint(hash2, 0, 1234, 5));
+
+    JournalService journalService = new JournalService(mockDbService, config);
+    journalService.onInputQueued(poolId, queuedInput);
+    journalService.onInputQueued(poolId, invitedInput);
+    journalService.onMixStatus(mix);
+    journalService.onInputInvited(mix, invitedInput);
+    journalService.onInputConfirmed(mix, invitedInput);
+    Thread.sleep(1000); // wait for flush
+
+    // TEST: restart
+    JournalService journalServiceRestarted = new JournalService(mockDbService, config);
+
+    // VERIFY: running mix failed
+    Mockito.verify(mockDbService).failMix(mix.getMixId(), FailReason.FAIL_INTERRUPTED);
+
+    // VERIFY: queued input recovered, invited input not recovered
+    Map<String, List<RegisteredInput>> recoveredInputs =
+        journalServiceRestarted.takeRecoveredInputs();
+    Assert.assertEquals(1, recoveredInputs.size());
+    Assert.assertEquals(1, recoveredInputs.get(poolId).size());
+    RegisteredInput recoveredInput = recoveredInputs.get(poolId).get(0);
+    Assert.assertEquals("user1", recoveredInput.getUsername());
+    Assert.assertArrayEquals(pubkey, recoveredInput.getPubkey());
+    Assert.assertFalse(recoveredInput.isLiquidity());
+    Assert.assertEquals(hash1, recoveredInput.getInput().getHash());
+    Assert.assertEquals(1, recoveredInput.getInput().getIndex());
+    Assert.assertEquals(1234, recoveredInput.getInput().getValue());
+    Assert.assertEquals(5, recoveredInput.getInput().getConfirmations());
+    Assert.assertTrue(journalServiceRestarted.takeRecoveredInputs().isEmpty());
+    journalService.close();
+    journalServiceRestarted.close();
+  }
+
+  @Test
+  public void close_flushesPendingRecords() throws Exception {
+    WhirlpoolServerConfig config = computeConfig();
+    DbService mockDbService = Mockito.mock(DbService.class);
+    String poolId = __getCurrentMix().getPool().getPoolId();
+    String hash = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa";
+    RegisteredInput queuedInput =
+        new RegisteredInput("user1", new byte[] {1}, false, new TxOutPoint(hash, 1, 1234, 5));
+
+    JournalService journalService = new JournalService(mockDbService, config);
+    journalService.onInputQueued(poolId, queuedInput);
+
+    // TEST: graceful shutdown before next periodic flush
+    journalService.close();
+
+    // VERIFY: record written
+    JournalService journalServiceRestarted = new JournalService(mockDbService, config);
+    Map<String, List<RegisteredInput>> recoveredInputs =
+        journalServiceRestarted.takeRecoveredInputs();
+    Assert.assertEquals(1, recoveredInputs.get(poolId).size());
+    Assert.assertEquals(hash, recoveredInputs.get(poolId).get(0).getInput().getHash());
+    journalServiceRestarted.close();
+  }
+}
@@ -2,8 +2,11 @@ package com.samourai.whirlpool.server.services;
 
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
 
+import com.samourai.whirlpool.protocol.websocket.notifications.MixStatus;
 import com.samourai.whirlpool.server.beans.ConfirmedInput;
+import com.samourai.whirlpool.server.beans.FailReason;
 import com.samourai.whirlpool.server.beans.Mix;
+import com.samourai.whirlpool.server.beans.Pool;
 import com.samourai.whirlpool.server.beans.RegisteredInput;
 import com.samourai.whirlpool.server.beans.TxOutPoint;
 import com.samourai.whirlpool.server.integration.AbstractIntegrationTest;
@@ -106,6 +109,56 @@ public class MixServiceTest extends AbstractIntegrationTest {
     Assert.assertTrue(spyMixService.isRegisterInputReady(mix));
   }
 
+  @Test
+  public void inputCounters() throws Exception {
+    long denomination = 200000000;
+    long minerFeeMin = 100;
+    long minerFeeMax = 10000;
+    int mustMixMin = 1;
+    int anonymitySetTarget = 2;
+    int anonymitySetMin = 2;
+    int anonymitySetMax = 5;
+    long anonymitySetAdjustTimeout = 10 * 60;
+    long liquidityTimeout = 60;
+    Mix mix =
+        __nextMix(
+            denomination,
+            minerFeeMin,
+            minerFeeMax,
+            mustMixMin,
+            anonymitySetTarget,
+            anonymitySetMin,
+            anonymitySetMax,
+            anonymitySetAdjustTimeout,
+            liquidityTimeout);
+
+    TxOutPoint input1 = generateInput();
+    TxOutPoint input2 = new TxOutPoint(input1.getHash(), 1, 99999, 99); // same hash
+    ConfirmedInput mustMix1 =
+        new ConfirmedInput(new RegisteredInput("mustMix1", null, false, input1), null);
+    ConfirmedInput liquidity1 =
+        new ConfirmedInput(new RegisteredInput("liquidity1", null, true, input2), null);
+    mix.registerInput(mustMix1);
+    mix.registerInput(liquidity1);
+    Assert.assertEquals(1, mix.getNbInputsMustMix());
+    Assert.assertEquals(1, mix.getNbInputsLiquidities());
+    Assert.assertEquals(2, mix.getNbInputsSameHash(input1.getHash()));
+    Assert.assertEquals(99999 * 2, mix.computeAmountIn());
+
+    // unregister
+    mix.unregisterInput(mustMix1);
+    mix.unregisterInput(mustMix1); // already unregistered => ignored
+    Assert.assertEquals(0, mix.getNbInputsMustMix());
+    Assert.assertEquals(1, mix.getNbInputsLiquidities());
+    Assert.assertEquals(1, mix.getNbInputsSameHash(input1.getHash()));
+    Assert.assertEquals(99999, mix.computeAmountIn());
+
+    mix.unregisterInput(liquidity1);
+    Assert.assertEquals(0, mix.getNbInputsLiquidities());
+    Assert.assertEquals(0, mix.getNbInputsSameHash(input1.getHash()));
+    Assert.assertEquals(0, mix.computeAmountIn());
+  }
+
   private List<TxOutPoint> generateInputsList(int nb) {
     List<TxOutPoint> inputs = new ArrayList<>();
     while (inputs.size() < nb) {
@@ -115,6 +168,48 @@ public class MixServiceTest extends AbstractIntegrationTest {
     return inputs;
   }
 
+  @Test
+  public void mixsInFlight_overlapping() throws Exception {
+    int maxInFlight = serverConfig.getMix().getMaxInFlight();
+    serverConfig.getMix().setMaxInFlight(2);
+    try {
+      Mix mix1 = __nextMix(200000000, 100, 10000, 1, 1, 1, 2, 10 * 60, 60);
+      Pool pool = mix1.getPool();
+      mix1.registerInput(
+          new ConfirmedInput(new RegisteredInput("user1", null, false, generateInput()), null));
+      Assert.assertEquals(0, mixService.getNbMixsInFlight(pool));
+
+      // TEST: mix1 closes inputs => mix2 accepts inputs while mix1 is running
+      mixService.changeMixStatus(mix1.getMixId(), MixStatus.REGISTER_OUTPUT);
+      Mix mix2 = pool.getCurrentMix();
+      Assert.assertNotSame(mix1, mix2);
+      Assert.assertEquals(MixStatus.CONFIRM_INPUT, mix2.getMixStatus());
+      Assert.assertEquals(1, mixService.getNbMixsInFlight(pool));
+
+      // TEST: mix2 closes inputs => 2 mixs in flight, no more mix
+      mix2.registerInput(
+          new ConfirmedInput(new RegisteredInput("user2", null, false, generateInput()), null));
+      mixService.changeMixStatus(mix2.getMixId(), MixStatus.REGISTER_OUTPUT);
+      Assert.assertSame(mix2, pool.getCurrentMix());
+      Assert.assertEquals(2, mixService.getNbMixsInFlight(pool));
+
+      // TEST: mix1 fails => mix3 accepts inputs while mix2 is running
+      mixService.goFail(mix1, FailReason.FAIL_REGISTER_OUTPUTS);
+      Mix mix3 = pool.getCurrentMix();
+      Assert.assertNotSame(mix2, mix3);
+      Assert.assertEquals(MixStatus.CONFIRM_INPUT, mix3.getMixStatus());
+      Assert.assertEquals(1, mixService.getNbMixsInFlight(pool));
+      Assert.assertTrue(pool.getMixsInFlight().contains(mix2));
+
+      // TEST: mix2 fails => current mix3 kept
+      mixService.goFail(mix2, FailReason.FAIL_REGISTER_OUTPUTS);
+      Assert.assertSame(mix3, pool.getCurrentMix());
+      Assert.assertEquals(0, mixService.getNbMixsInFlight(pool));
+    } finally {
+      serverConfig.getMix().setMaxInFlight(maxInFlight);
+    }
+  }
+
   private TxOutPoint generateInput() {
     TxOutPoint txOutPoint = new TxOutPoint(Utils.getRandomString(65), 0, 99999, 99);
     return txOutPoint;
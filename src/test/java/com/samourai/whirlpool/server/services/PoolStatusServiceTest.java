@@ -0,0 +1,105 @@
+package com.samourai.whirlpool.server.services;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
+
+import com.samourai.whirlpool.server.beans.Pool;
+import com.samourai.whirlpool.server.beans.PoolStatusDelta;
+import com.samourai.whirlpool.server.beans.RegisteredInput;
+import com.samourai.whirlpool.server.beans.TxOutPoint;
+import com.samourai.whirlpool.server.integration.AbstractIntegrationTest;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = DEFINED_PORT)
+public class PoolStatusServiceTest extends AbstractIntegrationTest {
+  private WebSocketService mockWebSocketService;
+  private PoolStatusService poolStatusService;
+  private PoolService poolService;
+  private String poolId;
+
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    mockWebSocketService = Mockito.mock(WebSocketService.class);
+    poolStatusService = new PoolStatusService(mockWebSocketService, new TaskService());
+    poolService =
+        new PoolService(
+            serverConfig,
+            cryptoService,
+            mockWebSocketService,
+            Mockito.mock(JournalService.class),
+            poolStatusService);
+    poolId = serverConfig.getPools()[0].getId();
+  }
+
+  @Test
+  public void onPoolChange_coalesced() throws Exception {
+    Pool pool = poolService.getPool(poolId);
+    queueInput(pool, 0);
+    waitPublished(1);
+
+    // TEST: 99 changes in a burst
+    for (int i = 1; i < 100; i++) {
+      queueInput(pool, i);
+    }
+
+    // VERIFY: coalesced in a single update
+    List<PoolStatusDelta> published = waitPublished(2);
+    Assert.assertEquals(2, published.size());
+    Assert.assertEquals(100, (int) published.get(1).getNbRegistered());
+    Assert.assertEquals(poolId, published.get(1).getPoolId());
+
+    // VERIFY: only changed fields
+    Assert.assertNotNull(published.get(0).getMixStatus());
+    Assert.assertNull(published.get(1).getMixStatus());
+    Thread.sleep(1000);
+    Mockito.verify(mockWebSocketService, Mockito.times(2))
+        .sendTopic(Mockito.anyString(), Mockito.any());
+  }
+
+  @Test
+  public void onPoolChange_afterReset() throws Exception {
+    Pool pool = poolService.getPool(poolId);
+    queueInput(pool, 0);
+    waitPublished(1);
+
+    // update scheduled on pool...
+    queueInput(pool, 1);
+
+    // TEST: ...which is reset before update is published
+    poolService.__reset();
+    Pool newPool = poolService.getPool(poolId);
+    queueInput(newPool, 2);
+
+    // VERIFY: new pool still published
+    List<PoolStatusDelta> published = waitPublished(2);
+    Assert.assertEquals(2, published.size());
+    Assert.assertEquals(1, (int) published.get(1).getNbRegistered());
+  }
+
+  private void queueInput(Pool pool, int i) {
+    TxOutPoint input = new TxOutPoint(String.format("%064x", i), 0, pool.getDenomination(), 99);
+    RegisteredInput registeredInput = new RegisteredInput("user" + i, new byte[] {1}, false, input);
+    pool.getSerialExecutor()
+        .run(
+            () -> {
+              pool.getMustMixQueue().register(registeredInput);
+              poolStatusService.onPoolChange(pool);
+            });
+  }
+
+  private List<PoolStatusDelta> waitPublished(int nbPublished) {
+    ArgumentCaptor<PoolStatusDelta> captor = ArgumentCaptor.forClass(PoolStatusDelta.class);
+    Mockito.verify(mockWebSocketService, Mockito.timeout(3000).times(nbPublished))
+        .sendTopic(Mockito.eq(PoolStatusService.TOPIC_POOL_STATUS + poolId), captor.capture());
+    return captor.getAllValues();
+  }
+}
@@ -7,12 +7,17 @@ import com.samourai.whirlpool.protocol.websocket.notifications.MixStatus;
 import com.samourai.whirlpool.server.beans.InputPool;
 import com.samourai.whirlpool.server.beans.Mix;
 import com.samourai.whirlpool.server.beans.Pool;
+import com.samourai.whirlpool.server.beans.RegisteredInput;
 import com.samourai.whirlpool.server.beans.TxOutPoint;
 import com.samourai.whirlpool.server.exceptions.IllegalInputException;
 import com.samourai.whirlpool.server.exceptions.MixException;
 import com.samourai.whirlpool.server.integration.AbstractIntegrationTest;
 import java.lang.invoke.MethodHandles;
 import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 import org.bitcoinj.core.ECKey;
 import org.junit.Assert;
@@ -31,6 +36,7 @@ public class RegisterInputServiceTest extends AbstractIntegrationTest {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
   @Autowired private RegisterInputService registerInputService;
+  @Autowired private ChainTipService chainTipService;
 
   private static final int MIN_CONFIRMATIONS_MUSTMIX = 11;
   private static final int MIN_CONFIRMATIONS_LIQUIDITY = 22;
@@ -418,7 +424,7 @@ public class RegisterInputServiceTest extends AbstractIntegrationTest {
     testUtils.assertMixEmpty(mix);
   }
 
-  private void doRegisterInput(int confirmations, boolean liquidity) throws Exception {
+  private TxOutPoint doRegisterInput(int confirmations, boolean liquidity) throws Exception {
     Mix mix = __getCurrentMix();
     String poolId = mix.getPool().getPoolId();
     String username = "user1";
@@ -445,6 +451,7 @@ public class RegisterInputServiceTest extends AbstractIntegrationTest {
         txOutPoint.getIndex(),
         liquidity,
         true);
+    return txOutPoint;
   }
 
   @Test
@@ -504,5 +511,105 @@ public class RegisterInputServiceTest extends AbstractIntegrationTest {
     testUtils.assertMix(0, 1, mix);
   }
 
+  @Test
+  public void registerInput_shouldPromoteUnconfirmedOnNewBlock() throws Exception {
+    Mix mix = __getCurrentMix();
+    Pool pool = mix.getPool();
+    chainTipService.__checkChainTip();
+
+    // mustMix queued as unconfirmed
+    TxOutPoint txOutPoint = doRegisterInput(MIN_CONFIRMATIONS_MUSTMIX - 1, false);
+    testUtils.assertPool(0, 0, 1, pool);
+    testUtils.assertMixEmpty(mix);
+
+    // same block => not promoted
+    chainTipService.__checkChainTip();
+    testUtils.assertPool(0, 0, 1, pool);
+
+    // new block confirms input
+    String txHex = rpcClientService.getRawTransaction(txOutPoint.getHash()).get().getHex();
+    rpcClientService.mock(txOutPoint.getHash(), txHex, MIN_CONFIRMATIONS_MUSTMIX);
+    rpcClientService.mockNewBlock();
+    chainTipService.__checkChainTip();
+
+    // VERIFY: promoted to mix
+    testUtils.assertPoolEmpty(pool);
+    testUtils.assertMix(0, 1, mix);
+  }
+
+  @Test
+  public void registerInput_shouldRemoveUnconfirmedWhenTxDropped() throws Exception {
+    Mix mix = __getCurrentMix();
+    Pool pool = mix.getPool();
+    chainTipService.__checkChainTip();
+
+    // mustMix queued as unconfirmed
+    TxOutPoint txOutPoint = doRegisterInput(MIN_CONFIRMATIONS_MUSTMIX - 1, false);
+    testUtils.assertPool(0, 0, 1, pool);
+
+    // tx dropped from mempool
+    rpcClientService.unmock(txOutPoint.getHash());
+    rpcClientService.mockNewBlock();
+    chainTipService.__checkChainTip();
+
+    // VERIFY: removed, not promoted
+    testUtils.assertPoolEmpty(pool);
+    testUtils.assertMixEmpty(mix);
+  }
+
+  @Test
+  public void recoverInputs() throws Exception {
+    Mix mix = __getCurrentMix();
+    Pool pool = mix.getPool();
+    String poolId = pool.getPoolId();
+
+    ECKey ecKey =
+        ECKey.fromPrivate(
+            new BigInteger(
+                "34069012401142361066035129995856280497224474312925604298733347744482107649210"));
+    byte[] pubkey = ecKey.getPubKey();
+    SegwitAddress inputAddress = new SegwitAddress(pubkey, cryptoService.getNetworkParameters());
+    long inputBalance = pool.computeInputBalanceMin(false);
+    TxOutPoint unspent = rpcClientService.createAndMockTxOutPoint(inputAddress, inputBalance);
+    TxOutPoint spent =
+        new TxOutPoint(
+            "cccccccccccccccccccccccccccccccccccccccccccccccccccccccccccccccc",
+            0,
+            inputBalance,
+            99);
+
+    // TEST: restart with 2 inputs in journal, one was spent while server was down
+    Map<String, List<RegisteredInput>> recoveredInputs = new HashMap<>();
+    recoveredInputs.put(
+        poolId,
+        Arrays.asList(
+            new RegisteredInput("user1", pubkey, false, unspent),
+            new RegisteredInput("user2", pubkey, false, spent)));
+    int nbRecovered = registerInputService.recoverInputs(recoveredInputs);
+
+    // VERIFY: only valid input requeued
+    Assert.assertEquals(1, nbRecovered);
+    testUtils.assertPool(1, 0, 0, pool);
+    Assert.assertTrue(pool.getMustMixQueue().hasInput(unspent));
+    testUtils.assertMixEmpty(mix);
+
+    // TEST: client reconnects with new username
+    registerInputService.registerInput(
+        poolId,
+        "user3",
+        pubkey,
+        ecKey.signMessage(poolId),
+        unspent.getHash(),
+        unspent.getIndex(),
+        false,
+        true);
+
+    // VERIFY: previous registration replaced
+    testUtils.assertPoolEmpty(pool);
+    testUtils.assertMix(0, 1, mix);
+    Assert.assertFalse(mix.peekConfirmingInputByUsername("user1").isPresent());
+    Assert.assertTrue(mix.peekConfirmingInputByUsername("user3").isPresent());
+  }
+
   // TODO test noSamouraiFeesCheck for liquidities vs feesCheck for mustMix
 }
@@ -101,7 +101,7 @@ public class RegisterOutputServiceTest extends AbstractIntegrationTest {
     byte[] signedBlindedBordereau = confirmInput(mix, username, receiveAddress, blindingParams);
 
     // go REGISTER_OUTPUT
-    mix.setMixStatusAndTime(MixStatus.REGISTER_OUTPUT);
+    mixService.changeMixStatus(mix.getMixId(), MixStatus.REGISTER_OUTPUT);
     Assert.assertEquals(0, mix.getReceiveAddresses().size());
 
     // REGISTER_OUTPUT
@@ -129,7 +129,7 @@ public class RegisterOutputServiceTest extends AbstractIntegrationTest {
     byte[] signedBlindedBordereau = confirmInput(mix, username, receiveAddress, blindingParams);
 
     // go REGISTER_OUTPUT
-    mix.setMixStatusAndTime(MixStatus.REGISTER_OUTPUT);
+    mixService.changeMixStatus(mix.getMixId(), MixStatus.REGISTER_OUTPUT);
     Assert.assertEquals(0, mix.getReceiveAddresses().size());
 
     // TEST
@@ -174,7 +174,7 @@ public class RegisterOutputServiceTest extends AbstractIntegrationTest {
         confirmInput(mix, username, receiveAddress, blindingParams);
 
     // go REGISTER_OUTPUT
-    mix.setMixStatusAndTime(MixStatus.REGISTER_OUTPUT);
+    mixService.changeMixStatus(mix.getMixId(), MixStatus.REGISTER_OUTPUT);
     Assert.assertEquals(0, mix.getReceiveAddresses().size());
 
     // TEST: unblindedSignedBordereau from FIRST mix should be REJECTED
@@ -217,7 +217,7 @@ public class RegisterOutputServiceTest extends AbstractIntegrationTest {
     byte[] signedBlindedBordereau = confirmInput(mix, username, receiveAddress, blindingParams);
 
     // go REGISTER_OUTPUT
-    mix.setMixStatusAndTime(MixStatus.REGISTER_OUTPUT);
+    mixService.changeMixStatus(mix.getMixId(), MixStatus.REGISTER_OUTPUT);
     Assert.assertEquals(0, mix.getReceiveAddresses().size());
 
     // REGISTER_OUTPUT
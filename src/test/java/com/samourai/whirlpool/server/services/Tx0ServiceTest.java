@@ -2,14 +2,21 @@ package com.samourai.whirlpool.server.services;
 
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
 
+import com.samourai.whirlpool.server.beans.CachedResult;
 import com.samourai.whirlpool.server.beans.rpc.RpcOutWithTx;
 import com.samourai.whirlpool.server.beans.rpc.RpcTransaction;
 import com.samourai.whirlpool.server.exceptions.IllegalInputException;
 import com.samourai.whirlpool.server.integration.AbstractIntegrationTest;
+import com.samourai.whirlpool.server.services.rpc.MockRpcClientServiceImpl;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.NoSuchElementException;
 import java.util.function.BiFunction;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.script.ScriptBuilder;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -174,6 +181,93 @@ public class Tx0ServiceTest extends AbstractIntegrationTest {
     doCheckWhirlpoolTx(txid, 10000000);
   }
 
+  @Test
+  public void checkWhirlpoolTx_depth() throws Exception {
+    long denomination = 1000000;
+    long rpcLatency = 20;
+    for (int depth : new int[] {1, 10, 50}) {
+      String txid = mockWhirlpoolChain(depth, denomination, true);
+      RpcTransaction rpcTransaction =
+          blockchainDataService.getRpcTransaction(txid).orElseThrow(NoSuchElementException::new);
+
+      // TEST: ancestry lookups against a node with rpcLatency per call
+      rpcClientService.setMockLatency(rpcLatency);
+      int nbBatches = rpcClientService.getNbBatches();
+      int nbBlockHeaders = rpcClientService.getNbBlockHeaders();
+      long start = System.currentTimeMillis();
+      try {
+        tx0Service.checkWhirlpoolTx(rpcTransaction, denomination, new ArrayList<>());
+      } finally {
+        rpcClientService.setMockLatency(0);
+      }
+      long latency = System.currentTimeMillis() - start;
+      log.info("checkWhirlpoolTx: depth=" + depth + ", latency=" + latency + "ms");
+
+      // VERIFY: per ancestry level, one batch + one getblockheader per block (all txs mocked in
+      // same block)
+      Assert.assertEquals(depth, rpcClientService.getNbBatches() - nbBatches);
+      Assert.assertEquals(depth, rpcClientService.getNbBlockHeaders() - nbBlockHeaders);
+      long nbRoundTrips = depth * 2;
+      Assert.assertTrue(latency >= nbRoundTrips * rpcLatency);
+      Assert.assertTrue(latency < nbRoundTrips * rpcLatency * 2 + 1000);
+    }
+  }
+
+  @Test
+  public void checkWhirlpoolTx_invalidAncestor() throws Exception {
+    long denomination = 1000000;
+    String txid = mockWhirlpoolChain(10, denomination, false);
+
+    // reject when first tx of the chain is neither a tx0 nor a whirlpool tx
+    thrown.expect(IllegalInputException.class);
+    thrown.expectMessage("is not a valid whirlpool tx, inputs/outputs count mismatch");
+    doCheckWhirlpoolTx(txid, denomination);
+  }
+
+  // whirlpool txs spending previous one + a tx0 (already verified)
+  private String mockWhirlpoolChain(int depth, long denomination, boolean validOrigin)
+      throws Exception {
+    Transaction previousTx = mockTx(denomination);
+    if (validOrigin) {
+      mockVerifiedTx0(previousTx, denomination);
+    }
+    for (int i = 0; i < depth; i++) {
+      Transaction tx0 = mockTx(denomination);
+      mockVerifiedTx0(tx0, denomination);
+
+      Transaction tx = new Transaction(params);
+      tx.addInput(previousTx.getOutput(0));
+      tx.addInput(tx0.getOutput(0));
+      tx.addOutput(Coin.valueOf(denomination), ScriptBuilder.createP2WPKHOutputScript(new ECKey()));
+      tx.addOutput(Coin.valueOf(denomination), ScriptBuilder.createP2WPKHOutputScript(new ECKey()));
+      mock(tx);
+      previousTx = tx;
+    }
+    return previousTx.getHashAsString();
+  }
+
+  private void mockVerifiedTx0(Transaction tx0, long denomination) {
+    cacheService.put(
+        "Tx0Service.checkInput",
+        tx0.getHashAsString() + ":" + denomination,
+        new CachedResult(false));
+  }
+
+  private Transaction mockTx(long amount) {
+    Transaction tx = new Transaction(params);
+    tx.addInput(new TransactionInput(params, tx, new byte[] {1}));
+    tx.addOutput(Coin.valueOf(amount), ScriptBuilder.createP2WPKHOutputScript(new ECKey()));
+    mock(tx);
+    return tx;
+  }
+
+  private void mock(Transaction tx) {
+    rpcClientService.mock(
+        tx.getHashAsString(),
+        org.bitcoinj.core.Utils.HEX.encode(tx.bitcoinSerialize()),
+        MockRpcClientServiceImpl.MOCK_TX_CONFIRMATIONS);
+  }
+
   private void doCheckWhirlpoolTx(String utxoHash, long denomination) throws IllegalInputException {
     RpcTransaction rpcTransaction =
         blockchainDataService
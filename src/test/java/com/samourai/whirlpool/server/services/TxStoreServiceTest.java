@@ -0,0 +1,116 @@
+package com.samourai.whirlpool.server.services;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
+
+import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
+import com.samourai.whirlpool.server.integration.AbstractIntegrationTest;
+import java.io.File;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.bitcoinj.core.Sha256Hash;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = DEFINED_PORT)
+public class TxStoreServiceTest extends AbstractIntegrationTest {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final long DENOMINATION = 1000000;
+
+  private WhirlpoolServerConfig computeConfig(File directory, long feesAmount) {
+    WhirlpoolServerConfig.TxStoreConfig txStoreConfig = new WhirlpoolServerConfig.TxStoreConfig();
+    txStoreConfig.setEnabled(true);
+    txStoreConfig.setDirectory(directory.getAbsolutePath());
+    WhirlpoolServerConfig.SamouraiFeeConfig samouraiFees =
+        new WhirlpoolServerConfig.SamouraiFeeConfig();
+    samouraiFees.setXpub(serverConfig.getSamouraiFees().getXpub());
+    samouraiFees.setAmount(feesAmount);
+    WhirlpoolServerConfig config = new WhirlpoolServerConfig();
+    config.setTxStore(txStoreConfig);
+    config.setSamouraiFees(samouraiFees);
+    return config;
+  }
+
+  @Test
+  public void recover() throws Exception {
+    File directory = Files.createTempDirectory("txstore").toFile();
+    WhirlpoolServerConfig config = computeConfig(directory, 975000);
+
+    int nbTxs = 100000; // enough to resize store
+    List<String> txids = new ArrayList<>();
+    for (int i = 0; i < nbTxs; i++) {
+      txids.add(Sha256Hash.of(String.valueOf(i).getBytes()).toString());
+    }
+
+    TxStoreService txStoreService = new TxStoreService(config);
+    long start = System.currentTimeMillis();
+    for (int i = 0; i < nbTxs; i++) {
+      txStoreService.putVerified(txids.get(i), DENOMINATION, i % 2 == 0);
+    }
+    log.info("txStore: " + nbTxs + " puts in " + (System.currentTimeMillis() - start) + "ms");
+    Assert.assertEquals(nbTxs, txStoreService.getSize());
+    txStoreService.close();
+
+    // TEST: restart
+    TxStoreService txStoreServiceRestarted = new TxStoreService(config);
+
+    // VERIFY: verified txs recovered
+    start = System.currentTimeMillis();
+    for (int i = 0; i < nbTxs; i++) {
+      Optional<Boolean> verified = txStoreServiceRestarted.findVerified(txids.get(i), DENOMINATION);
+      Assert.assertTrue(verified.isPresent());
+      Assert.assertEquals(i % 2 == 0, verified.get());
+    }
+    log.info("txStore: " + nbTxs + " gets in " + (System.currentTimeMillis() - start) + "ms");
+
+    // VERIFY: unknown tx or other denomination
+    Assert.assertFalse(
+        txStoreServiceRestarted
+            .findVerified(Sha256Hash.of("foo".getBytes()).toString(), DENOMINATION)
+            .isPresent());
+    Assert.assertFalse(
+        txStoreServiceRestarted.findVerified(txids.get(0), DENOMINATION * 10).isPresent());
+    txStoreServiceRestarted.putVerified(txids.get(0), DENOMINATION * 10, false);
+    Assert.assertFalse(txStoreServiceRestarted.findVerified(txids.get(0), DENOMINATION * 10).get());
+    Assert.assertTrue(txStoreServiceRestarted.findVerified(txids.get(0), DENOMINATION).get());
+
+    // VERIFY: single file for all denominations
+    Assert.assertArrayEquals(new String[] {"verified.dat"}, directory.list());
+    txStoreServiceRestarted.close();
+
+    // TEST: restart with different fees configuration => store discarded
+    TxStoreService txStoreServiceReconfigured = new TxStoreService(computeConfig(directory, 1));
+    Assert.assertFalse(
+        txStoreServiceReconfigured.findVerified(txids.get(0), DENOMINATION).isPresent());
+    txStoreServiceReconfigured.close();
+  }
+
+  @Test
+  public void openFailure() throws Exception {
+    File directory = Files.createTempDirectory("txstore").toFile();
+    File storeFile = new File(directory, "verified.dat");
+    Assert.assertTrue(storeFile.mkdir()); // can't be opened as a store
+    String txid = Sha256Hash.of("foo".getBytes()).toString();
+
+    TxStoreService txStoreService = new TxStoreService(computeConfig(directory, 975000));
+    txStoreService.putVerified(txid, DENOMINATION, true);
+    Assert.assertFalse(txStoreService.findVerified(txid, DENOMINATION).isPresent());
+
+    // TEST: store could now be opened
+    Assert.assertTrue(storeFile.delete());
+    txStoreService.putVerified(txid, DENOMINATION, true);
+
+    // VERIFY: failure remembered, store not opened again
+    Assert.assertFalse(txStoreService.findVerified(txid, DENOMINATION).isPresent());
+    Assert.assertFalse(storeFile.exists());
+    txStoreService.close();
+  }
+}
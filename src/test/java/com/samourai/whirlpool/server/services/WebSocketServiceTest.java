@@ -0,0 +1,191 @@
+package com.samourai.whirlpool.server.services;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
+
+import com.samourai.whirlpool.protocol.WhirlpoolProtocol;
+import com.samourai.whirlpool.protocol.websocket.messages.ErrorResponse;
+import com.samourai.whirlpool.server.integration.AbstractIntegrationTest;
+import com.samourai.whirlpool.server.utils.BoundedExecutor;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = DEFINED_PORT)
+public class WebSocketServiceTest extends AbstractIntegrationTest {
+  private static final int NB_MESSAGES = 200;
+
+  private BoundedExecutor executor;
+  private WebSocketService webSocketService;
+  private AtomicBoolean subscribed;
+  private WebSocketSession session;
+  private WebSocketSessionService webSocketSessionService;
+  private List<Message<?>> delivered;
+  private CountDownLatch done;
+  private Thread callerThread;
+  private AtomicBoolean sentOnCaller;
+
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    executor =
+        new BoundedExecutor(
+            "websocket-test", 4, 1000, 1000, BoundedExecutor.RejectionPolicy.DISCARD);
+    delivered = Collections.synchronizedList(new ArrayList<>());
+    done = new CountDownLatch(NB_MESSAGES);
+    callerThread = Thread.currentThread();
+    sentOnCaller = new AtomicBoolean(false);
+
+    // records messages reaching sessions, slowing down some of them
+    MessageHandler sessionMessageHandler =
+        message -> {
+          if (Thread.currentThread() == callerThread) {
+            sentOnCaller.set(true);
+          }
+          if (delivered.size() % 7 == 0) {
+            sleep(5);
+          }
+          delivered.add(message);
+          done.countDown();
+        };
+
+    // synchronous broker: user destination => session
+    ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+    brokerChannel.subscribe(sessionMessageHandler);
+
+    // "alice" has one session, reply subscription toggled by test
+    subscribed = new AtomicBoolean(false);
+    session = Mockito.mock(WebSocketSession.class);
+    Mockito.when(session.getId()).thenReturn("session1");
+    webSocketSessionService = Mockito.mock(WebSocketSessionService.class);
+    Mockito.when(webSocketSessionService.getSessions("alice")).thenReturn(Arrays.asList(session));
+    Mockito.when(webSocketSessionService.getReplySubscriptionId("session1"))
+        .thenAnswer(invocation -> subscribed.get() ? "sub1" : null);
+
+    webSocketService =
+        new WebSocketService(
+            new WhirlpoolProtocol(),
+            new SimpMessagingTemplate(brokerChannel),
+            sessionMessageHandler,
+            executor);
+    webSocketService.setWebSocketSessionService(webSocketSessionService);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdown();
+  }
+
+  @Test
+  public void sendPrivate_ordered() throws Exception {
+    // TEST: alternate broker path (subscription unknown) and direct path
+    for (int i = 0; i < NB_MESSAGES; i++) {
+      subscribed.set(i % 3 != 0);
+      webSocketService.sendPrivate("alice", new ErrorResponse("msg" + i));
+    }
+
+    // VERIFY: delivered in send order, never on caller thread
+    Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+    Assert.assertEquals(NB_MESSAGES, delivered.size());
+    for (int i = 0; i < NB_MESSAGES; i++) {
+      String body = new String((byte[]) delivered.get(i).getPayload(), StandardCharsets.UTF_8);
+      Assert.assertTrue(body, body.contains("\"msg" + i + "\""));
+    }
+    Assert.assertEquals(0, executor.getNbRejected());
+    Assert.assertFalse(sentOnCaller.get());
+  }
+
+  @Test
+  public void sendPrivate_direct() throws Exception {
+    subscribed.set(true);
+
+    // TEST
+    webSocketService.sendPrivate("alice", new ErrorResponse("hello"));
+
+    // VERIFY: same headers as broker would set for this subscription
+    Assert.assertTrue(waitDelivered(1));
+    SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(delivered.get(0));
+    Assert.assertEquals("session1", headers.getSessionId());
+    Assert.assertEquals("sub1", headers.getSubscriptionId());
+    Assert.assertEquals(
+        ErrorResponse.class.getName(),
+        headers.getFirstNativeHeader(WhirlpoolProtocol.HEADER_MESSAGE_TYPE));
+    Assert.assertEquals("application/json;charset=UTF-8", headers.getContentType().toString());
+  }
+
+  @Test
+  public void sendPrivate_slowClientDisconnected() throws Exception {
+    subscribed.set(true);
+    BoundedExecutor slowExecutor =
+        new BoundedExecutor("websocket-slow", 1, 10, 2, BoundedExecutor.RejectionPolicy.DISCARD);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    MessageHandler slowMessageHandler =
+        message -> {
+          started.countDown();
+          try {
+            release.await(5, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        };
+    WebSocketService slowService =
+        new WebSocketService(
+            new WhirlpoolProtocol(),
+            new SimpMessagingTemplate(new ExecutorSubscribableChannel()),
+            slowMessageHandler,
+            slowExecutor);
+    slowService.setWebSocketSessionService(webSocketSessionService);
+    try {
+      slowService.sendPrivate("alice", new ErrorResponse("msg0"));
+      Assert.assertTrue(started.await(5, TimeUnit.SECONDS)); // sending
+      slowService.sendPrivate("alice", new ErrorResponse("msg1"));
+      slowService.sendPrivate("alice", new ErrorResponse("msg2")); // user queue full
+      Mockito.verify(session, Mockito.never()).close(Mockito.any());
+
+      // TEST
+      slowService.sendPrivate("alice", new ErrorResponse("msg3"));
+
+      // VERIFY: message not silently dropped, client disconnected
+      Mockito.verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+    } finally {
+      release.countDown();
+      slowExecutor.shutdown();
+    }
+  }
+
+  private boolean waitDelivered(int nbMessages) {
+    for (int i = 0; i < 100 && delivered.size() < nbMessages; i++) {
+      sleep(50);
+    }
+    return delivered.size() == nbMessages;
+  }
+
+  private void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,164 @@
+package com.samourai.whirlpool.server.services;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
+
+import com.samourai.whirlpool.protocol.websocket.notifications.MixStatus;
+import com.samourai.whirlpool.server.beans.CachedResult;
+import com.samourai.whirlpool.server.beans.ConfirmedInput;
+import com.samourai.whirlpool.server.beans.FailReason;
+import com.samourai.whirlpool.server.beans.Mix;
+import com.samourai.whirlpool.server.beans.RegisteredInput;
+import com.samourai.whirlpool.server.beans.TxOutPoint;
+import com.samourai.whirlpool.server.exceptions.IllegalInputException;
+import com.samourai.whirlpool.server.integration.AbstractIntegrationTest;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutPoint;
+import org.bitcoinj.core.Utils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.zeromq.ZContext;
+import org.zeromq.ZMQ;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = DEFINED_PORT)
+public class ZmqServiceTest extends AbstractIntegrationTest {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final String ENDPOINT = "tcp://127.0.0.1:28399";
+
+  @Autowired private ZmqService zmqService;
+
+  // local stand-in for bitcoind zmq publisher
+  private ZContext context;
+  private ZMQ.Socket publisher;
+  private int sequence;
+
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    context = new ZContext();
+    publisher = context.createSocket(ZMQ.PUB);
+    publisher.bind(ENDPOINT);
+    sequence = 0;
+    zmqService.subscribe(ENDPOINT, ENDPOINT);
+  }
+
+  @After
+  public void tearDown() {
+    super.tearDown();
+    zmqService.stop();
+    context.destroy();
+  }
+
+  private void publish(String topic, byte[] body) {
+    byte[] seq = new byte[4];
+    Utils.uint32ToByteArrayLE(sequence++, seq, 0);
+    publisher.sendMore(topic.getBytes(StandardCharsets.UTF_8));
+    publisher.sendMore(body);
+    publisher.send(seq, 0);
+  }
+
+  // subscription is asynchronous: publish until received
+  private void publishUntil(String topic, byte[] body, BooleanSupplier received) throws Exception {
+    for (int i = 0; i < 50 && !received.getAsBoolean(); i++) {
+      publish(topic, body);
+      Thread.sleep(100);
+    }
+    Assert.assertTrue(received.getAsBoolean());
+  }
+
+  @Test
+  public void hashblock_shouldClearNegativeResults() throws Exception {
+    String cacheName = "Tx0Service.checkInput"; // registered by Tx0Service
+    AtomicInteger nbPositiveCalls = new AtomicInteger(0);
+    AtomicInteger nbNegativeCalls = new AtomicInteger(0);
+    Function<Void, CachedResult> positive =
+        (v) -> new CachedResult(nbPositiveCalls.incrementAndGet());
+    Function<Void, CachedResult> negative =
+        (v) -> {
+          nbNegativeCalls.incrementAndGet();
+          return new CachedResult(new IllegalInputException("not confirmed"));
+        };
+    cacheService.getOrPut(cacheName, "positive", CachedResult.class, positive);
+    cacheService.getOrPut(cacheName, "negative", CachedResult.class, negative);
+    cacheService.getOrPut(cacheName, "positive", CachedResult.class, positive);
+    cacheService.getOrPut(cacheName, "negative", CachedResult.class, negative);
+    Assert.assertEquals(1, nbPositiveCalls.get());
+    Assert.assertEquals(1, nbNegativeCalls.get());
+
+    // TEST
+    long nbBlocks = zmqService.getNbBlocks();
+    publishUntil(
+        ZmqService.TOPIC_HASHBLOCK, new byte[32], () -> zmqService.getNbBlocks() > nbBlocks);
+
+    // VERIFY: only negative result cleared
+    cacheService.getOrPut(cacheName, "positive", CachedResult.class, positive);
+    cacheService.getOrPut(cacheName, "negative", CachedResult.class, negative);
+    Assert.assertEquals(1, nbPositiveCalls.get());
+    Assert.assertEquals(2, nbNegativeCalls.get());
+  }
+
+  @Test
+  public void stop_shouldCloseSubscriber() throws Exception {
+    // TEST
+    zmqService.stop();
+
+    // VERIFY: subscriber thread terminated
+    Assert.assertFalse(
+        Thread.getAllStackTraces().keySet().stream().anyMatch(t -> "zmq".equals(t.getName())));
+    Assert.assertFalse(zmqService.isSubscribed());
+  }
+
+  @Test
+  public void rawtx_shouldFailMixOnDoubleSpend() throws Exception {
+    Mix mix = __getCurrentMix();
+    String hash = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa";
+    TxOutPoint input = new TxOutPoint(hash, 1, mix.getPool().getDenomination(), 99);
+    RegisteredInput registeredInput =
+        new RegisteredInput("user1", new byte[] {1, 2, 3}, false, input);
+    mix.registerInput(new ConfirmedInput(registeredInput, new byte[] {4, 5, 6}));
+    mix.setMixStatusAndTime(MixStatus.REGISTER_OUTPUT);
+
+    // unrelated tx => ignored
+    publishUntil(
+        ZmqService.TOPIC_RAWTX,
+        computeSpendingTx(hash, 2).bitcoinSerialize(),
+        () -> zmqService.getNbTxs() > 0);
+    Thread.sleep(200);
+    Assert.assertEquals(MixStatus.REGISTER_OUTPUT, mix.getMixStatus());
+
+    // TEST: input double-spent
+    publish(ZmqService.TOPIC_RAWTX, computeSpendingTx(hash, 1).bitcoinSerialize());
+    for (int i = 0; i < 50 && !MixStatus.FAIL.equals(mix.getMixStatus()); i++) {
+      Thread.sleep(100);
+    }
+
+    // VERIFY
+    Assert.assertEquals(MixStatus.FAIL, mix.getMixStatus());
+    Assert.assertEquals(FailReason.FAIL_DOUBLE_SPEND, mix.getFailReason());
+  }
+
+  private Transaction computeSpendingTx(String hash, long index) {
+    Transaction tx = new Transaction(params);
+    TransactionOutPoint outPoint = new TransactionOutPoint(params, index, Sha256Hash.wrap(hash));
+    tx.addInput(new TransactionInput(params, tx, new byte[] {}, outPoint));
+    tx.addOutput(Coin.valueOf(1000), new ECKey());
+    return tx;
+  }
+}
@@ -0,0 +1,217 @@
+package com.samourai.whirlpool.server.services.rpc;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.samourai.whirlpool.server.config.WhirlpoolServerConfig;
+import com.samourai.whirlpool.server.integration.AbstractIntegrationTest;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = DEFINED_PORT)
+public class JSONRpcClientServiceImplTest extends AbstractIntegrationTest {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final int PORT = 28405;
+  private static final String TXID_UNKNOWN = "unknown";
+
+  private ObjectMapper objectMapper = new ObjectMapper();
+
+  // local stand-in for bitcoind: replies getrawtransaction with txid as hex, getblockheader with
+  // height 100, and -5 for TXID_UNKNOWN
+  private HttpServer server;
+  private ExecutorService serverExecutor;
+  private volatile int httpStatus; // HTTP error without JSON body when != 200
+  private volatile Integer itemErrorCode; // error for each batch item when not null
+  private JSONRpcClientServiceImpl rpcClient;
+
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    httpStatus = 200;
+    itemErrorCode = null;
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", PORT), 0);
+    server.createContext("/", this::handle);
+    serverExecutor = Executors.newFixedThreadPool(5);
+    server.setExecutor(serverExecutor);
+    server.start();
+
+    WhirlpoolServerConfig.RpcClientConfig rpcClientConfig =
+        new WhirlpoolServerConfig.RpcClientConfig();
+    rpcClientConfig.setProtocol("http");
+    rpcClientConfig.setHost("127.0.0.1");
+    rpcClientConfig.setPort(PORT);
+    rpcClientConfig.setUser("user");
+    rpcClientConfig.setPassword("password");
+    rpcClientConfig.setMaxConnections(2);
+    rpcClientConfig.setConnectTimeout(1);
+    rpcClientConfig.setReadTimeout(5);
+    rpcClientConfig.setEjectDuration(1);
+    WhirlpoolServerConfig config = new WhirlpoolServerConfig();
+    config.setRpcClient(rpcClientConfig);
+    rpcClient = new JSONRpcClientServiceImpl(config);
+  }
+
+  @After
+  public void tearDown() {
+    rpcClient.close();
+    server.stop(0);
+    serverExecutor.shutdown();
+  }
+
+  private void handle(HttpExchange exchange) {
+    try {
+      byte[] body;
+      if (httpStatus != 200) {
+        // bitcoind replies some errors without JSON body (ie: work queue depth exceeded)
+        body = "Work queue depth exceeded".getBytes(StandardCharsets.UTF_8);
+      } else {
+        JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+        JsonNode response;
+        if (request.isArray()) {
+          ArrayNode responses = objectMapper.createArrayNode();
+          request.forEach(r -> responses.add(computeResponse(r)));
+          response = responses;
+        } else {
+          response = computeResponse(request);
+        }
+        body = objectMapper.writeValueAsBytes(response);
+      }
+      exchange.sendResponseHeaders(httpStatus, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    } catch (Exception e) {
+      log.error("", e);
+    }
+  }
+
+  private ObjectNode computeResponse(JsonNode request) {
+    ObjectNode response = objectMapper.createObjectNode();
+    response.set("id", request.get("id"));
+    String txid = request.get("params").get(0).asText();
+    if ("getblockheader".equals(request.get("method").asText()) && !TXID_UNKNOWN.equals(txid)) {
+      response.putObject("result").put("hash", txid).put("height", 100).put("confirmations", 3);
+      response.putNull("error");
+    } else if (itemErrorCode != null) {
+      response.putNull("result");
+      response.putObject("error").put("code", itemErrorCode).put("message", "failure");
+    } else if (TXID_UNKNOWN.equals(txid)) {
+      response.putNull("result");
+      response
+          .putObject("error")
+          .put("code", RpcErrorException.RPC_INVALID_ADDRESS_OR_KEY)
+          .put("message", "No such mempool or blockchain transaction");
+    } else {
+      response
+          .putObject("result")
+          .put("hex", txid)
+          .put("confirmations", 10)
+          .put("blockhash", "block" + txid);
+      response.putNull("error");
+    }
+    return response;
+  }
+
+  @Test
+  public void getRawTransactions() throws Exception {
+    // TEST
+    Map<String, RpcRawTransactionResponse> results =
+        rpcClient.getRawTransactions(Arrays.asList("aa", TXID_UNKNOWN, "cc"));
+
+    // VERIFY: only -5 is reported as missing
+    Assert.assertEquals(2, results.size());
+    Assert.assertEquals("aa", results.get("aa").getHex());
+    Assert.assertEquals(10, (int) results.get("aa").getConfirmations());
+    Assert.assertEquals("blockaa", results.get("aa").getBlockHash());
+    Assert.assertNull(results.get("aa").getBlockHeight());
+    Assert.assertEquals("cc", results.get("cc").getHex());
+    Assert.assertFalse(results.containsKey(TXID_UNKNOWN));
+  }
+
+  @Test
+  public void getRawTransactions_httpError() throws Exception {
+    httpStatus = 500;
+
+    // TEST: transport failure is thrown, not reported as missing
+    try {
+      rpcClient.getRawTransactions(Arrays.asList("aa", "bb"));
+      Assert.fail();
+    } catch (RuntimeException e) {
+      log.info("expected error: " + e.getMessage());
+    }
+
+    // TEST: next query succeeds
+    httpStatus = 200;
+    Assert.assertEquals(2, rpcClient.getRawTransactions(Arrays.asList("aa", "bb")).size());
+  }
+
+  @Test
+  public void getRawTransactions_itemError() throws Exception {
+    itemErrorCode = -1;
+
+    // TEST: per-item error other than -5 fails the batch
+    try {
+      rpcClient.getRawTransactions(Arrays.asList("aa", "bb"));
+      Assert.fail();
+    } catch (RpcErrorException e) {
+      Assert.assertEquals(-1, e.getCode());
+    }
+  }
+
+  @Test
+  public void getRawTransactions_nodeDown() throws Exception {
+    server.stop(0);
+
+    // TEST
+    try {
+      rpcClient.getRawTransactions(Arrays.asList("aa", "bb"));
+      Assert.fail();
+    } catch (RuntimeException e) {
+      log.info("expected error: " + e.getMessage());
+    }
+  }
+
+  @Test
+  public void getBlockHeader() throws Exception {
+    RpcBlockHeaderResponse header = rpcClient.getBlockHeader("blockaa").get();
+    Assert.assertEquals(100, header.getHeight());
+    Assert.assertEquals(3, header.getConfirmations());
+    Assert.assertFalse(rpcClient.getBlockHeader(TXID_UNKNOWN).isPresent());
+  }
+
+  @Test
+  public void getRawTransaction() throws Exception {
+    Assert.assertEquals("aa", rpcClient.getRawTransaction("aa").get().getHex());
+    Assert.assertFalse(rpcClient.getRawTransaction(TXID_UNKNOWN).isPresent());
+
+    // TEST: transport failure is thrown, not reported as missing
+    httpStatus = 500;
+    try {
+      rpcClient.getRawTransaction("aa");
+      Assert.fail();
+    } catch (RuntimeException e) {
+      log.info("expected error: " + e.getMessage());
+    }
+  }
+}
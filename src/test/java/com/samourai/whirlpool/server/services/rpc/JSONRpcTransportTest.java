@@ -0,0 +1,151 @@
+package com.samourai.whirlpool.server.services.rpc;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.samourai.whirlpool.server.integration.AbstractIntegrationTest;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import wf.bitcoin.javabitcoindrpcclient.GenericRpcException;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = DEFINED_PORT)
+public class JSONRpcTransportTest extends AbstractIntegrationTest {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final int PORT = 28398;
+  private static final int MAX_CONNECTIONS = 2;
+
+  private ObjectMapper objectMapper = new ObjectMapper();
+
+  // local stand-in for bitcoind: echoes first param, fails for "unknown"
+  private HttpServer server;
+  private ExecutorService serverExecutor;
+  private AtomicInteger nbRunning;
+  private AtomicInteger maxRunning;
+  private JSONRpcTransport rpcTransport;
+
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    nbRunning = new AtomicInteger(0);
+    maxRunning = new AtomicInteger(0);
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", PORT), 0);
+    server.createContext("/", this::handle);
+    serverExecutor = Executors.newFixedThreadPool(10);
+    server.setExecutor(serverExecutor);
+    server.start();
+    rpcTransport =
+        new JSONRpcTransport("http://127.0.0.1:" + PORT, "user", "password", MAX_CONNECTIONS, 5, 5);
+  }
+
+  @After
+  public void tearDown() {
+    rpcTransport.close();
+    server.stop(0);
+    serverExecutor.shutdown();
+  }
+
+  private void handle(HttpExchange exchange) {
+    maxRunning.accumulateAndGet(nbRunning.incrementAndGet(), Math::max);
+    try {
+      Thread.sleep(50);
+      JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+      JsonNode response;
+      if (request.isArray()) {
+        ArrayNode responses = objectMapper.createArrayNode();
+        request.forEach(r -> responses.add(computeResponse(r)));
+        response = responses;
+      } else {
+        response = computeResponse(request);
+      }
+      byte[] body = objectMapper.writeValueAsBytes(response);
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    } catch (Exception e) {
+      log.error("", e);
+    } finally {
+      nbRunning.decrementAndGet();
+    }
+  }
+
+  private ObjectNode computeResponse(JsonNode request) {
+    ObjectNode response = objectMapper.createObjectNode();
+    response.set("id", request.get("id"));
+    String param = request.get("params").get(0).asText();
+    if ("unknown".equals(param)) {
+      response.putNull("result");
+      response.putObject("error").put("code", -5).put("message", "not found");
+    } else {
+      response.put("result", param);
+      response.putNull("error");
+    }
+    return response;
+  }
+
+  @Test
+  public void call() throws Exception {
+    Assert.assertEquals("foo", rpcTransport.call("echo", "foo").join().asText());
+
+    try {
+      rpcTransport.call("echo", "unknown").join();
+      Assert.fail();
+    } catch (CompletionException e) {
+      Assert.assertTrue(e.getCause() instanceof GenericRpcException);
+      Assert.assertEquals("echo failed: not found (code=-5)", e.getCause().getMessage());
+    }
+    Assert.assertEquals(2, rpcTransport.getLatencies().get("echo").getNbSamples());
+  }
+
+  @Test
+  public void callBatch() throws Exception {
+    List<Object[]> paramsList =
+        Arrays.asList(new Object[] {"a"}, new Object[] {"unknown"}, new Object[] {"c"});
+    List<JsonNode> results = rpcTransport.callBatch("echo", paramsList).join();
+
+    Assert.assertEquals(3, results.size());
+    Assert.assertEquals("a", results.get(0).asText());
+    Assert.assertNull(results.get(1));
+    Assert.assertEquals("c", results.get(2).asText());
+    Assert.assertEquals(1, rpcTransport.getLatencies().get("echo[batch]").getNbSamples());
+  }
+
+  @Test
+  public void maxConnections() throws Exception {
+    List<CompletableFuture<JsonNode>> futures = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      futures.add(rpcTransport.call("echo", "req" + i));
+    }
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals("req" + i, futures.get(i).join().asText());
+    }
+
+    // requests beyond MAX_CONNECTIONS are queued by client
+    Assert.assertTrue(maxRunning.get() <= MAX_CONNECTIONS);
+    log.info("latencies: " + rpcTransport.getLatencies());
+  }
+}
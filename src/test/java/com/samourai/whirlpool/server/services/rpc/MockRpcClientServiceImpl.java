@@ -10,10 +10,12 @@ import com.samourai.whirlpool.server.services.CryptoService;
 import com.samourai.whirlpool.server.utils.TestUtils;
 import com.samourai.whirlpool.server.utils.Utils;
 import java.lang.invoke.MethodHandles;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.bitcoinj.core.*;
 import org.bitcoinj.script.Script;
 import org.bouncycastle.util.encoders.Hex;
@@ -33,8 +35,13 @@ public class MockRpcClientServiceImpl implements RpcClientService {
   private Bech32UtilGeneric bech32Util;
 
   private Map<String, RpcRawTransactionResponse> mockTransactions;
+  private int mockBlockHeight;
+  private AtomicInteger nbBatches;
+  private AtomicInteger nbBlockHeaders;
+  private volatile long mockLatency; // ms per RPC call
 
   public static final int MOCK_TX_CONFIRMATIONS = 99;
+  private static final String MOCK_BLOCK_HASH_PREFIX = "mockblock";
 
   public MockRpcClientServiceImpl(
       TestUtils testUtils, CryptoService cryptoService, Bech32UtilGeneric bech32Util) {
@@ -44,6 +51,10 @@ public class MockRpcClientServiceImpl implements RpcClientService {
     this.bech32Util = bech32Util;
 
     this.mockTransactions = new HashMap<>();
+    this.mockBlockHeight = 0;
+    this.nbBatches = new AtomicInteger(0);
+    this.nbBlockHeaders = new AtomicInteger(0);
+    this.mockLatency = 0;
   }
 
   @Override
@@ -63,6 +74,11 @@ public class MockRpcClientServiceImpl implements RpcClientService {
   @Override
   public Optional<RpcRawTransactionResponse> getRawTransaction(String txid)
       throws GenericRpcException {
+    simulateLatency();
+    return findMock(txid);
+  }
+
+  private Optional<RpcRawTransactionResponse> findMock(String txid) {
     // load mock from map
     RpcRawTransactionResponse rawTxResponse = mockTransactions.get(txid);
     if (rawTxResponse != null) {
@@ -76,19 +92,99 @@ public class MockRpcClientServiceImpl implements RpcClientService {
       return Optional.empty();
     }
     RpcRawTransactionResponse rpcTxResponse =
-        new RpcRawTransactionResponse(rpcTxHex.get(), MOCK_TX_CONFIRMATIONS);
+        new RpcRawTransactionResponse(
+            rpcTxHex.get(),
+            MOCK_TX_CONFIRMATIONS,
+            computeMockBlockHash(MOCK_TX_CONFIRMATIONS),
+            null);
     return Optional.of(rpcTxResponse);
   }
 
+  @Override
+  public Map<String, RpcRawTransactionResponse> getRawTransactions(Collection<String> txids) {
+    nbBatches.incrementAndGet();
+    simulateLatency(); // single round trip for whole batch
+    Map<String, RpcRawTransactionResponse> results = new HashMap<>();
+    for (String txid : txids) {
+      findMock(txid).ifPresent(rawTxResponse -> results.put(txid, rawTxResponse));
+    }
+    return results;
+  }
+
+  public int getNbBatches() {
+    return nbBatches.get();
+  }
+
+  public int getNbBlockHeaders() {
+    return nbBlockHeaders.get();
+  }
+
+  public void setMockLatency(long mockLatency) {
+    this.mockLatency = mockLatency;
+  }
+
+  private void simulateLatency() {
+    if (mockLatency > 0) {
+      try {
+        Thread.sleep(mockLatency);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  @Override
+  public Optional<RpcBlockHeaderResponse> getBlockHeader(String blockHash) {
+    nbBlockHeaders.incrementAndGet();
+    simulateLatency();
+    if (!blockHash.startsWith(MOCK_BLOCK_HASH_PREFIX)) {
+      return Optional.empty();
+    }
+    int height = Integer.parseInt(blockHash.substring(MOCK_BLOCK_HASH_PREFIX.length()));
+    return Optional.of(new RpcBlockHeaderResponse(height, mockBlockHeight - height + 1));
+  }
+
+  // hash of block confirming a tx with given confirmations at current height
+  private String computeMockBlockHash(int confirmations) {
+    if (confirmations <= 0) {
+      return null;
+    }
+    return MOCK_BLOCK_HASH_PREFIX + (mockBlockHeight - confirmations + 1);
+  }
+
+  @Override
+  public Optional<String> getBestBlockHash() {
+    return Optional.of(MOCK_BLOCK_HASH_PREFIX + mockBlockHeight);
+  }
+
+  @Override
+  public Optional<Integer> getBlockHeight() {
+    return Optional.of(mockBlockHeight);
+  }
+
+  public void mockNewBlock() {
+    mockBlockHeight++;
+  }
+
   public void mock(String txid, String rawTxHex, int confirmations) {
     log.info("mock tx: " + txid);
     RpcRawTransactionResponse rawTxResponse =
-        new RpcRawTransactionResponse(rawTxHex, confirmations);
+        new RpcRawTransactionResponse(
+            rawTxHex, confirmations, computeMockBlockHash(confirmations), null);
     mockTransactions.put(txid, rawTxResponse);
   }
 
+  // tx not found anymore (ie: dropped from mempool)
+  public void unmock(String txid) {
+    log.info("unmock tx: " + txid);
+    mockTransactions.remove(txid);
+  }
+
   public void resetMock() {
     mockTransactions = new HashMap<>();
+    nbBatches.set(0);
+    nbBlockHeaders.set(0);
+    mockLatency = 0;
   }
 
   // ------------
@@ -0,0 +1,265 @@
+package com.samourai.whirlpool.server.services.rpc;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.DEFINED_PORT;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.samourai.whirlpool.server.integration.AbstractIntegrationTest;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = DEFINED_PORT)
+public class RpcLoadBalancerTest extends AbstractIntegrationTest {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final int PORT = 28401;
+  private static final int NB_NODES = 3;
+  private static final int EJECT_DURATION = 3;
+
+  private ObjectMapper objectMapper = new ObjectMapper();
+
+  // local stand-ins for bitcoind: echo first param after delay, getblockcount replies blockHeights,
+  // "find" replies -5 on nodes without txindex
+  private List<HttpServer> servers;
+  private ExecutorService serverExecutor;
+  private int[] delays;
+  private volatile int[] blockHeights;
+  private volatile boolean[] txindex;
+  private AtomicInteger[] nbRequests; // except getblockcount
+  private RpcLoadBalancer rpcLoadBalancer;
+
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    servers = new ArrayList<>();
+    serverExecutor = Executors.newFixedThreadPool(30);
+    delays = new int[NB_NODES];
+    blockHeights = new int[NB_NODES];
+    txindex = new boolean[NB_NODES];
+    nbRequests = new AtomicInteger[NB_NODES];
+    List<RpcNode> nodes = new ArrayList<>();
+    for (int i = 0; i < NB_NODES; i++) {
+      int nodeIndex = i;
+      delays[i] = 50;
+      blockHeights[i] = 100;
+      txindex[i] = true;
+      nbRequests[i] = new AtomicInteger(0);
+      HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", PORT + i), 0);
+      server.createContext("/", exchange -> handle(exchange, nodeIndex));
+      server.setExecutor(serverExecutor);
+      server.start();
+      servers.add(server);
+      nodes.add(
+          new RpcNode(
+              new JSONRpcTransport(
+                  "http://127.0.0.1:" + (PORT + i), "user", "password", 10, 1, 5)));
+    }
+    rpcLoadBalancer = new RpcLoadBalancer(nodes, EJECT_DURATION);
+  }
+
+  @After
+  public void tearDown() {
+    rpcLoadBalancer.close();
+    servers.forEach(server -> server.stop(0));
+    serverExecutor.shutdown();
+  }
+
+  private void handle(HttpExchange exchange, int nodeIndex) {
+    try {
+      JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+      String method = request.get("method").asText();
+      ObjectNode response = objectMapper.createObjectNode();
+      response.set("id", request.get("id"));
+      if ("getblockcount".equals(method)) {
+        response.put("result", blockHeights[nodeIndex]);
+        response.putNull("error");
+      } else {
+        nbRequests[nodeIndex].incrementAndGet();
+        Thread.sleep(delays[nodeIndex]);
+        if ("find".equals(method) && !txindex[nodeIndex]) {
+          response.putNull("result");
+          response
+              .putObject("error")
+              .put("code", RpcErrorException.RPC_INVALID_ADDRESS_OR_KEY)
+              .put("message", "No such mempool or blockchain transaction");
+        } else {
+          response.set("result", request.get("params").get(0));
+          response.putNull("error");
+        }
+      }
+      byte[] body = objectMapper.writeValueAsBytes(response);
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    } catch (Exception e) {
+      log.error("", e);
+    }
+  }
+
+  private CompletableFuture<JsonNode> echo(String param) {
+    return rpcLoadBalancer.call(transport -> transport.call("echo", param));
+  }
+
+  private CompletableFuture<Optional<JsonNode>> find(String param) {
+    return rpcLoadBalancer.call(
+        transport ->
+            transport
+                .call("find", param)
+                .thenApply(Optional::of)
+                .exceptionally(
+                    e -> {
+                      if (e.getCause() instanceof RpcErrorException) {
+                        return Optional.empty();
+                      }
+                      throw (CompletionException) e;
+                    }),
+        result -> !result.isPresent());
+  }
+
+  private void waitBlockHeightsChecked() throws Exception {
+    for (int i = 0; i < 50; i++) {
+      boolean checked = true;
+      for (int j = 0; j < NB_NODES; j++) {
+        checked &= rpcLoadBalancer.getNodes().get(j).getBlockHeight() == blockHeights[j];
+      }
+      if (checked) {
+        return;
+      }
+      Thread.sleep(20);
+    }
+    Assert.fail("block heights not checked");
+  }
+
+  @Test
+  public void distribution() throws Exception {
+    // TEST: concurrent requests => spread by outstanding requests
+    List<CompletableFuture<JsonNode>> futures = new ArrayList<>();
+    for (int i = 0; i < 30; i++) {
+      futures.add(echo("req" + i));
+    }
+    for (int i = 0; i < 30; i++) {
+      Assert.assertEquals("req" + i, futures.get(i).join().asText());
+    }
+
+    // VERIFY
+    for (int i = 0; i < NB_NODES; i++) {
+      Assert.assertTrue("node " + i, nbRequests[i].get() >= 5);
+    }
+  }
+
+  @Test
+  public void distribution_slowNode() throws Exception {
+    delays[2] = 500;
+
+    // TEST: sequential requests => slow node only probed once
+    for (int i = 0; i < 20; i++) {
+      Assert.assertEquals("req" + i, echo("req" + i).join().asText());
+    }
+
+    // VERIFY
+    Assert.assertEquals(1, nbRequests[2].get());
+    Assert.assertEquals(20, nbRequests[0].get() + nbRequests[1].get() + nbRequests[2].get());
+  }
+
+  @Test
+  public void failover() throws Exception {
+    RpcNode downNode = rpcLoadBalancer.getNodes().get(0);
+    servers.get(0).stop(0);
+
+    // TEST: requests succeed on other nodes, down node is ejected
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals("req" + i, echo("req" + i).join().asText());
+    }
+    Assert.assertTrue(downNode.isEjected(System.currentTimeMillis()));
+    long nbFailures = downNode.getNbFailures();
+    Assert.assertTrue(nbFailures <= 2);
+
+    // TEST: ejected node is not used
+    for (int i = 0; i < 10; i++) {
+      echo("req" + i).join();
+    }
+    Assert.assertEquals(nbFailures, downNode.getNbFailures());
+
+    // TEST: node probed again after ejection, and ejected again on failure
+    Thread.sleep(EJECT_DURATION * 1000 + 100);
+    for (int i = 0; i < 10; i++) {
+      echo("req" + i).join();
+    }
+    Assert.assertEquals(nbFailures + 1, downNode.getNbFailures());
+    Assert.assertTrue(downNode.isEjected(System.currentTimeMillis()));
+  }
+
+  @Test
+  public void laggingNode() throws Exception {
+    RpcNode laggingNode = rpcLoadBalancer.getNodes().get(2);
+    blockHeights[2] = 99;
+
+    // TEST: node trailing main node is not used
+    rpcLoadBalancer.onMainBlockHeight(100);
+    waitBlockHeightsChecked();
+    for (int i = 0; i < 20; i++) {
+      Assert.assertEquals("req" + i, echo("req" + i).join().asText());
+    }
+    Assert.assertEquals(0, nbRequests[2].get());
+    Assert.assertTrue(laggingNode.toString().contains("blockHeight=99"));
+
+    // TEST: node used again once caught up
+    blockHeights[2] = 100;
+    Thread.sleep(5100); // lagging node checked again
+    echo("recheck").join();
+    waitBlockHeightsChecked();
+    for (int i = 0; i < 30; i++) {
+      echo("req" + i);
+    }
+    for (int i = 0; i < 30; i++) {
+      echo("req" + i).join();
+    }
+    Assert.assertTrue(nbRequests[2].get() > 0);
+    Assert.assertEquals(0, laggingNode.getNbFailures());
+  }
+
+  @Test
+  public void notFound_verifiedOnMainNode() throws Exception {
+    RpcNode mainNode = rpcLoadBalancer.getMainNode();
+    RpcNode staleNode = rpcLoadBalancer.getNodes().get(1);
+    txindex[1] = false;
+
+    // TEST: "not found" from other node is verified on main node
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals("tx" + i, find("tx" + i).join().get().asText());
+    }
+
+    // VERIFY: stale node penalized, then avoided
+    Assert.assertEquals(staleNode.getNbRequests(), staleNode.getNbFailures());
+    Assert.assertTrue(staleNode.getNbRequests() >= 1 && staleNode.getNbRequests() <= 2);
+    Assert.assertTrue(staleNode.getFailureRate() > 0);
+    Assert.assertEquals(0, mainNode.getNbFailures());
+
+    // TEST: not found on main node => not found
+    txindex[0] = false;
+    txindex[2] = false;
+    Assert.assertFalse(find("unknown").join().isPresent());
+  }
+}
@@ -0,0 +1,140 @@
+package com.samourai.whirlpool.server.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BoundedExecutorTest {
+  private BoundedExecutor boundedExecutor;
+
+  @After
+  public void tearDown() {
+    boundedExecutor.shutdown();
+  }
+
+  @Test
+  public void discard_neverRunsOnCaller() throws Exception {
+    boundedExecutor =
+        new BoundedExecutor("test", 1, 1, 10, BoundedExecutor.RejectionPolicy.DISCARD);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    boundedExecutor.execute(
+        () -> {
+          started.countDown();
+          await(release);
+        });
+    Assert.assertTrue(started.await(5, TimeUnit.SECONDS)); // running
+    boundedExecutor.execute(() -> {}); // queued
+
+    // TEST: queue full => dropped, not run by caller
+    Thread caller = Thread.currentThread();
+    AtomicBoolean ranOnCaller = new AtomicBoolean(false);
+    boundedExecutor.execute(() -> ranOnCaller.set(Thread.currentThread() == caller));
+
+    // VERIFY
+    Assert.assertFalse(ranOnCaller.get());
+    Assert.assertEquals(1, boundedExecutor.getNbRejected());
+    release.countDown();
+  }
+
+  @Test
+  public void keyed_ordered() throws Exception {
+    boundedExecutor =
+        new BoundedExecutor("test", 4, 100, 1000, BoundedExecutor.RejectionPolicy.DISCARD);
+    List<Integer> results = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch done = new CountDownLatch(1);
+
+    // TEST
+    for (int i = 0; i < 500; i++) {
+      int value = i;
+      boundedExecutor.execute("key", () -> results.add(value));
+    }
+    boundedExecutor.execute("key", done::countDown);
+
+    // VERIFY: same key => submission order
+    Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+    Assert.assertEquals(500, results.size());
+    for (int i = 0; i < 500; i++) {
+      Assert.assertEquals(i, (int) results.get(i));
+    }
+    Assert.assertEquals(0, boundedExecutor.getNbRejected());
+  }
+
+  @Test
+  public void keyed_dropsOnlySlowKey() throws Exception {
+    boundedExecutor =
+        new BoundedExecutor("test", 2, 10, 2, BoundedExecutor.RejectionPolicy.DISCARD);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    boundedExecutor.execute(
+        "slow",
+        () -> {
+          started.countDown();
+          await(release);
+        });
+    Assert.assertTrue(started.await(5, TimeUnit.SECONDS)); // running
+    boundedExecutor.execute("slow", () -> {});
+    boundedExecutor.execute("slow", () -> {}); // key queue full
+
+    // TEST
+    Assert.assertFalse(boundedExecutor.execute("slow", () -> {})); // dropped
+    CountDownLatch fastDone = new CountDownLatch(1);
+    Assert.assertTrue(boundedExecutor.execute("fast", fastDone::countDown));
+
+    // VERIFY
+    Assert.assertTrue(fastDone.await(5, TimeUnit.SECONDS));
+    Assert.assertEquals(1, boundedExecutor.getNbRejected());
+    release.countDown();
+  }
+
+  @Test
+  public void keyed_waitsForRoom() throws Exception {
+    boundedExecutor =
+        new BoundedExecutor("test", 1, 1, 10, BoundedExecutor.RejectionPolicy.DISCARD);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    boundedExecutor.execute(
+        () -> {
+          started.countDown();
+          await(release);
+        });
+    Assert.assertTrue(started.await(5, TimeUnit.SECONDS)); // running
+    boundedExecutor.execute(() -> {}); // shared queue full
+
+    // TEST: room made while key waits
+    new Thread(
+            () -> {
+              sleep(100);
+              release.countDown();
+            })
+        .start();
+    CountDownLatch keyDone = new CountDownLatch(1);
+    Assert.assertTrue(boundedExecutor.execute("key", keyDone::countDown));
+
+    // VERIFY: keyed task not dropped
+    Assert.assertTrue(keyDone.await(5, TimeUnit.SECONDS));
+    Assert.assertEquals(0, boundedExecutor.getNbRejected());
+  }
+
+  private void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
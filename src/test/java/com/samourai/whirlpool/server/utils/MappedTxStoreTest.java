@@ -0,0 +1,72 @@
+package com.samourai.whirlpool.server.utils;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import org.bitcoinj.core.Sha256Hash;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MappedTxStoreTest {
+  private static final int HEADER_SIZE = 32;
+  private static final int SLOT_SIZE = 37;
+  private static final int INITIAL_CAPACITY = 1 << 16;
+
+  @Test
+  public void tornSlot() throws Exception {
+    File file = new File(Files.createTempDirectory("txstore").toFile(), "store.dat");
+    byte[] key1 = Sha256Hash.hash("foo".getBytes());
+    byte[] key2 = Sha256Hash.hash("bar".getBytes());
+
+    MappedTxStore store = new MappedTxStore(file, 1);
+    store.put(key1, (byte) 1);
+    store.put(key2, (byte) 2);
+    store.close();
+
+    // TEST: slot of key1 torn by a crash (partial key)
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.seek(computePosition(key1) + MappedTxStore.KEY_SIZE - 1);
+      raf.write(~key1[MappedTxStore.KEY_SIZE - 1]);
+    }
+
+    // VERIFY: torn entry discarded, others recovered
+    store = new MappedTxStore(file, 1);
+    Assert.assertEquals(1, store.getSize());
+    Assert.assertEquals(0, store.get(key1));
+    Assert.assertEquals(2, store.get(key2));
+
+    // VERIFY: slot reusable
+    store.put(key1, (byte) 1);
+    Assert.assertEquals(1, store.get(key1));
+    Assert.assertEquals(2, store.getSize());
+    store.close();
+  }
+
+  @Test
+  public void recoverWithoutClose() throws Exception {
+    File file = new File(Files.createTempDirectory("txstore").toFile(), "store.dat");
+    byte[] key = Sha256Hash.hash("foo".getBytes());
+
+    // TEST: entries not flushed by close
+    MappedTxStore store = new MappedTxStore(file, 1);
+    store.put(key, (byte) 1);
+    store.flush();
+    store.put(Sha256Hash.hash("bar".getBytes()), (byte) 2);
+
+    // VERIFY: entries counted from slots, not from header
+    MappedTxStore reopened = new MappedTxStore(file, 1);
+    Assert.assertEquals(2, reopened.getSize());
+    Assert.assertEquals(1, reopened.get(key));
+    reopened.close();
+    store.close();
+  }
+
+  private long computePosition(byte[] key) {
+    long h = 0;
+    for (int i = 0; i < 8; i++) {
+      h = (h << 8) | (key[i] & 0xff);
+    }
+    int index = (int) (h & (INITIAL_CAPACITY - 1));
+    return HEADER_SIZE + (long) index * SLOT_SIZE;
+  }
+}
@@ -0,0 +1,97 @@
+package com.samourai.whirlpool.server.utils;
+
+import com.samourai.whirlpool.server.exceptions.IllegalInputException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SerialExecutorTest {
+  private SerialExecutor serialExecutor;
+
+  @Before
+  public void setUp() {
+    serialExecutor = new SerialExecutor("test");
+  }
+
+  @After
+  public void tearDown() {
+    serialExecutor.shutdown();
+  }
+
+  @Test
+  public void call_inline() throws Exception {
+    Assert.assertFalse(serialExecutor.isExecutorThread());
+
+    // TEST: nested call from executor thread => run inline instead of deadlocking
+    String result =
+        serialExecutor.call(
+            () -> {
+              Assert.assertTrue(serialExecutor.isExecutorThread());
+              Thread outerThread = Thread.currentThread();
+              return serialExecutor.call(
+                  () -> {
+                    Assert.assertSame(outerThread, Thread.currentThread());
+                    return Thread.currentThread().getName();
+                  });
+            });
+
+    // VERIFY
+    Assert.assertEquals("test", result);
+  }
+
+  @Test
+  public void call_unwrapsCause() throws Exception {
+    // TEST: checked exception rethrown as is, with its declared type
+    try {
+      serialExecutor.call(
+          () -> {
+            throw new IllegalInputException("invalid");
+          });
+      Assert.fail();
+    } catch (IllegalInputException e) {
+      Assert.assertEquals("invalid", e.getMessage());
+    }
+
+    // TEST: unchecked exception rethrown as is
+    IllegalStateException error = new IllegalStateException("failed");
+    try {
+      serialExecutor.run(
+          () -> {
+            throw error;
+          });
+      Assert.fail();
+    } catch (IllegalStateException e) {
+      Assert.assertSame(error, e);
+    }
+
+    // VERIFY executor still usable
+    Assert.assertEquals("ok", serialExecutor.call(() -> "ok"));
+  }
+
+  @Test
+  public void shutdown() throws Exception {
+    CountDownLatch done = new CountDownLatch(1);
+    serialExecutor.submit(done::countDown);
+    Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+    serialExecutor.shutdown();
+
+    // TEST: submit after shutdown => ignored
+    AtomicBoolean run = new AtomicBoolean(false);
+    serialExecutor.submit(() -> run.set(true));
+    Thread.sleep(100);
+    Assert.assertFalse(run.get());
+
+    // TEST: call after shutdown => rejected
+    try {
+      serialExecutor.call(() -> "ko");
+      Assert.fail();
+    } catch (RejectedExecutionException e) {
+      // expected
+    }
+  }
+}
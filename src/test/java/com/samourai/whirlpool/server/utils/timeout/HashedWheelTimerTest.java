@@ -0,0 +1,159 @@
+package com.samourai.whirlpool.server.utils.timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HashedWheelTimerTest {
+  private static final long TICK_DURATION = 100;
+  private static final int WHEEL_SIZE = 8;
+
+  private AtomicLong clock;
+  private HashedWheelTimer timer;
+  private List<String> results;
+
+  @Before
+  public void setUp() {
+    clock = new AtomicLong(1000);
+    timer = new HashedWheelTimer(TICK_DURATION, WHEEL_SIZE, clock::get);
+    results = new ArrayList<>();
+  }
+
+  @Test
+  public void expire() throws Exception {
+    HashedWheelTimer.Timeout timeout = timer.newTimeout(() -> results.add("a"), 250);
+    Assert.assertEquals(1, timer.getNbTimeouts());
+    Assert.assertEquals(250, timeout.getDelay());
+
+    // VERIFY: not expired before its tick
+    tick(2);
+    Assert.assertTrue(results.isEmpty());
+    Assert.assertFalse(timeout.isExpired());
+
+    // VERIFY: expired once on tick 2
+    tick(1);
+    Assert.assertEquals(1, results.size());
+    Assert.assertTrue(timeout.isExpired());
+    Assert.assertEquals(0, timer.getNbTimeouts());
+    Assert.assertFalse(timeout.cancel());
+
+    tick(WHEEL_SIZE * 2);
+    Assert.assertEquals(1, results.size());
+  }
+
+  @Test
+  public void expire_rounds() throws Exception {
+    // same bucket as tick 2, one round later
+    timer.newTimeout(() -> results.add("later"), (WHEEL_SIZE + 2) * TICK_DURATION);
+    timer.newTimeout(() -> results.add("sooner"), 2 * TICK_DURATION);
+
+    tick(3);
+    Assert.assertEquals(1, results.size());
+    Assert.assertEquals("sooner", results.get(0));
+
+    tick(WHEEL_SIZE - 1);
+    Assert.assertEquals(1, results.size());
+
+    tick(1);
+    Assert.assertEquals(2, results.size());
+    Assert.assertEquals("later", results.get(1));
+    Assert.assertEquals(0, timer.getNbTimeouts());
+  }
+
+  @Test
+  public void expire_late() throws Exception {
+    // ticks processed ahead of clock
+    for (int i = 0; i < 5; i++) {
+      timer.tick();
+    }
+
+    // TEST: deadline in a tick already processed => expires on next tick
+    timer.newTimeout(() -> results.add("a"), 2 * TICK_DURATION);
+
+    timer.tick();
+    Assert.assertEquals(1, results.size());
+  }
+
+  @Test
+  public void expire_taskFailure() throws Exception {
+    timer.newTimeout(
+        () -> {
+          throw new RuntimeException("test");
+        },
+        0);
+    timer.newTimeout(() -> results.add("a"), 0);
+
+    // VERIFY: failing task doesn't prevent others
+    tick(1);
+    Assert.assertEquals(1, results.size());
+    Assert.assertEquals(0, timer.getNbTimeouts());
+  }
+
+  @Test
+  public void cancel_pending() throws Exception {
+    HashedWheelTimer.Timeout timeout = timer.newTimeout(() -> results.add("a"), 0);
+
+    // TEST: cancelled before being scheduled in a bucket
+    Assert.assertTrue(timeout.cancel());
+    Assert.assertFalse(timeout.cancel());
+    Assert.assertTrue(timeout.isCancelled());
+    Assert.assertEquals(0, timer.getNbTimeouts());
+
+    tick(WHEEL_SIZE * 2);
+    Assert.assertTrue(results.isEmpty());
+    Assert.assertFalse(timeout.isExpired());
+  }
+
+  @Test
+  public void cancel_scheduled() throws Exception {
+    // 5 timeouts in same bucket
+    HashedWheelTimer.Timeout a = timer.newTimeout(() -> results.add("a"), 300);
+    timer.newTimeout(() -> results.add("b"), 300);
+    HashedWheelTimer.Timeout c = timer.newTimeout(() -> results.add("c"), 300);
+    HashedWheelTimer.Timeout d = timer.newTimeout(() -> results.add("d"), 300);
+    timer.newTimeout(() -> results.add("e"), 300);
+    tick(1);
+    Assert.assertEquals(5, timer.getNbTimeouts());
+
+    // TEST: cancel head and middle of bucket
+    Assert.assertTrue(a.cancel());
+    Assert.assertTrue(c.cancel());
+    Assert.assertTrue(d.cancel());
+    Assert.assertEquals(2, timer.getNbTimeouts());
+
+    // VERIFY
+    tick(3);
+    Assert.assertEquals(2, results.size());
+    Assert.assertEquals("b", results.get(0));
+    Assert.assertEquals("e", results.get(1));
+    Assert.assertTrue(c.isCancelled());
+    Assert.assertFalse(c.isExpired());
+    Assert.assertEquals(0, timer.getNbTimeouts());
+  }
+
+  @Test
+  public void cancel_nextRound() throws Exception {
+    HashedWheelTimer.Timeout timeout =
+        timer.newTimeout(() -> results.add("a"), (WHEEL_SIZE * 2) * TICK_DURATION);
+    tick(WHEEL_SIZE + 1); // bucket visited twice, one round remaining
+
+    // TEST
+    Assert.assertTrue(timeout.cancel());
+
+    // VERIFY
+    tick(WHEEL_SIZE * 2);
+    Assert.assertTrue(results.isEmpty());
+    Assert.assertEquals(0, timer.getNbTimeouts());
+  }
+
+  // process ticks and move clock accordingly
+  private void tick(int nbTicks) {
+    for (int i = 0; i < nbTicks; i++) {
+      timer.tick();
+      clock.addAndGet(TICK_DURATION);
+    }
+  }
+}